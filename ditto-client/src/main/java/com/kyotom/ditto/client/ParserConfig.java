@@ -4,6 +4,9 @@ import com.google.common.base.Splitter;
 import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.net.URI;
 import java.util.List;
@@ -17,6 +20,25 @@ public class ParserConfig {
     private String hiveDefaultCatalog = "hive";
     private static final Splitter SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
     private List<URI> metastoreUris;
+    private boolean warmupEnabled;
+    private String warmupCorpusFile;
+    private boolean adaptivePredictionModeEnabled;
+    private double adaptivePredictionModeFallbackThreshold = 0.5;
+    private int adaptivePredictionModeMinSamples = 100;
+    private int errorAnalysisMaxSteps = 100_000;
+    private int maxStatementTokens = 1_000_000;
+    private int maxStatementDepth = 2_000;
+    private long statementTimeoutMillis = 60_000;
+    private int insertValuesBatchRows = 1_000;
+    private boolean threadLocalDfaCacheEnabled;
+    private int dfaCacheMaxStates;
+    private boolean dfaCacheRewarmEnabled = true;
+    private boolean nodeLocationsEnabled = true;
+    private boolean directTrinoAstEnabled = true;
+    private boolean singleLineOutputEnabled;
+    private long translationCacheMaxWeight;
+    private String translationCacheFile;
+    private long translationTemplatesMaxSize;
 
     @NotNull
     public List<URI> getMetastoreUris()
@@ -69,4 +91,281 @@ public class ParserConfig {
 
         return this;
     }
+
+    public boolean isWarmupEnabled()
+    {
+        return warmupEnabled;
+    }
+
+    @Config("parser.warmup.enabled")
+    @ConfigDescription("Replay a corpus of statements at startup to warm up the parser caches")
+    public ParserConfig setWarmupEnabled(boolean warmupEnabled)
+    {
+        this.warmupEnabled = warmupEnabled;
+
+        return this;
+    }
+
+    public String getWarmupCorpusFile()
+    {
+        return warmupCorpusFile;
+    }
+
+    @Config("parser.warmup.corpus-file")
+    @ConfigDescription("Statements used for parser warm-up instead of the bundled corpus")
+    public ParserConfig setWarmupCorpusFile(String warmupCorpusFile)
+    {
+        this.warmupCorpusFile = warmupCorpusFile;
+
+        return this;
+    }
+
+    public boolean isAdaptivePredictionModeEnabled()
+    {
+        return adaptivePredictionModeEnabled;
+    }
+
+    @Config("parser.adaptive-prediction-mode.enabled")
+    @ConfigDescription("Skip SLL parsing for statement kinds that usually need LL parsing")
+    public ParserConfig setAdaptivePredictionModeEnabled(boolean adaptivePredictionModeEnabled)
+    {
+        this.adaptivePredictionModeEnabled = adaptivePredictionModeEnabled;
+
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePredictionModeFallbackThreshold()
+    {
+        return adaptivePredictionModeFallbackThreshold;
+    }
+
+    @Config("parser.adaptive-prediction-mode.fallback-threshold")
+    @ConfigDescription("Fraction of SLL attempts of a statement kind falling back to LL above which SLL is skipped")
+    public ParserConfig setAdaptivePredictionModeFallbackThreshold(double adaptivePredictionModeFallbackThreshold)
+    {
+        this.adaptivePredictionModeFallbackThreshold = adaptivePredictionModeFallbackThreshold;
+
+        return this;
+    }
+
+    @Min(1)
+    public int getAdaptivePredictionModeMinSamples()
+    {
+        return adaptivePredictionModeMinSamples;
+    }
+
+    @Config("parser.adaptive-prediction-mode.min-samples")
+    @ConfigDescription("Number of SLL attempts of a statement kind needed before SLL may be skipped")
+    public ParserConfig setAdaptivePredictionModeMinSamples(int adaptivePredictionModeMinSamples)
+    {
+        this.adaptivePredictionModeMinSamples = adaptivePredictionModeMinSamples;
+
+        return this;
+    }
+
+    @Min(1)
+    public int getErrorAnalysisMaxSteps()
+    {
+        return errorAnalysisMaxSteps;
+    }
+
+    @Config("parser.error-analysis.max-steps")
+    @ConfigDescription("Maximum number of grammar states explored when computing the expected tokens of a syntax error")
+    public ParserConfig setErrorAnalysisMaxSteps(int errorAnalysisMaxSteps)
+    {
+        this.errorAnalysisMaxSteps = errorAnalysisMaxSteps;
+
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxStatementTokens()
+    {
+        return maxStatementTokens;
+    }
+
+    @Config("parser.max-statement-tokens")
+    @ConfigDescription("Maximum number of tokens of a statement, excluding whitespace and comments")
+    public ParserConfig setMaxStatementTokens(int maxStatementTokens)
+    {
+        this.maxStatementTokens = maxStatementTokens;
+
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxStatementDepth()
+    {
+        return maxStatementDepth;
+    }
+
+    @Config("parser.max-statement-depth")
+    @ConfigDescription("Maximum nesting depth of the grammar rules matched by a statement")
+    public ParserConfig setMaxStatementDepth(int maxStatementDepth)
+    {
+        this.maxStatementDepth = maxStatementDepth;
+
+        return this;
+    }
+
+    @Min(0)
+    public long getStatementTimeoutMillis()
+    {
+        return statementTimeoutMillis;
+    }
+
+    @Config("parser.statement-timeout-millis")
+    @ConfigDescription("Maximum time in milliseconds to parse and translate a statement, 0 for no limit")
+    public ParserConfig setStatementTimeoutMillis(long statementTimeoutMillis)
+    {
+        this.statementTimeoutMillis = statementTimeoutMillis;
+
+        return this;
+    }
+
+    @Min(0)
+    public int getInsertValuesBatchRows()
+    {
+        return insertValuesBatchRows;
+    }
+
+    @Config("parser.insert-values.batch-rows")
+    @ConfigDescription("Maximum number of rows of the INSERT statements translated from an INSERT ... VALUES statement of a file, 0 for no limit")
+    public ParserConfig setInsertValuesBatchRows(int insertValuesBatchRows)
+    {
+        this.insertValuesBatchRows = insertValuesBatchRows;
+
+        return this;
+    }
+
+    public boolean isThreadLocalDfaCacheEnabled()
+    {
+        return threadLocalDfaCacheEnabled;
+    }
+
+    @Config("parser.thread-local-dfa-cache.enabled")
+    @ConfigDescription("Give each parsing thread its own lexer and parser DFA caches, seeded from the warm-up, instead of sharing them")
+    public ParserConfig setThreadLocalDfaCacheEnabled(boolean threadLocalDfaCacheEnabled)
+    {
+        this.threadLocalDfaCacheEnabled = threadLocalDfaCacheEnabled;
+
+        return this;
+    }
+
+    @Min(0)
+    public int getDfaCacheMaxStates()
+    {
+        return dfaCacheMaxStates;
+    }
+
+    @Config("parser.dfa-cache.max-states")
+    @ConfigDescription("Number of lexer and parser DFA states above which a DFA cache is reset, 0 for no limit. With thread-local caches, the limit applies to the cache of each thread")
+    public ParserConfig setDfaCacheMaxStates(int dfaCacheMaxStates)
+    {
+        this.dfaCacheMaxStates = dfaCacheMaxStates;
+
+        return this;
+    }
+
+    public boolean isDfaCacheRewarmEnabled()
+    {
+        return dfaCacheRewarmEnabled;
+    }
+
+    @Config("parser.dfa-cache.rewarm.enabled")
+    @ConfigDescription("Start reset DFA caches from the states learned by the parser warm-up, rather than empty")
+    public ParserConfig setDfaCacheRewarmEnabled(boolean dfaCacheRewarmEnabled)
+    {
+        this.dfaCacheRewarmEnabled = dfaCacheRewarmEnabled;
+
+        return this;
+    }
+
+    public boolean isNodeLocationsEnabled()
+    {
+        return nodeLocationsEnabled;
+    }
+
+    @Config("parser.node-locations.enabled")
+    @ConfigDescription("Record the line and column of the nodes of the parsed statements; parse errors are reported with their location regardless")
+    public ParserConfig setNodeLocationsEnabled(boolean nodeLocationsEnabled)
+    {
+        this.nodeLocationsEnabled = nodeLocationsEnabled;
+
+        return this;
+    }
+
+    public boolean isDirectTrinoAstEnabled()
+    {
+        return directTrinoAstEnabled;
+    }
+
+    @Config("parser.direct-trino-ast.enabled")
+    @ConfigDescription("Build the Trino AST of CREATE TABLE and INSERT ... VALUES statements straight from the parse tree, skipping the ditto AST")
+    public ParserConfig setDirectTrinoAstEnabled(boolean directTrinoAstEnabled)
+    {
+        this.directTrinoAstEnabled = directTrinoAstEnabled;
+
+        return this;
+    }
+
+    public boolean isSingleLineOutputEnabled()
+    {
+        return singleLineOutputEnabled;
+    }
+
+    @Config("parser.output.single-line.enabled")
+    @ConfigDescription("Write each translated CREATE TABLE, DROP TABLE and INSERT ... VALUES statement on a single line")
+    public ParserConfig setSingleLineOutputEnabled(boolean singleLineOutputEnabled)
+    {
+        this.singleLineOutputEnabled = singleLineOutputEnabled;
+
+        return this;
+    }
+
+    @Min(0)
+    public long getTranslationCacheMaxWeight()
+    {
+        return translationCacheMaxWeight;
+    }
+
+    @Config("parser.translation-cache.max-weight")
+    @ConfigDescription("Maximum total length in characters of the statements and translations kept by the translation cache, 0 disables the cache")
+    public ParserConfig setTranslationCacheMaxWeight(long translationCacheMaxWeight)
+    {
+        this.translationCacheMaxWeight = translationCacheMaxWeight;
+
+        return this;
+    }
+
+    public String getTranslationCacheFile()
+    {
+        return translationCacheFile;
+    }
+
+    @Config("parser.translation-cache.file")
+    @ConfigDescription("File the translations are stored in, to be reused by later runs; not stored when unset")
+    public ParserConfig setTranslationCacheFile(String translationCacheFile)
+    {
+        this.translationCacheFile = translationCacheFile;
+
+        return this;
+    }
+
+    @Min(0)
+    public long getTranslationTemplatesMaxSize()
+    {
+        return translationTemplatesMaxSize;
+    }
+
+    @Config("parser.translation-templates.max-size")
+    @ConfigDescription("Maximum number of statement shapes kept with the template of their translation, 0 disables the templates")
+    public ParserConfig setTranslationTemplatesMaxSize(long translationTemplatesMaxSize)
+    {
+        this.translationTemplatesMaxSize = translationTemplatesMaxSize;
+
+        return this;
+    }
 }
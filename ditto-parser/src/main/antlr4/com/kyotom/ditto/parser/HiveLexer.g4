@@ -323,6 +323,7 @@ KW_ABORT: 'ABORT';
 KW_EXTRACT: 'EXTRACT';
 KW_FLOOR: 'FLOOR';
 KW_REFRESH: 'REFRESH';
+KW_INVALIDATE: 'INVALIDATE';
 KW_MERGE: 'MERGE';
 KW_MATCHED: 'MATCHED';
 KW_REPL: 'REPL';
@@ -39,6 +39,11 @@ empty
    : statementSeparator
    ;
 
+// starting rule for a standalone expression
+singleExpression
+   : expression EOF
+   ;
+
 statement
 	: explainStatement      #explain
 	| execStatement         #exec
@@ -87,6 +92,8 @@ execStatement
     | sqlTransactionStatement           #sqlTransaction
     | mergeStatement                    #merge
     | refreshStatement                  #refresh
+    | invalidateMetadataStatement       #invalidateMetadata
+    | setPropertyStatement              #setProperty
     ;
 
 loadStatement
@@ -1384,6 +1391,23 @@ refreshStatement
    : KW_REFRESH tableName
    ;
 
+invalidateMetadataStatement
+   : KW_INVALIDATE KW_METADATA tableName?
+   ;
+
+// SET key=value of the Hive CLI, the key and the value are taken as they are
+setPropertyStatement
+   : KW_SET setPropertyKey EQUAL setPropertyValue?
+   ;
+
+setPropertyKey
+   : (~(EQUAL | SEMICOLON))+
+   ;
+
+setPropertyValue
+   : (~SEMICOLON)+
+   ;
+
 /*
 Allow 0,1 or 2 WHEN MATCHED clauses and 0 or 1 WHEN NOT MATCHED
 Each WHEN clause may have AND <boolean predicate>.
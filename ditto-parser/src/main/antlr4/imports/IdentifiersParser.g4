@@ -388,7 +388,8 @@ expression
     | expression precedenceConcatenateOperator expression
     | expression precedenceAmpersandOperator expression
     | expression precedenceBitwiseOrOperator expression
-    | expression precedenceSimilarExpressionPart
+    | expression (precedenceSimilarOperator | KW_NOT precedenceRegexpOperator) expression
+    | expression KW_NOT? precedenceSimilarExpressionAtom
     | KW_EXISTS subQueryExpression
     | expression (precedenceEqualOperator | precedenceDistinctOperator) expression
     | precedenceNotOperator expression
@@ -401,12 +402,6 @@ subQueryExpression
     : LPAREN selectStatement RPAREN
     ;
 
-precedenceSimilarExpressionPart
-    : precedenceSimilarOperator expression
-    | precedenceSimilarExpressionAtom
-    | KW_NOT precedenceSimilarExpressionPartNot
-    ;
-
 precedenceSimilarExpressionAtom
     : KW_IN precedenceSimilarExpressionIn
     | KW_BETWEEN expression KW_AND expression
@@ -419,11 +414,6 @@ precedenceSimilarExpressionIn
     | expressionsInParenthesis
     ;
 
-precedenceSimilarExpressionPartNot
-    : precedenceRegexpOperator expression
-    | precedenceSimilarExpressionAtom
-    ;
-
 booleanValue
     : KW_TRUE
     | KW_FALSE
@@ -547,7 +537,7 @@ nonReserved
     | KW_DESC | KW_DIRECTORIES | KW_DIRECTORY | KW_DISABLE | KW_DISTRIBUTE | KW_DOW | KW_ELEM_TYPE
     | KW_ENABLE | KW_ENFORCED | KW_ESCAPED | KW_EXCLUSIVE | KW_EXPLAIN | KW_EXPORT | KW_FIELDS | KW_FILE | KW_FILEFORMAT
     | KW_FIRST | KW_FORMAT | KW_FORMATTED | KW_FUNCTIONS | KW_HOUR | KW_IDXPROPERTIES
-    | KW_INDEX | KW_INDEXES | KW_INPATH | KW_INPUTDRIVER | KW_INPUTFORMAT | KW_ITEMS | KW_JAR | KW_KILL
+    | KW_INDEX | KW_INDEXES | KW_INPATH | KW_INPUTDRIVER | KW_INPUTFORMAT | KW_INVALIDATE | KW_ITEMS | KW_JAR | KW_KILL
     | KW_KEYS | KW_KEY_TYPE | KW_LAST | KW_LIMIT | KW_OFFSET | KW_LINES | KW_LOAD | KW_LOCATION | KW_LOCK | KW_LOCKS | KW_LOGICAL | KW_LONG
     | KW_MAPJOIN | KW_MATERIALIZED | KW_METADATA | KW_MINUTE | KW_MONTH | KW_MSCK | KW_NOSCAN | KW_NULLS
     | KW_OPTION | KW_OUTPUTDRIVER | KW_OUTPUTFORMAT | KW_OVERWRITE | KW_OWNER | KW_PARTITIONED | KW_PARTITIONS | KW_PLUS
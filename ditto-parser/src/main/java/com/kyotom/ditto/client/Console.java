@@ -18,11 +18,17 @@ import com.google.common.collect.ImmutableSet;
 import com.kyotom.ditto.client.cli.ClientOptions;
 import com.kyotom.ditto.client.cli.InputReader;
 import com.kyotom.ditto.client.cli.ThreadInterruptor;
+import com.kyotom.ditto.parser.CaseFoldingCharStream;
+import com.kyotom.ditto.parser.CaseInsensitiveStream;
 import com.kyotom.ditto.parser.Main;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.UnbufferedCharStream;
 import org.jline.reader.EndOfFileException;
 import org.jline.reader.History;
 import org.jline.reader.UserInterruptException;
 import org.jline.terminal.Terminal;
+import org.jline.terminal.Terminal.Signal;
+import org.jline.terminal.Terminal.SignalHandler;
 import org.jline.utils.AttributedStringBuilder;
 import org.jline.utils.InfoCmp;
 import picocli.CommandLine.Command;
@@ -30,8 +36,14 @@ import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Option;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -42,9 +54,7 @@ import static com.google.common.base.CharMatcher.whitespace;
 import static com.google.common.base.StandardSystemProperty.USER_HOME;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.base.Strings.nullToEmpty;
-import static com.google.common.io.Files.asCharSource;
 import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
-import static com.kyotom.ditto.client.StatementSplitter.isEmptyStatement;
 import static com.kyotom.ditto.client.cli.Completion.commandCompleter;
 import static com.kyotom.ditto.client.cli.Help.getHelpText;
 import static com.kyotom.ditto.client.cli.TerminalUtils.closeTerminal;
@@ -66,6 +76,7 @@ public class Console
 {
 
     private static final String PROMPT_NAME = "trino";
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
     public static final Set<String> STATEMENT_DELIMITERS = ImmutableSet.of(";", "\\G");
 
     @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show this help message and exit")
@@ -83,20 +94,10 @@ public class Console
     public boolean run()
     {
         Main.init();;
-        boolean hasQuery = false;
-        String query = "";
+        // one buffered sink for the output of all statements, flushed before errors are reported
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8), OUTPUT_BUFFER_SIZE);
         boolean isFromFile = !isNullOrEmpty(clientOptions.file);
 
-        if (isFromFile) {
-            try {
-                query = asCharSource(new File(clientOptions.file), UTF_8).read();
-                hasQuery = true;
-            }
-            catch (IOException e) {
-                throw new RuntimeException(String.format("Error reading from file %s: %s", clientOptions.file, e.getMessage()));
-            }
-        }
-
         // abort any running query if the CLI is terminated
         AtomicBoolean exiting = new AtomicBoolean();
         ThreadInterruptor interruptor = new ThreadInterruptor();
@@ -108,18 +109,28 @@ public class Console
             // Terminal closing restores terminal settings and releases underlying system resources
             closeTerminal();
         }));
-        if (hasQuery) {
-            return executeCommand(
-                    exiting,
-                    query,
-                    false);
-        }
+        try {
+            if (isFromFile) {
+                try {
+                    return executeFile(exiting, Paths.get(clientOptions.file), out);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(String.format("Error reading from file %s: %s", clientOptions.file, e.getMessage()));
+                }
+            }
 
-        runConsole(exiting);
-        return true;
+            runConsole(exiting, out);
+            return true;
+        }
+        finally {
+            flush(out);
+            closeTranslator();
+            exited.countDown();
+            interruptor.close();
+        }
     }
 
-    private static void runConsole(AtomicBoolean exiting)
+    private static void runConsole(AtomicBoolean exiting, Writer out)
     {
         try (InputReader reader = new InputReader(getHistoryFile(), commandCompleter())) {
             String remaining = "";
@@ -173,10 +184,23 @@ public class Console
                         continue;
                 }
 
-                // execute any complete statements
+                // execute any complete statements, until cancelled with Ctrl-C
                 StatementSplitter splitter = new StatementSplitter(line, STATEMENT_DELIMITERS);
-                for (StatementSplitter.Statement split : splitter.getCompleteStatements()) {
-                    process(split.statement(), System.out, System.out);
+                Terminal terminal = reader.getTerminal();
+                try (ThreadInterruptor interruptor = new ThreadInterruptor()) {
+                    SignalHandler previousHandler = terminal.handle(Signal.INT, signal -> interruptor.interrupt());
+                    try {
+                        for (StatementSplitter.Statement split : splitter.getCompleteStatements()) {
+                            process(split, out, System.out);
+                            if (Thread.currentThread().isInterrupted()) {
+                                break;
+                            }
+                        }
+                    }
+                    finally {
+                        flush(out);
+                        terminal.handle(Signal.INT, previousHandler);
+                    }
                 }
 
                 // replace remaining with trailing partial statement
@@ -189,35 +213,90 @@ public class Console
     }
 
     private static boolean process(
-            String sql,
-            PrintStream out,
+            StatementSplitter.Statement statement,
+            Writer out,
             PrintStream errorChannel)
     {
-        String finalSql;
         try {
-            finalSql = Main.transformSingle(sql);
-            BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(out, UTF_8), 16384);
-            bufferedWriter.write(finalSql);
-            bufferedWriter.write('\n');
-            bufferedWriter.flush();
+            if (statement.error().isPresent()) {
+                throw statement.error().get();
+            }
+            Main.transformSingle(statement.tokens(), out);
+            out.write('\n');
             return true;
         }
         catch (Exception e) {
+            // the translated statements come first
+            flush(out);
             errorChannel.println(e.getMessage());
             return false;
         }
     }
 
+    private static void flush(Writer out)
+    {
+        try {
+            out.flush();
+        }
+        catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private static void closeTranslator()
+    {
+        try {
+            Main.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Translates the statements of a UTF-8 encoded file as they are split from it. The file is memory-mapped
+     * and lexed directly from the mapping, so heap use does not depend on the file size. Large
+     * {@code INSERT ... VALUES} statements are translated in batches of rows.
+     */
+    private static boolean executeFile(AtomicBoolean exiting, Path file, Writer out)
+            throws IOException
+    {
+        int valuesBatchRows = Main.getParserConfig().getInsertValuesBatchRows();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE) {
+                // the mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+                CharStream input = CaseFoldingCharStream.fromUtf8(buffer, file.toString());
+                return executeCommand(exiting, StatementSplitter.split(input, ImmutableSet.of(";"), valuesBatchRows), out, false);
+            }
+        }
+
+        // too large for a single mapping
+        try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+            CharStream input = new CaseInsensitiveStream(new UnbufferedCharStream(reader));
+            return executeCommand(exiting, StatementSplitter.split(input, ImmutableSet.of(";"), valuesBatchRows), out, false);
+        }
+    }
+
     private static boolean executeCommand(
             AtomicBoolean exiting,
-            String query,
+            Iterator<StatementSplitter.Statement> statements,
+            Writer out,
             boolean ignoreErrors)
     {
         boolean success = true;
-        StatementSplitter splitter = new StatementSplitter(query);
-        for (StatementSplitter.Statement split : splitter.getCompleteStatements()) {
-            if (!isEmptyStatement(split.statement())) {
-                if (!process(split.statement(), System.out, System.err)) {
+        while (statements.hasNext()) {
+            StatementSplitter.Statement split = statements.next();
+            if (!split.isTerminated()) {
+                if (!split.isEmpty()) {
+                    flush(out);
+                    System.err.println("Non-terminated statement: " + split.statement());
+                    return false;
+                }
+                continue;
+            }
+            if (!split.isEmpty()) {
+                if (!process(split, out, System.err)) {
                     if (!ignoreErrors) {
                         return false;
                     }
@@ -228,10 +307,6 @@ public class Console
                 return success;
             }
         }
-        if (!isEmptyStatement(splitter.getPartialStatement())) {
-            System.err.println("Non-terminated statement: " + splitter.getPartialStatement());
-            return false;
-        }
         return success;
     }
 
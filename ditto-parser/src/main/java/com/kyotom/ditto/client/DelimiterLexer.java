@@ -15,8 +15,6 @@ package com.kyotom.ditto.client;
 
 import com.google.common.collect.ImmutableSet;
 import com.kyotom.ditto.parser.HiveLexer;
-import io.trino.sql.parser.SqlBaseLexer;
-import io.trino.sql.parser.SqlBaseParser;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.IntStream;
 import org.antlr.v4.runtime.LexerNoViableAltException;
@@ -34,6 +32,9 @@ import java.util.Set;
 class DelimiterLexer
         extends HiveLexer
 {
+    // outside of the Hive vocabulary, so that it cannot be confused with a Hive token
+    static final int DELIMITER = HiveLexer.VOCABULARY.getMaxTokenType() + 1;
+
     private final Set<String> delimiters;
 
     public DelimiterLexer(CharStream input, Set<String> delimiters)
@@ -75,7 +76,7 @@ class DelimiterLexer
                     boolean found = false;
                     for (String terminator : delimiters) {
                         if (match(terminator)) {
-                            ttype = SqlBaseParser.DELIMITER;
+                            ttype = DELIMITER;
                             found = true;
                             break;
                         }
@@ -123,7 +124,10 @@ class DelimiterLexer
                 return false;
             }
         }
-        _input.seek(_input.index() + delimiter.length());
+        // consume rather than seek, as unbuffered streams cannot seek past the buffered input
+        for (int i = 0; i < delimiter.length(); i++) {
+            getInterpreter().consume(_input);
+        }
         return true;
     }
 }
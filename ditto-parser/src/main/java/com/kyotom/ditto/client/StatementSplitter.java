@@ -13,22 +13,36 @@
  */
 package com.kyotom.ditto.client;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import io.trino.sql.parser.CaseInsensitiveStream;
-import io.trino.sql.parser.SqlBaseLexer;
-import io.trino.sql.parser.SqlBaseParser;
+import com.kyotom.ditto.parser.CaseFoldingCharStream;
+import com.kyotom.ditto.parser.HiveLexer;
+import com.kyotom.ditto.parser.ParsingException;
+import com.kyotom.ditto.parser.TokenBuffer;
+import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Splits Hive SQL into statements with a single pass of the {@link HiveLexer}. Each statement keeps the
+ * tokens it was split from, in a {@link TokenBuffer}, so that it can be parsed without lexing it again.
+ */
 public class StatementSplitter
 {
     private final List<Statement> completeStatements;
@@ -41,27 +55,137 @@ public class StatementSplitter
 
     public StatementSplitter(String sql, Set<String> delimiters)
     {
-        TokenSource tokens = getLexer(sql, delimiters);
+        requireNonNull(sql, "sql is null");
         ImmutableList.Builder<Statement> list = ImmutableList.builder();
-        StringBuilder sb = new StringBuilder();
-        while (true) {
-            Token token = tokens.nextToken();
-            if (token.getType() == Token.EOF) {
-                break;
-            }
-            if (token.getType() == SqlBaseParser.DELIMITER) {
-                String statement = sb.toString().trim();
-                if (!statement.isEmpty()) {
-                    list.add(new Statement(statement, token.getText()));
-                }
-                sb = new StringBuilder();
+        String partial = "";
+        Iterator<Statement> statements = split(CaseFoldingCharStream.fromString(sql), delimiters);
+        while (statements.hasNext()) {
+            Statement statement = statements.next();
+            if (statement.isTerminated()) {
+                list.add(statement);
             }
             else {
-                sb.append(token.getText());
+                partial = statement.statement();
             }
         }
         this.completeStatements = list.build();
-        this.partialStatement = sb.toString().trim();
+        this.partialStatement = partial;
+    }
+
+    /**
+     * Lazily splits the input, holding only the tokens of the current statement. A trailing statement
+     * without delimiter is returned last, with an empty terminator.
+     * <p>
+     * The statement text is read back from {@code input} when it is a {@link CaseFoldingCharStream}. Tokens
+     * from other streams, such as an {@link org.antlr.v4.runtime.UnbufferedCharStream}, copy their text.
+     */
+    public static Iterator<Statement> split(CharStream input, Set<String> delimiters)
+    {
+        return split(input, delimiters, 0);
+    }
+
+    /**
+     * Same as {@link #split(CharStream, Set)}, but an {@code INSERT ... VALUES} statement with more than
+     * {@code valuesBatchRows} rows is returned as several statements of at most that many rows. Each of them
+     * repeats the tokens of the statement up to {@code VALUES}, and all of them are terminated with the delimiter
+     * of the statement. The rows of the next batch are lexed only once the previous batch has been returned; the
+     * delimiter is found by reading ahead of the first batch, see {@link #findTerminator(CharStream, Set)}.
+     */
+    public static Iterator<Statement> split(CharStream input, Set<String> delimiters, int valuesBatchRows)
+    {
+        checkArgument(valuesBatchRows >= 0, "valuesBatchRows is negative");
+        Lexer lexer = new DelimiterLexer(requireNonNull(input, "input is null"), delimiters);
+        if (!(input instanceof CaseFoldingCharStream)) {
+            lexer.setTokenFactory(new CommonTokenFactory(true));
+        }
+        LexerErrors errors = new LexerErrors();
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errors);
+
+        return new AbstractIterator<Statement>()
+        {
+            // a statement keeps the buffer it was split from, the next statement is collected in a new one
+            private TokenBuffer current = new TokenBuffer(input);
+            private final ValuesRows valuesRows = new ValuesRows(valuesBatchRows);
+            // the delimiter of the statement being returned in batches, once its first batch has ended
+            private String batchTerminator;
+            private boolean done;
+
+            @Override
+            protected Statement computeNext()
+            {
+                while (!done) {
+                    Token token = lexer.nextToken();
+                    if (token.getType() == Token.EOF) {
+                        done = true;
+                        batchTerminator = null;
+                        List<Token> statement = trim(current, 0, current.size());
+                        if (!statement.isEmpty()) {
+                            return new Statement(statement, "", errors.next(), valuesRows.prefixSize());
+                        }
+                    }
+                    else if (token.getType() == DelimiterLexer.DELIMITER) {
+                        List<Token> statement = trim(current, 0, current.size());
+                        Optional<ParsingException> error = errors.next();
+                        int prefixSize = valuesRows.prefixSize();
+                        valuesRows.reset();
+                        batchTerminator = null;
+                        if (!statement.isEmpty()) {
+                            Statement result = new Statement(statement, token.getText(), error, prefixSize);
+                            current = new TokenBuffer(input);
+                            return result;
+                        }
+                        current.clear();
+                    }
+                    else if (valuesBatchRows > 0 && valuesRows.endsBatch(token, current.size())) {
+                        // the batch ends in place of the comma before the next row, which starts a new batch with the same prefix
+                        if (batchTerminator == null) {
+                            batchTerminator = findTerminator(input, delimiters);
+                        }
+                        Statement batch = new Statement(trim(current, 0, current.size()), batchTerminator, errors.next(), valuesRows.prefixSize());
+                        TokenBuffer next = new TokenBuffer(input);
+                        int prefixStart = skipWhitespace(current, 0, valuesRows.prefixEnd());
+                        next.addAll(current, prefixStart, valuesRows.prefixEnd());
+                        current = next;
+                        valuesRows.startBatch(current.size());
+                        return batch;
+                    }
+                    else {
+                        current.add(token);
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Returns the delimiter that ends the statement at the current position of {@code input}, or an empty
+     * string if the input ends first. The input is lexed ahead and rewound; an unbuffered stream holds the
+     * characters up to the delimiter meanwhile.
+     */
+    private static String findTerminator(CharStream input, Set<String> delimiters)
+    {
+        int marker = input.mark();
+        int index = input.index();
+        try {
+            Lexer lexer = new DelimiterLexer(input, delimiters);
+            lexer.removeErrorListeners();
+            while (true) {
+                Token token = lexer.nextToken();
+                if (token.getType() == Token.EOF) {
+                    return "";
+                }
+                if (token.getType() == DelimiterLexer.DELIMITER) {
+                    // the tokens of an unbuffered stream cannot read their text back, the marked input can
+                    return input.getText(Interval.of(token.getStartIndex(), token.getStopIndex()));
+                }
+            }
+        }
+        finally {
+            input.seek(index);
+            input.release(marker);
+        }
     }
 
     public List<Statement> getCompleteStatements()
@@ -78,13 +202,19 @@ public class StatementSplitter
     {
         TokenSource tokens = getLexer(sql, ImmutableSet.of());
         StringBuilder sb = new StringBuilder();
+        boolean whitespace = false;
         while (true) {
             Token token = tokens.nextToken();
             if (token.getType() == Token.EOF) {
                 break;
             }
-            if (token.getType() == SqlBaseLexer.WS) {
-                sb.append(' ');
+            // the Hive lexer emits one WS token per whitespace character
+            boolean previousWhitespace = whitespace;
+            whitespace = token.getType() == HiveLexer.WS;
+            if (whitespace) {
+                if (!previousWhitespace) {
+                    sb.append(' ');
+                }
             }
             else {
                 sb.append(token.getText());
@@ -107,26 +237,190 @@ public class StatementSplitter
         }
     }
 
-    public static TokenSource getLexer(String sql, Set<String> terminators)
+    public static Lexer getLexer(String sql, Set<String> terminators)
     {
         requireNonNull(sql, "sql is null");
-        CharStream stream = new CaseInsensitiveStream(CharStreams.fromString(sql));
+        CharStream stream = CaseFoldingCharStream.fromString(sql);
         return new DelimiterLexer(stream, terminators);
     }
 
+    private static List<Token> trim(TokenBuffer tokens, int start, int end)
+    {
+        start = skipWhitespace(tokens, start, end);
+        while (end > start && tokens.getType(end - 1) == HiveLexer.WS) {
+            end--;
+        }
+        return tokens.subList(start, end);
+    }
+
+    private static int skipWhitespace(TokenBuffer tokens, int start, int end)
+    {
+        while (start < end && tokens.getType(start) == HiveLexer.WS) {
+            start++;
+        }
+        return start;
+    }
+
+    private static String getText(List<Token> tokens, int prefixSize)
+    {
+        if (prefixSize == 0) {
+            return getText(tokens);
+        }
+        return getText(tokens.subList(0, prefixSize)) + getText(tokens.subList(prefixSize, tokens.size()));
+    }
+
+    private static String getText(List<Token> tokens)
+    {
+        if (tokens.isEmpty()) {
+            return "";
+        }
+        Token first = tokens.get(0);
+        Token last = tokens.get(tokens.size() - 1);
+        if (first.getInputStream() instanceof CaseFoldingCharStream) {
+            return first.getInputStream().getText(Interval.of(first.getStartIndex(), last.getStopIndex()));
+        }
+        StringBuilder text = new StringBuilder();
+        for (Token token : tokens) {
+            text.append(token.getText());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Follows the top level tokens of the statement being split, to find the commas between the rows of
+     * an {@code INSERT ... VALUES} statement.
+     */
+    private static class ValuesRows
+    {
+        private final int batchRows;
+        private int firstType = Token.INVALID_TYPE;
+        private int depth;
+        // number of tokens up to and including VALUES, or -1 before VALUES
+        private int prefixEnd = -1;
+        private int rows;
+        private boolean batched;
+
+        public ValuesRows(int batchRows)
+        {
+            this.batchRows = batchRows;
+        }
+
+        /**
+         * Returns whether {@code token}, at {@code index} in the statement, is the comma after the last row of a full batch.
+         */
+        public boolean endsBatch(Token token, int index)
+        {
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                return false;
+            }
+            if (firstType == Token.INVALID_TYPE) {
+                firstType = token.getType();
+            }
+            switch (token.getType()) {
+                case HiveLexer.LPAREN:
+                    depth++;
+                    break;
+                case HiveLexer.RPAREN:
+                    depth--;
+                    if (depth == 0 && prefixEnd >= 0) {
+                        rows++;
+                    }
+                    break;
+                case HiveLexer.KW_VALUES:
+                    if (firstType == HiveLexer.KW_INSERT && depth == 0 && prefixEnd < 0) {
+                        prefixEnd = index + 1;
+                    }
+                    break;
+                case HiveLexer.COMMA:
+                    return depth == 0 && prefixEnd >= 0 && rows >= batchRows;
+            }
+            return false;
+        }
+
+        public int prefixEnd()
+        {
+            return prefixEnd;
+        }
+
+        /**
+         * The number of leading tokens of the current statement repeated from the previous batch, which are
+         * not contiguous in the input with the rest of the statement.
+         */
+        public int prefixSize()
+        {
+            return batched ? prefixEnd : 0;
+        }
+
+        public void startBatch(int prefixEnd)
+        {
+            this.prefixEnd = prefixEnd;
+            rows = 0;
+            batched = true;
+        }
+
+        public void reset()
+        {
+            firstType = Token.INVALID_TYPE;
+            depth = 0;
+            prefixEnd = -1;
+            rows = 0;
+            batched = false;
+        }
+    }
+
+    /**
+     * Collects the errors of the lexer, which skips invalid characters, so that they can be
+     * reported with the statement they occur in.
+     */
+    private static class LexerErrors
+            extends BaseErrorListener
+    {
+        private ParsingException error;
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String message, RecognitionException e)
+        {
+            if (error == null) {
+                error = new ParsingException(message, e, line, charPositionInLine + 1);
+            }
+        }
+
+        public Optional<ParsingException> next()
+        {
+            Optional<ParsingException> result = Optional.ofNullable(error);
+            error = null;
+            return result;
+        }
+    }
+
     public static class Statement
     {
-        private final String statement;
         private final String terminator;
+        private final int prefixSize;
+        private String statement;
+        private List<Token> tokens;
+        private Optional<ParsingException> error;
 
         public Statement(String statement, String terminator)
         {
             this.statement = requireNonNull(statement, "statement is null");
             this.terminator = requireNonNull(terminator, "terminator is null");
+            this.prefixSize = 0;
+        }
+
+        private Statement(List<Token> tokens, String terminator, Optional<ParsingException> error, int prefixSize)
+        {
+            this.tokens = requireNonNull(tokens, "tokens is null");
+            this.terminator = requireNonNull(terminator, "terminator is null");
+            this.error = requireNonNull(error, "error is null");
+            this.prefixSize = prefixSize;
         }
 
         public String statement()
         {
+            if (statement == null) {
+                statement = getText(tokens, prefixSize);
+            }
             return statement;
         }
 
@@ -135,6 +429,54 @@ public class StatementSplitter
             return terminator;
         }
 
+        public boolean isTerminated()
+        {
+            return !terminator.isEmpty();
+        }
+
+        /**
+         * The Hive tokens of the statement, without surrounding whitespace and the terminator. The tokens
+         * are read from a case-folded stream and can be passed to the parser as is.
+         */
+        public List<Token> tokens()
+        {
+            if (tokens == null) {
+                lex();
+            }
+            return tokens;
+        }
+
+        /**
+         * The first error reported by the lexer within the statement.
+         */
+        public Optional<ParsingException> error()
+        {
+            if (error == null) {
+                lex();
+            }
+            return error;
+        }
+
+        public boolean isEmpty()
+        {
+            return tokens().stream().allMatch(token -> token.getChannel() == Token.HIDDEN_CHANNEL);
+        }
+
+        private void lex()
+        {
+            Lexer lexer = getLexer(statement, ImmutableSet.of());
+            LexerErrors errors = new LexerErrors();
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(errors);
+
+            TokenBuffer buffer = new TokenBuffer(lexer.getInputStream());
+            for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+                buffer.add(token);
+            }
+            tokens = buffer.subList(0, buffer.size());
+            error = errors.next();
+        }
+
         @Override
         public boolean equals(Object obj)
         {
@@ -145,20 +487,20 @@ public class StatementSplitter
                 return false;
             }
             Statement o = (Statement) obj;
-            return Objects.equals(statement, o.statement) &&
+            return Objects.equals(statement(), o.statement()) &&
                     Objects.equals(terminator, o.terminator);
         }
 
         @Override
         public int hashCode()
         {
-            return Objects.hash(statement, terminator);
+            return Objects.hash(statement(), terminator);
         }
 
         @Override
         public String toString()
         {
-            return statement + terminator;
+            return statement() + terminator;
         }
     }
 }
@@ -14,34 +14,54 @@
 
 package com.kyotom.ditto.parser;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.collect.ImmutableList;
 import com.kyotom.ditto.parser.tree.*;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toList;
 
 class AstBuilder
         extends HiveParserBaseVisitor<Node>
 {
+    private static final CharMatcher DIGITS = CharMatcher.inRange('0', '9');
+
     private int parameterPosition;
     private final ParsingOptions parsingOptions;
+    private final StatementBudget budget;
+    private final boolean nodeLocations;
 
     AstBuilder(ParsingOptions parsingOptions)
+    {
+        this(parsingOptions, StatementBudget.unlimited());
+    }
+
+    AstBuilder(ParsingOptions parsingOptions, StatementBudget budget)
     {
         this.parsingOptions = requireNonNull(parsingOptions, "parsingOptions is null");
+        this.budget = requireNonNull(budget, "budget is null");
+        this.nodeLocations = parsingOptions.isNodeLocationsEnabled();
+    }
+
+    @Override
+    public Node visit(ParseTree tree)
+    {
+        budget.step();
+        return super.visit(tree);
     }
 
     @Override
     public Node visitStatements(HiveParser.StatementsContext ctx) {
-        return visit(ctx);
+        return new Statements(location(ctx), visit(ctx.statement(), Statement.class));
     }
 
     @Override
@@ -54,99 +74,81 @@ class AstBuilder
         return visit(ctx.queryStatementExpressionBody());
     }
 
+    @Override
+    public Node visitRegularBody(HiveParser.RegularBodyContext ctx) {
+        HiveParser.InsertClauseContext insertClause = ctx.insertClause();
+        if (insertClause == null || insertClause.KW_INTO() == null || ctx.valuesClause() == null) {
+            throw new ParsingException("Unsupported statement", getLocation(ctx));
+        }
+        HiveParser.TableOrPartitionContext tableOrPartition = insertClause.tableOrPartition();
+        if (tableOrPartition.partitionSpec() != null) {
+            throw new ParsingException("Unsupported partition specification", getLocation(tableOrPartition.partitionSpec()));
+        }
+
+        Table table = (Table) visit(tableOrPartition.tableName());
+        QualifiedName target = table.getName();
+        Optional<List<Identifier>> columns = Optional.empty();
+        if (insertClause.columnNameList() != null) {
+            columns = Optional.of(visit(insertClause.columnNameList().columnName(), Identifier.class));
+        }
+        return new Insert(location(insertClause), target, columns, (Values) visit(ctx.valuesClause()));
+    }
+
+    @Override
+    public Node visitValuesClause(HiveParser.ValuesClauseContext ctx) {
+        List<HiveParser.ValueRowConstructorContext> rowContexts = ctx.valuesTableConstructor().valueRowConstructor();
+        ImmutableList.Builder<Expression> rows = ImmutableList.builderWithExpectedSize(rowContexts.size());
+        for (HiveParser.ValueRowConstructorContext row : rowContexts) {
+            rows.add(new Row(location(row), visitExpressions(row.expressionsInParenthesis())));
+        }
+        return new Values(location(ctx), rows.build());
+    }
+
     @Override
     public Node visitCreateTableStatement(HiveParser.CreateTableStatementContext ctx) {
         Table table = (Table)visit(ctx.tableName(0));
 
-        List<TableElement> tableElementList = new ArrayList<>();
+        List<TableElement> tableElementList;
         if (ctx.KW_LIKE() != null) {
             Table likeTarget = (Table)visit(ctx.tableName(1));
-            LikeClause likeClause = new LikeClause(getLocation(ctx), likeTarget.getName(), Optional.empty());
-            tableElementList.add(likeClause);
+            LikeClause likeClause = new LikeClause(location(ctx), likeTarget.getName(), Optional.empty());
+            tableElementList = ImmutableList.of(likeClause);
         }
         else {
             tableElementList = visit(ctx.columnNameTypeOrConstraintList().columnNameTypeOrConstraint(), TableElement.class);
         }
 
         boolean isNotExist = ctx.ifNotExists() != null;
-        ImmutableList.Builder<Property> propertyBuilder = ImmutableList.<Property>builder();
         Optional<String> comment = Optional.empty();
         if (ctx.tableComment() != null) {
         }
 
+        List<HiveParser.KeyValuePropertyContext> keyValueProperties = ImmutableList.of();
         if(ctx.tablePropertiesPrefixed() != null
                 && ctx.tablePropertiesPrefixed().tableProperties() != null
                 && ctx.tablePropertiesPrefixed().tableProperties().tablePropertiesList() != null){
-            List<Property> propertyList = visit(ctx.tablePropertiesPrefixed().tableProperties().tablePropertiesList().keyValueProperty(), Property.class);
-            propertyBuilder.addAll(propertyList);
+            keyValueProperties = ctx.tablePropertiesPrefixed().tableProperties().tablePropertiesList().keyValueProperty();
+        }
+        ImmutableList.Builder<Property> propertyBuilder = ImmutableList.builderWithExpectedSize(keyValueProperties.size());
+        for (HiveParser.KeyValuePropertyContext property : keyValueProperties) {
+            propertyBuilder.add((Property) visit(property));
         }
 
-        Property location = null;
+        Optional<Property> location = Optional.empty();
         if(ctx.tableLocation() != null) {
-            location = (Property)visit(ctx.tableLocation());
+            location = Optional.of((Property)visit(ctx.tableLocation()));
         }
 
-        QualifiedName tableName = table.getName();
+        // the catalog and the format are added by the rewrite rules of the bridging
+        Optional<FileFormat> fileFormat = Optional.empty();
         if (ctx.tableFileFormat() != null) {
-            FileFormat fileFormat = (FileFormat)visit(ctx.tableFileFormat());
-            if (fileFormat.isKuduTable()) {
-                List<Identifier> originalParts = tableName.getOriginalParts();
-                List<Identifier> newOriginalParts = ImmutableList.<Identifier>builder()
-                        .add(new Identifier(parsingOptions.getParserConfig().getKuduDefaultCatalog()))
-                        .addAll(originalParts).build();
-                tableName = QualifiedName.of(newOriginalParts);
-                if (location != null) {
-                    throw new ParsingException("Unexpected location for kudu: " + location);
-                }
-            }
-            else {
-                List<Identifier> originalParts = tableName.getOriginalParts();
-                List<Identifier> newOriginalParts = ImmutableList.<Identifier>builder()
-                        .add(new Identifier(parsingOptions.getParserConfig().getHiveDefaultCatalog()))
-                        .addAll(originalParts).build();
-                tableName = QualifiedName.of(newOriginalParts);
-                Expression tableFileFormat;
-                switch (fileFormat.getStoredAs().getValue().toUpperCase(Locale.ENGLISH)) {
-                    case "PARQUET" :
-                        tableFileFormat = new StringLiteral("Parquet");
-                        break;
-                    case "ORC":
-                        tableFileFormat = new StringLiteral("ORC");
-                        break;
-                    case "AVRO":
-                        tableFileFormat = new StringLiteral("Avro");
-                        break;
-                    case "RCFILE":
-                        tableFileFormat = new StringLiteral("RCText");
-                        break;
-                    case "SEQUENCEFILE":
-                        tableFileFormat = new StringLiteral("SequenceFile");
-                        break;
-                    case "HUDI":
-                    case "TEXT":
-                    default:
-                        tableFileFormat = new StringLiteral("TextFile");
-                }
-                propertyBuilder.add(new Property(new Identifier("format"), tableFileFormat));
-            }
-            if (location != null) {
-                propertyBuilder.add(location);
-            }
-        }
-        else {
-            List<Identifier> originalParts = tableName.getOriginalParts();
-            List<Identifier> newOriginalParts = ImmutableList.<Identifier>builder()
-                    .add(new Identifier(parsingOptions.getParserConfig().getHiveDefaultCatalog()))
-                    .addAll(originalParts).build();
-            tableName = QualifiedName.of(newOriginalParts);
-            Expression tableFileFormat = new StringLiteral("TextFile");
-            propertyBuilder.add(new Property(new Identifier("format"), tableFileFormat));
-            if (location != null) {
-                propertyBuilder.add(location);
+            fileFormat = Optional.of((FileFormat)visit(ctx.tableFileFormat()));
+            if (fileFormat.get().isKuduTable() && location.isPresent()) {
+                throw new ParsingException("Unexpected location for kudu: " + location.get());
             }
         }
 
-        CreateTable createTable = new CreateTable(getLocation(ctx), tableName, tableElementList, isNotExist, propertyBuilder.build(), comment);
+        CreateTable createTable = new CreateTable(location(ctx), table.getName(), tableElementList, isNotExist, propertyBuilder.build(), comment, fileFormat, location);
         return createTable;
     }
 
@@ -154,7 +156,7 @@ class AstBuilder
     public Node visitKeyValueProperty(HiveParser.KeyValuePropertyContext ctx) {
         String key = ctx.StringLiteral(0).getText();
         String value = ctx.StringLiteral(1).getText();
-        return new Property(new Identifier(key.substring(1, value.length() - 1)), new StringLiteral(value.substring(1, value.length() - 1)));
+        return new Property(new Identifier(key.substring(1, key.length() - 1)), new StringLiteral(value.substring(1, value.length() - 1)));
     }
 
     @Override
@@ -166,7 +168,7 @@ class AstBuilder
     @Override
     public Node visitFileFormatAs(HiveParser.FileFormatAsContext ctx) {
         Identifier storedAs = (Identifier)visit(ctx.identifier());
-        return new FileFormat(getLocation(ctx), storedAs);
+        return new FileFormat(location(ctx), storedAs);
     }
 
     @Override
@@ -191,12 +193,12 @@ class AstBuilder
         if(ctx.KW_NOT() != null && ctx.KW_NULL() != null){
             nullable = false;
         }
-        List<Property> propertyList = new ArrayList<>();
+        List<Property> propertyList = ImmutableList.of();
         if(ctx.columnConstraint() != null){
             Property property = (Property)visit(ctx.columnConstraint());
-            propertyList.add(property);
+            propertyList = ImmutableList.of(property);
         }
-        ColumnDefinition columnDefinition = new ColumnDefinition(getLocation(ctx), (Identifier)visit(ctx.identifier()), dataType, nullable, propertyList, comment);
+        ColumnDefinition columnDefinition = new ColumnDefinition(location(ctx), (Identifier)visit(ctx.identifier()), dataType, nullable, propertyList, comment);
         return columnDefinition;
     }
 
@@ -215,7 +217,7 @@ class AstBuilder
         else {
             isPrimaryKey = new BooleanLiteral("false");
         }
-        Property property = new Property(new Identifier(getLocation(ctx), "primary_key", false), isPrimaryKey);
+        Property property = new Property(new Identifier(location(ctx), "primary_key", false), isPrimaryKey);
         return property;
     }
 
@@ -232,29 +234,27 @@ class AstBuilder
 
     @Override
     public Node visitPrimitiveType(HiveParser.PrimitiveTypeContext ctx) {
-        NodeLocation location = getLocation(ctx);
-        ImmutableList.Builder<DataTypeParameter> builder = ImmutableList.builder();
+        long location = location(ctx);
         if (ctx.KW_BIGINT() != null) {
             return new GenericDataType(location, new Identifier("BIGINT"), ImmutableList.of());
         }
         else if (ctx.KW_VARCHAR() != null) {
             TerminalNode length = ctx.Number(0);
             if (length != null) {
-                builder.add(new NumericParameter(location, length.getText()));
-
+                return new GenericDataType(location, new Identifier("VARCHAR"), ImmutableList.of(new NumericParameter(location, length.getText())));
             }
-            return new GenericDataType(location, new Identifier("VARCHAR"), builder.build());
+            return new GenericDataType(location, new Identifier("VARCHAR"), ImmutableList.of());
         }
         else if (ctx.KW_DECIMAL() != null) {
             TerminalNode precision = ctx.Number(0);
             TerminalNode scale = ctx.Number(1);
-            if (precision != null) {
-                builder.add(new NumericParameter(location, precision.getText()));
+            if (precision != null && scale != null) {
+                return new GenericDataType(location, new Identifier("DECIMAL"), ImmutableList.of(new NumericParameter(location, precision.getText()), new NumericParameter(location, scale.getText())));
             }
-            if (scale != null) {
-                builder.add(new NumericParameter(location, scale.getText()));
+            if (precision != null) {
+                return new GenericDataType(location, new Identifier("DECIMAL"), ImmutableList.of(new NumericParameter(location, precision.getText())));
             }
-            return new GenericDataType(location, new Identifier("DECIMAL"), builder.build());
+            return new GenericDataType(location, new Identifier("DECIMAL"), ImmutableList.of());
         }
         else {
             return null;
@@ -285,18 +285,251 @@ class AstBuilder
     public Node visitRefresh(HiveParser.RefreshContext ctx) {
         HiveParser.RefreshStatementContext refreshStatementContext = ctx.refreshStatement();
         Table table = (Table) visit(refreshStatementContext.tableName());
-        Refresh refresh = new Refresh(Optional.of(getLocation(ctx)), table);
+        Refresh refresh = new Refresh(location(ctx), table);
         return refresh;
     }
 
+    @Override
+    public Node visitInvalidateMetadata(HiveParser.InvalidateMetadataContext ctx) {
+        HiveParser.TableNameContext tableName = ctx.invalidateMetadataStatement().tableName();
+        if (tableName == null) {
+            return new InvalidateMetadata(location(ctx), Optional.empty());
+        }
+        return new InvalidateMetadata(location(ctx), Optional.of((Table) visit(tableName)));
+    }
+
+    @Override
+    public Node visitSetProperty(HiveParser.SetPropertyContext ctx) {
+        HiveParser.SetPropertyStatementContext setProperty = ctx.setPropertyStatement();
+        String value = setProperty.setPropertyValue() == null ? "" : getRawText(setProperty.setPropertyValue());
+        return new SetProperty(location(ctx), getRawText(setProperty.setPropertyKey()), value);
+    }
+
+    @Override
+    public Node visitSwitchDatabaseStatement(HiveParser.SwitchDatabaseStatementContext ctx) {
+        return new Use(location(ctx), Optional.empty(), (Identifier) visit(ctx.identifier()));
+    }
+
+    @Override
+    public Node visitDropTableStatement(HiveParser.DropTableStatementContext ctx) {
+        Table table = (Table) visit(ctx.tableName());
+        return new DropTable(location(ctx), table.getName(), ctx.ifExists() != null);
+    }
+
     @Override
     public Node visitTableName(HiveParser.TableNameContext ctx) {
-        return new Table(getLocation(ctx), QualifiedName.of(visit(ctx.identifier(), Identifier.class)));
+        return new Table(location(ctx), QualifiedName.of(visit(ctx.identifier(), Identifier.class)));
     }
 
     @Override
     public Node visitIdentifier(HiveParser.IdentifierContext ctx) {
-        return new Identifier(getLocation(ctx), ctx.getText(), false);
+        return new Identifier(location(ctx), ctx.getText(), false);
+    }
+
+    @Override
+    public Node visitSingleExpression(HiveParser.SingleExpressionContext ctx) {
+        return visit(ctx.expression());
+    }
+
+    @Override
+    public Node visitExpression(HiveParser.ExpressionContext ctx) {
+        if (ctx.precedenceOrOperator() != null) {
+            return visitLogicalExpression(ctx, LogicalExpression.Operator.OR);
+        }
+        if (ctx.precedenceAndOperator() != null) {
+            return visitLogicalExpression(ctx, LogicalExpression.Operator.AND);
+        }
+        if (ctx.atomExpression() != null) {
+            // the indexed accessors do not create a list of the children, as the list accessors do
+            if (ctx.LSQUARE(0) != null) {
+                throw unsupportedExpression(ctx);
+            }
+            Expression expression = (Expression) visit(ctx.atomExpression());
+            HiveParser.IdentifierContext field;
+            for (int i = 0; (field = ctx.identifier(i)) != null; i++) {
+                expression = new DereferenceExpression(location(field), expression, (Identifier) visit(field));
+            }
+            return expression;
+        }
+        if (ctx.precedenceNotOperator() != null) {
+            return new NotExpression(location(ctx), (Expression) visit(ctx.expression(0)));
+        }
+        if (ctx.precedenceEqualOperator() != null) {
+            return visitEqualOperator(ctx);
+        }
+        if (ctx.precedenceSimilarOperator() != null) {
+            return visitSimilarOperator(ctx);
+        }
+        if (ctx.precedenceSimilarExpressionAtom() != null) {
+            Expression predicate = visitInPredicate(ctx, ctx.precedenceSimilarExpressionAtom());
+            if (ctx.KW_NOT() != null) {
+                return new NotExpression(location(ctx), predicate);
+            }
+            return predicate;
+        }
+        if (ctx.LPAREN() != null) {
+            return visit(ctx.expression(0));
+        }
+        throw unsupportedExpression(ctx);
+    }
+
+    /**
+     * The parser matches a chain like {@code a OR b OR c} as a left-deep tree of binary contexts, one level per
+     * operator. The terms are collected with a loop, so that long generated chains don't overflow the stack.
+     */
+    private Expression visitLogicalExpression(HiveParser.ExpressionContext ctx, LogicalExpression.Operator operator) {
+        Deque<HiveParser.ExpressionContext> operands = new ArrayDeque<>();
+        HiveParser.ExpressionContext current = ctx;
+        while (isLogicalExpression(current, operator)) {
+            operands.push(current.expression(1));
+            current = current.expression(0);
+        }
+        operands.push(current);
+
+        ImmutableList.Builder<Expression> terms = ImmutableList.builderWithExpectedSize(operands.size());
+        for (HiveParser.ExpressionContext operand : operands) {
+            terms.add((Expression) visit(operand));
+        }
+        return new LogicalExpression(location(ctx), operator, terms.build());
+    }
+
+    private static boolean isLogicalExpression(HiveParser.ExpressionContext ctx, LogicalExpression.Operator operator) {
+        switch (operator) {
+            case AND:
+                return ctx.precedenceAndOperator() != null;
+            case OR:
+                return ctx.precedenceOrOperator() != null;
+        }
+        throw new IllegalArgumentException("Unsupported operator: " + operator);
+    }
+
+    private Expression visitEqualOperator(HiveParser.ExpressionContext ctx) {
+        HiveParser.PrecedenceEqualOperatorContext operator = ctx.precedenceEqualOperator();
+        Expression left = (Expression) visit(ctx.expression(0));
+        Expression right = (Expression) visit(ctx.expression(1));
+        if (operator.EQUAL() != null) {
+            return new ComparisonExpression(location(ctx), ComparisonExpression.Operator.EQUAL, left, right);
+        }
+        if (operator.NOTEQUAL() != null) {
+            return new ComparisonExpression(location(ctx), ComparisonExpression.Operator.NOT_EQUAL, left, right);
+        }
+        // <=> and IS NOT DISTINCT FROM
+        return new NotExpression(location(ctx), new ComparisonExpression(location(ctx), ComparisonExpression.Operator.IS_DISTINCT_FROM, left, right));
+    }
+
+    private Expression visitSimilarOperator(HiveParser.ExpressionContext ctx) {
+        HiveParser.PrecedenceSimilarOperatorContext operator = ctx.precedenceSimilarOperator();
+        ComparisonExpression.Operator comparison;
+        if (operator.LESSTHAN() != null) {
+            comparison = ComparisonExpression.Operator.LESS_THAN;
+        }
+        else if (operator.LESSTHANOREQUALTO() != null) {
+            comparison = ComparisonExpression.Operator.LESS_THAN_OR_EQUAL;
+        }
+        else if (operator.GREATERTHAN() != null) {
+            comparison = ComparisonExpression.Operator.GREATER_THAN;
+        }
+        else if (operator.GREATERTHANOREQUALTO() != null) {
+            comparison = ComparisonExpression.Operator.GREATER_THAN_OR_EQUAL;
+        }
+        else {
+            throw unsupportedExpression(ctx);
+        }
+        return new ComparisonExpression(location(ctx), comparison, (Expression) visit(ctx.expression(0)), (Expression) visit(ctx.expression(1)));
+    }
+
+    private Expression visitInPredicate(HiveParser.ExpressionContext ctx, HiveParser.PrecedenceSimilarExpressionAtomContext atom) {
+        if (atom.KW_IN() == null || atom.precedenceSimilarExpressionIn().expressionsInParenthesis() == null) {
+            throw unsupportedExpression(ctx);
+        }
+        HiveParser.ExpressionsInParenthesisContext list = atom.precedenceSimilarExpressionIn().expressionsInParenthesis();
+        Expression value = (Expression) visit(ctx.expression(0));
+        return new InPredicate(location(ctx), value, new InListExpression(location(list), visitExpressions(list)));
+    }
+
+    @Override
+    public Node visitAtomExpression(HiveParser.AtomExpressionContext ctx) {
+        if (ctx.constant() != null) {
+            return visit(ctx.constant());
+        }
+        if (ctx.tableOrColumn() != null) {
+            return visit(ctx.tableOrColumn().identifier());
+        }
+        if (ctx.expressionsInParenthesis() != null) {
+            List<Expression> expressions = visitExpressions(ctx.expressionsInParenthesis());
+            if (expressions.size() == 1) {
+                return expressions.get(0);
+            }
+        }
+        throw unsupportedExpression(ctx);
+    }
+
+    @Override
+    public Node visitConstant(HiveParser.ConstantContext ctx) {
+        if (ctx.StringLiteral() != null) {
+            String value = ctx.StringLiteral().getText();
+            return new StringLiteral(location(ctx), value.substring(1, value.length() - 1));
+        }
+        if (ctx.Number() != null) {
+            String value = ctx.Number().getText();
+            if (DIGITS.matchesAllOf(value)) {
+                return new LongLiteral(location(ctx), value);
+            }
+        }
+        if (ctx.booleanValue() != null) {
+            return new BooleanLiteral(location(ctx), ctx.booleanValue().getText());
+        }
+        throw unsupportedExpression(ctx);
+    }
+
+    private List<Expression> visitExpressions(HiveParser.ExpressionsInParenthesisContext ctx) {
+        HiveParser.ExpressionsNotInParenthesisContext expressions = ctx.expressionsNotInParenthesis();
+        if (expressions.expressionPart() == null) {
+            return ImmutableList.of((Expression) visit(expressions.expression()));
+        }
+        List<HiveParser.ExpressionContext> rest = expressions.expressionPart().expression();
+        ImmutableList.Builder<Expression> values = ImmutableList.builderWithExpectedSize(rest.size() + 1);
+        values.add((Expression) visit(expressions.expression()));
+        for (HiveParser.ExpressionContext value : rest) {
+            values.add((Expression) visit(value));
+        }
+        return values.build();
+    }
+
+    private static ParsingException unsupportedExpression(ParserRuleContext ctx) {
+        return new ParsingException("Unsupported expression", getLocation(ctx));
+    }
+
+    /**
+     * Returns the text of the input the context was parsed from, including whitespace and comments. The tokens
+     * of streams that cannot return a range of their input, such as an {@link org.antlr.v4.runtime.UnbufferedCharStream},
+     * are concatenated instead.
+     */
+    private static String getRawText(ParserRuleContext ctx)
+    {
+        Token start = ctx.getStart();
+        Token stop = ctx.getStop();
+        if (start.getInputStream() instanceof CaseFoldingCharStream) {
+            return start.getInputStream().getText(Interval.of(start.getStartIndex(), stop.getStopIndex()));
+        }
+        return ctx.getText();
+    }
+
+    private long location(ParserRuleContext parserRuleContext)
+    {
+        return location(parserRuleContext.getStart(), nodeLocations);
+    }
+
+    /**
+     * Returns the packed location of a node starting at {@code token}, or {@link NodeLocation#NONE} if node
+     * locations are disabled.
+     */
+    static long location(Token token, boolean nodeLocations)
+    {
+        if (!nodeLocations) {
+            return NodeLocation.NONE;
+        }
+        return NodeLocation.pack(token.getLine(), token.getCharPositionInLine() + 1);
     }
 
     public static NodeLocation getLocation(TerminalNode terminalNode)
@@ -319,17 +552,20 @@ class AstBuilder
 
     private <T> List<T> visit(List<? extends ParserRuleContext> contexts, Class<T> clazz)
     {
-        return contexts.stream()
-                .map(this::visit)
-                .map(clazz::cast)
-                .collect(toList());
+        // the nodes copy their children into immutable lists, which is free for an immutable list
+        ImmutableList.Builder<T> nodes = ImmutableList.builderWithExpectedSize(contexts.size());
+        for (ParserRuleContext context : contexts) {
+            nodes.add(clazz.cast(visit(context)));
+        }
+        return nodes.build();
     }
 
     private <T> List<T> visit(ParserRuleContext contexts, Class<T> clazz)
     {
-        return contexts.children.stream()
-                .map(this::visit)
-                .map(clazz::cast)
-                .collect(toList());
+        ImmutableList.Builder<T> nodes = ImmutableList.builderWithExpectedSize(contexts.getChildCount());
+        for (ParseTree child : contexts.children) {
+            nodes.add(clazz.cast(visit(child)));
+        }
+        return nodes.build();
     }
 }
\ No newline at end of file
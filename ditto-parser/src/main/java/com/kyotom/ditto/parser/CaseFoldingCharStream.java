@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link CharStream} that presents its input upper-cased to the lexer, while {@link #getText(Interval)}
+ * returns the original text. Unlike {@link CaseInsensitiveStream} it reads directly from the underlying
+ * buffer, without first copying the input into a code point array.
+ * <p>
+ * The stream is indexed by code unit: UTF-16 chars for {@link CharSequence} input, bytes for UTF-8 encoded
+ * {@link ByteBuffer} input. The Hive lexer only matches non-ASCII input inside quoted literals, quoted identifiers
+ * and comments, so the tokens are the same as with code point indexing, but character positions past a
+ * supplementary (UTF-16) or multi-byte (UTF-8) character are counted in code units.
+ */
+public abstract class CaseFoldingCharStream
+        implements CharStream
+{
+    private static final int[] ASCII_UPPER_CASE = new int[128];
+
+    static {
+        for (int i = 0; i < ASCII_UPPER_CASE.length; i++) {
+            ASCII_UPPER_CASE[i] = Character.toUpperCase(i);
+        }
+    }
+
+    private final String sourceName;
+    private final int size;
+    private int position;
+
+    private CaseFoldingCharStream(int size, String sourceName)
+    {
+        this.size = size;
+        this.sourceName = sourceName;
+    }
+
+    public static CaseFoldingCharStream fromString(String sql)
+    {
+        return fromCharSequence(sql, UNKNOWN_SOURCE_NAME);
+    }
+
+    /**
+     * Reads from the remaining content of {@code buffer}, which must not be modified while the stream is in use.
+     */
+    public static CaseFoldingCharStream fromCharBuffer(CharBuffer buffer, String sourceName)
+    {
+        return fromCharSequence(buffer.slice(), sourceName);
+    }
+
+    public static CaseFoldingCharStream fromCharSequence(CharSequence chars, String sourceName)
+    {
+        return new Utf16CharStream(requireNonNull(chars, "chars is null"), sourceName);
+    }
+
+    /**
+     * Reads UTF-8 encoded text from the remaining content of {@code buffer}, which must not be modified while the stream
+     * is in use. Bytes of multi-byte characters are presented to the lexer as is, and are not case-folded.
+     */
+    public static CaseFoldingCharStream fromUtf8(ByteBuffer buffer, String sourceName)
+    {
+        return new Utf8CharStream(requireNonNull(buffer, "buffer is null").slice(), sourceName);
+    }
+
+    protected abstract int codeUnit(int index);
+
+    @Override
+    public final int LA(int i)
+    {
+        int index;
+        if (i > 0) {
+            index = position + i - 1;
+        }
+        else if (i < 0) {
+            index = position + i;
+        }
+        else {
+            // undefined
+            return 0;
+        }
+
+        if (index < 0 || index >= size) {
+            return IntStream.EOF;
+        }
+
+        int unit = codeUnit(index);
+        if (unit < ASCII_UPPER_CASE.length) {
+            return ASCII_UPPER_CASE[unit];
+        }
+        return foldNonAscii(unit);
+    }
+
+    protected int foldNonAscii(int unit)
+    {
+        return unit;
+    }
+
+    @Override
+    public final void consume()
+    {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public final int mark()
+    {
+        return -1;
+    }
+
+    @Override
+    public final void release(int marker)
+    {
+    }
+
+    @Override
+    public final int index()
+    {
+        return position;
+    }
+
+    @Override
+    public final void seek(int index)
+    {
+        position = index;
+    }
+
+    @Override
+    public final int size()
+    {
+        return size;
+    }
+
+    @Override
+    public final String getSourceName()
+    {
+        return sourceName == null || sourceName.isEmpty() ? UNKNOWN_SOURCE_NAME : sourceName;
+    }
+
+    @Override
+    public final String getText(Interval interval)
+    {
+        int start = Math.min(interval.a, size);
+        int stop = Math.min(interval.b, size - 1);
+        if (stop < start) {
+            return "";
+        }
+        return getText(start, stop + 1);
+    }
+
+    protected abstract String getText(int start, int end);
+
+    @Override
+    public String toString()
+    {
+        return getText(0, size);
+    }
+
+    private static final class Utf16CharStream
+            extends CaseFoldingCharStream
+    {
+        private final CharSequence chars;
+
+        private Utf16CharStream(CharSequence chars, String sourceName)
+        {
+            super(chars.length(), sourceName);
+            this.chars = chars;
+        }
+
+        @Override
+        protected int codeUnit(int index)
+        {
+            return chars.charAt(index);
+        }
+
+        @Override
+        protected int foldNonAscii(int unit)
+        {
+            return Character.toUpperCase(unit);
+        }
+
+        @Override
+        protected String getText(int start, int end)
+        {
+            return chars.subSequence(start, end).toString();
+        }
+    }
+
+    private static final class Utf8CharStream
+            extends CaseFoldingCharStream
+    {
+        private final ByteBuffer bytes;
+
+        private Utf8CharStream(ByteBuffer bytes, String sourceName)
+        {
+            super(bytes.remaining(), sourceName);
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected int codeUnit(int index)
+        {
+            return bytes.get(index) & 0xFF;
+        }
+
+        @Override
+        protected String getText(int start, int end)
+        {
+            if (bytes.hasArray()) {
+                return new String(bytes.array(), bytes.arrayOffset() + start, end - start, UTF_8);
+            }
+            ByteBuffer range = bytes.duplicate();
+            range.position(start);
+            range.limit(end);
+            return UTF_8.decode(range).toString();
+        }
+    }
+}
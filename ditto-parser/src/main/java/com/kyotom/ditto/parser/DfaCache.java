@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Lexer and parser DFA caches, with the prediction context caches that deduplicate the contexts of their states.
+ * <p>
+ * The generated recognizers share static caches, which grow for as long as the process parses new kinds of input,
+ * and which ANTLR synchronizes on whenever a state or an edge is added. A cache owned by a {@link SqlParser} can
+ * be dropped when it grows too large, and a cache private to one thread is never contended. Such caches have
+ * to learn their states again; {@link #copy()} lets them start from the states learned by a warmed-up cache
+ * instead. A cache must not be copied while it is in use.
+ */
+final class DfaCache
+{
+    private static final DfaCache GENERATED = new DfaCache(HiveLexer._decisionToDFA, HiveParser._decisionToDFA, HiveLexer._sharedContextCache, HiveParser._sharedContextCache);
+
+    private final DFA[] lexerDfa;
+    private final DFA[] parserDfa;
+    private final PredictionContextCache lexerContextCache;
+    private final PredictionContextCache parserContextCache;
+
+    private DfaCache(DFA[] lexerDfa, DFA[] parserDfa, PredictionContextCache lexerContextCache, PredictionContextCache parserContextCache)
+    {
+        this.lexerDfa = lexerDfa;
+        this.parserDfa = parserDfa;
+        this.lexerContextCache = lexerContextCache;
+        this.parserContextCache = parserContextCache;
+    }
+
+    /**
+     * Returns the static caches used by the generated recognizers unless they are given another cache.
+     */
+    public static DfaCache generated()
+    {
+        return GENERATED;
+    }
+
+    public static DfaCache empty()
+    {
+        return new DfaCache(emptyDfa(HiveLexer._ATN), emptyDfa(HiveParser._ATN), new PredictionContextCache(), new PredictionContextCache());
+    }
+
+    /**
+     * Returns a cache holding a copy of the states of this cache. The copies share the immutable ATN
+     * configurations of the original states, but not their edges.
+     */
+    public DfaCache copy()
+    {
+        // the prediction context caches only deduplicate the contexts of new states, they need not be copied
+        return new DfaCache(copy(lexerDfa), copy(parserDfa), new PredictionContextCache(), new PredictionContextCache());
+    }
+
+    public void install(HiveLexer lexer, HiveParser parser)
+    {
+        lexer.setInterpreter(new LexerATNSimulator(lexer, HiveLexer._ATN, lexerDfa, lexerContextCache));
+        parser.setInterpreter(new ParserATNSimulator(parser, HiveParser._ATN, parserDfa, parserContextCache));
+    }
+
+    /**
+     * Returns the number of states of the cache. The count is approximate while the cache is in use by another thread.
+     */
+    public int getStateCount()
+    {
+        return stateCount(lexerDfa) + stateCount(parserDfa);
+    }
+
+    private static DFA[] emptyDfa(ATN atn)
+    {
+        DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+        for (int i = 0; i < dfa.length; i++) {
+            dfa[i] = new DFA(atn.getDecisionState(i), i);
+        }
+        return dfa;
+    }
+
+    private static DFA[] copy(DFA[] dfa)
+    {
+        DFA[] copy = new DFA[dfa.length];
+        for (int i = 0; i < dfa.length; i++) {
+            copy[i] = copy(dfa[i]);
+        }
+        return copy;
+    }
+
+    private static DFA copy(DFA dfa)
+    {
+        DFA copy = new DFA(dfa.atnStartState, dfa.decision);
+
+        Map<DFAState, DFAState> copies = new IdentityHashMap<>(dfa.states.size());
+        for (DFAState state : dfa.states.values()) {
+            DFAState stateCopy = new DFAState(state.configs);
+            stateCopy.stateNumber = state.stateNumber;
+            stateCopy.isAcceptState = state.isAcceptState;
+            stateCopy.prediction = state.prediction;
+            stateCopy.lexerActionExecutor = state.lexerActionExecutor;
+            stateCopy.requiresFullContext = state.requiresFullContext;
+            stateCopy.predicates = state.predicates;
+            copies.put(state, stateCopy);
+            copy.states.put(stateCopy, stateCopy);
+        }
+        for (Map.Entry<DFAState, DFAState> entry : copies.entrySet()) {
+            entry.getValue().edges = copyEdges(entry.getKey().edges, copies);
+        }
+
+        DFAState s0 = dfa.s0;
+        if (s0 != null) {
+            if (dfa.isPrecedenceDfa()) {
+                // the start state of a precedence DFA is not in the state set, its edges lead to the start state of each precedence
+                copy.s0.edges = copyEdges(s0.edges, copies);
+            }
+            else {
+                copy.s0 = copies.getOrDefault(s0, s0);
+            }
+        }
+        return copy;
+    }
+
+    private static DFAState[] copyEdges(DFAState[] edges, Map<DFAState, DFAState> copies)
+    {
+        if (edges == null) {
+            return null;
+        }
+        DFAState[] copy = new DFAState[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            DFAState target = edges[i];
+            // targets outside the state set, such as the shared error state, are immutable
+            copy[i] = target == null ? null : copies.getOrDefault(target, target);
+        }
+        return copy;
+    }
+
+    private static int stateCount(DFA[] dfa)
+    {
+        int count = 0;
+        for (DFA decision : dfa) {
+            count += decision.states.size();
+        }
+        return count;
+    }
+}
@@ -13,16 +13,19 @@
  */
 package com.kyotom.ditto.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.*;
 import org.antlr.v4.runtime.misc.IntervalSet;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-import static com.google.common.base.MoreObjects.firstNonNull;
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.logging.Level.SEVERE;
 import static org.antlr.v4.runtime.atn.ATNState.RULE_START;
@@ -32,20 +35,37 @@ class ErrorHandler
 {
     private static final Logger LOG = Logger.getLogger(ErrorHandler.class.getName());
 
+    public static final int DEFAULT_MAX_EXPLORATION_STEPS = 100_000;
+
+    // analyses over more tokens than this are not memoized
+    private static final int MAX_MEMOIZED_TOKENS = 1024;
+    private static final int MAX_MEMOIZED_RESULTS = 1024;
+
     private final Map<Integer, String> specialRules;
     private final Map<Integer, String> specialTokens;
     private final Set<Integer> ignoredRules;
+    private final int maxExplorationSteps;
+    private final Cache<AnalysisKey, Result> results = CacheBuilder.newBuilder()
+            .maximumSize(MAX_MEMOIZED_RESULTS)
+            .build();
 
-    private ErrorHandler(Map<Integer, String> specialRules, Map<Integer, String> specialTokens, Set<Integer> ignoredRules)
+    private ErrorHandler(Map<Integer, String> specialRules, Map<Integer, String> specialTokens, Set<Integer> ignoredRules, int maxExplorationSteps)
     {
         this.specialRules = new HashMap<>(specialRules);
         this.specialTokens = specialTokens;
         this.ignoredRules = new HashSet<>(ignoredRules);
+        this.maxExplorationSteps = maxExplorationSteps;
     }
 
+    /**
+     * Throws a {@link ParsingException} whose "Expecting: ..." message is computed only when it is first read.
+     * The tokens the analysis needs are captured here, so the parser and its token stream can be reused
+     * for other input before the message is read.
+     */
     @Override
     public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String message, RecognitionException e)
     {
+        Supplier<String> errorMessage;
         try {
             Parser parser = (Parser) recognizer;
 
@@ -70,21 +90,177 @@ class ErrorHandler
                 context = parser.getContext();
             }
 
-            Analyzer analyzer = new Analyzer(parser, specialRules, specialTokens, ignoredRules);
-            Result result = analyzer.process(currentState, currentToken.getTokenIndex(), context);
+            Input input = Input.capture(parser.getTokenStream(), currentToken.getTokenIndex());
+            AnalysisKey key = new AnalysisKey(currentState.stateNumber, getInvokingStates(context), input.getTokenTypes());
+            Vocabulary vocabulary = parser.getVocabulary();
+
+            errorMessage = () -> {
+                try {
+                    Result result = analyze(atn, vocabulary, key);
+                    if (result.getErrorTokenIndex() < 0) {
+                        // exploration budget ran out before reaching any token
+                        return message;
+                    }
 
-            // pick the candidate tokens associated largest token index processed (i.e., the path that consumed the most input)
-            String expected = result.getExpected().stream()
-                    .sorted()
-                    .collect(Collectors.joining(", "));
+                    // pick the candidate tokens associated largest token index processed (i.e., the path that consumed the most input)
+                    String expected = result.getExpected().stream()
+                            .sorted()
+                            .collect(Collectors.joining(", "));
+                    if (result.isTruncated()) {
+                        expected += ", ...";
+                    }
 
-            message = format("mismatched input '%s'. Expecting: %s", parser.getTokenStream().get(result.getErrorTokenIndex()).getText(), expected);
+                    return format("mismatched input '%s'. Expecting: %s", input.getToken(result.getErrorTokenIndex()).getText(), expected);
+                }
+                catch (Exception exception) {
+                    LOG.log(SEVERE, "Unexpected failure when handling parsing error. This is likely a bug in the implementation", exception);
+                    return message;
+                }
+            };
         }
         catch (Exception exception) {
             LOG.log(SEVERE, "Unexpected failure when handling parsing error. This is likely a bug in the implementation", exception);
+            errorMessage = () -> message;
+        }
+
+        throw new ParsingException(errorMessage, e, line, charPositionInLine + 1);
+    }
+
+    private Result analyze(ATN atn, Vocabulary vocabulary, AnalysisKey key)
+    {
+        if (key.getTokenTypes().length > MAX_MEMOIZED_TOKENS) {
+            return new Analyzer(atn, vocabulary, specialRules, specialTokens, ignoredRules, maxExplorationSteps, key.getTokenTypes())
+                    .process(atn.states.get(key.getState()), key.getInvokingStates());
+        }
+
+        Result result = results.getIfPresent(key);
+        if (result == null) {
+            result = new Analyzer(atn, vocabulary, specialRules, specialTokens, ignoredRules, maxExplorationSteps, key.getTokenTypes())
+                    .process(atn.states.get(key.getState()), key.getInvokingStates());
+            results.put(key, result);
+        }
+        return result;
+    }
+
+    private static int[] getInvokingStates(RuleContext context)
+    {
+        int depth = 0;
+        for (RuleContext current = context; current != null && current.invokingState != -1; current = current.parent) {
+            depth++;
+        }
+
+        int[] invokingStates = new int[depth];
+        RuleContext current = context;
+        for (int i = 0; i < depth; i++) {
+            invokingStates[i] = current.invokingState;
+            current = current.parent;
+        }
+        return invokingStates;
+    }
+
+    /**
+     * The non-hidden tokens from the error position to the end of what the parser has buffered.
+     */
+    private static class Input
+    {
+        private final Token[] tokens;
+        private final int[] tokenTypes;
+
+        private Input(Token[] tokens, int[] tokenTypes)
+        {
+            this.tokens = tokens;
+            this.tokenTypes = tokenTypes;
         }
 
-        throw new ParsingException(message, e, line, charPositionInLine + 1);
+        public static Input capture(TokenStream stream, int startIndex)
+        {
+            // Surprisingly, TokenStream (i.e. BufferedTokenStream) may not have loaded all the tokens from the
+            // underlying stream. TokenStream.get() does not force tokens to be buffered -- it just returns what's
+            // in the current buffer, or fail with an IndexOutOfBoundsError. Since Antlr decided the error occurred
+            // within the current set of buffered tokens, capture up to the end of the buffer.
+            int size = stream.size();
+            int count = 0;
+            for (int i = startIndex; i < size; i++) {
+                if (stream.get(i).getChannel() != Token.HIDDEN_CHANNEL) {
+                    count++;
+                }
+            }
+
+            Token[] tokens = new Token[count];
+            int[] tokenTypes = new int[count];
+            int position = 0;
+            for (int i = startIndex; i < size; i++) {
+                Token token = stream.get(i);
+                if (token.getChannel() != Token.HIDDEN_CHANNEL) {
+                    tokens[position] = token;
+                    tokenTypes[position] = token.getType();
+                    position++;
+                }
+            }
+            return new Input(tokens, tokenTypes);
+        }
+
+        public Token getToken(int index)
+        {
+            return tokens[index];
+        }
+
+        public int[] getTokenTypes()
+        {
+            return tokenTypes;
+        }
+    }
+
+    private static class AnalysisKey
+    {
+        private final int state;
+        private final int[] invokingStates;
+        private final int[] tokenTypes;
+        private final int hashCode;
+
+        public AnalysisKey(int state, int[] invokingStates, int[] tokenTypes)
+        {
+            this.state = state;
+            this.invokingStates = invokingStates;
+            this.tokenTypes = tokenTypes;
+            this.hashCode = 31 * (31 * state + Arrays.hashCode(invokingStates)) + Arrays.hashCode(tokenTypes);
+        }
+
+        public int getState()
+        {
+            return state;
+        }
+
+        public int[] getInvokingStates()
+        {
+            return invokingStates;
+        }
+
+        public int[] getTokenTypes()
+        {
+            return tokenTypes;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            AnalysisKey that = (AnalysisKey) o;
+            return state == that.state &&
+                    Arrays.equals(invokingStates, that.invokingStates) &&
+                    Arrays.equals(tokenTypes, that.tokenTypes);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
     }
 
     private static class ParsingState
@@ -92,14 +268,12 @@ class ErrorHandler
         public final ATNState state;
         public final int tokenIndex;
         public final boolean suppressed;
-        public final Parser parser;
 
-        public ParsingState(ATNState state, int tokenIndex, boolean suppressed, Parser parser)
+        public ParsingState(ATNState state, int tokenIndex, boolean suppressed)
         {
             this.state = state;
             this.tokenIndex = tokenIndex;
             this.suppressed = suppressed;
-            this.parser = parser;
         }
 
         @Override
@@ -125,58 +299,51 @@ class ErrorHandler
         @Override
         public String toString()
         {
-            Token token = parser.getTokenStream().get(tokenIndex);
-
-            String text = firstNonNull(token.getText(), "?");
-            if (text != null) {
-                text = text.replace("\\", "\\\\");
-                text = text.replace("\n", "\\n");
-                text = text.replace("\r", "\\r");
-                text = text.replace("\t", "\\t");
-            }
-
             return format(
-                    "%s%s:%s @ %s:<%s>:%s",
+                    "%s%s:%s @ %s",
                     suppressed ? "-" : "+",
-                    parser.getRuleNames()[state.ruleIndex],
+                    HiveParser.ruleNames[state.ruleIndex],
                     state.stateNumber,
-                    tokenIndex,
-                    parser.getVocabulary().getSymbolicName(token.getType()),
-                    text);
+                    tokenIndex);
         }
     }
 
     private static class Analyzer
     {
-        private final Parser parser;
         private final ATN atn;
         private final Vocabulary vocabulary;
         private final Map<Integer, String> specialRules;
         private final Map<Integer, String> specialTokens;
         private final Set<Integer> ignoredRules;
-        private final TokenStream stream;
+        private final int maxExplorationSteps;
+        private final int[] tokenTypes;
 
         private int furthestTokenIndex = -1;
         private final Set<String> candidates = new HashSet<>();
+        private int explorationSteps;
+        private boolean truncated;
 
         private final Map<ParsingState, Set<Integer>> memo = new HashMap<>();
 
         public Analyzer(
-                Parser parser,
+                ATN atn,
+                Vocabulary vocabulary,
                 Map<Integer, String> specialRules,
                 Map<Integer, String> specialTokens,
-                Set<Integer> ignoredRules)
+                Set<Integer> ignoredRules,
+                int maxExplorationSteps,
+                int[] tokenTypes)
         {
-            this.parser = parser;
-            this.stream = parser.getTokenStream();
-            this.atn = parser.getATN();
-            this.vocabulary = parser.getVocabulary();
+            this.atn = atn;
+            this.vocabulary = vocabulary;
             this.specialRules = specialRules;
             this.specialTokens = specialTokens;
             this.ignoredRules = ignoredRules;
+            this.maxExplorationSteps = maxExplorationSteps;
+            this.tokenTypes = tokenTypes;
         }
 
-        public Result process(ATNState currentState, int tokenIndex, RuleContext context)
+        public Result process(ATNState currentState, int[] invokingStates)
         {
             RuleStartState startState = atn.ruleToStartState[currentState.ruleIndex];
 
@@ -188,18 +355,17 @@ class ErrorHandler
                 currentState = startState;
             }
 
-            Set<Integer> endTokens = process(new ParsingState(currentState, tokenIndex, false, parser), 0);
+            Set<Integer> endTokens = process(new ParsingState(currentState, 0, false), 0);
             Set<Integer> nextTokens = new HashSet<>();
-            while (!endTokens.isEmpty() && context.invokingState != -1) {
+            for (int i = 0; i < invokingStates.length && !endTokens.isEmpty() && !truncated; i++) {
                 for (int endToken : endTokens) {
-                    ATNState nextState = ((RuleTransition) atn.states.get(context.invokingState).transition(0)).followState;
-                    nextTokens.addAll(process(new ParsingState(nextState, endToken, false, parser), 0));
+                    ATNState nextState = ((RuleTransition) atn.states.get(invokingStates[i]).transition(0)).followState;
+                    nextTokens.addAll(process(new ParsingState(nextState, endToken, false), 0));
                 }
-                context = context.parent;
                 endTokens = nextTokens;
             }
 
-            return new Result(furthestTokenIndex, candidates);
+            return new Result(furthestTokenIndex, ImmutableSet.copyOf(candidates), truncated);
         }
 
         private boolean isReachable(ATNState target, RuleStartState from)
@@ -241,17 +407,19 @@ class ErrorHandler
             activeStates.add(start);
 
             while (!activeStates.isEmpty()) {
+                if (explorationSteps++ >= maxExplorationSteps) {
+                    // give up on pathological inputs, and report what has been found so far
+                    truncated = true;
+                    return endTokens.build();
+                }
+
                 ParsingState current = activeStates.pop();
 
                 ATNState state = current.state;
                 int tokenIndex = current.tokenIndex;
                 boolean suppressed = current.suppressed;
 
-                while (stream.get(tokenIndex).getChannel() == Token.HIDDEN_CHANNEL) {
-                    // Ignore whitespace
-                    tokenIndex++;
-                }
-                int currentToken = stream.get(tokenIndex).getType();
+                int currentToken = tokenTypes[tokenIndex];
 
                 if (state.getStateType() == RULE_START) {
                     int rule = state.ruleIndex;
@@ -278,17 +446,17 @@ class ErrorHandler
 
                     if (transition instanceof RuleTransition) {
                         RuleTransition ruleTransition = (RuleTransition) transition;
-                        for (int endToken : process(new ParsingState(ruleTransition.target, tokenIndex, suppressed, parser), ruleTransition.precedence)) {
-                            activeStates.push(new ParsingState(ruleTransition.followState, endToken, suppressed, parser));
+                        for (int endToken : process(new ParsingState(ruleTransition.target, tokenIndex, suppressed), ruleTransition.precedence)) {
+                            activeStates.push(new ParsingState(ruleTransition.followState, endToken, suppressed));
                         }
                     }
                     else if (transition instanceof PrecedencePredicateTransition) {
                         if (precedence < ((PrecedencePredicateTransition) transition).precedence) {
-                            activeStates.push(new ParsingState(transition.target, tokenIndex, suppressed, parser));
+                            activeStates.push(new ParsingState(transition.target, tokenIndex, suppressed));
                         }
                     }
                     else if (transition.isEpsilon()) {
-                        activeStates.push(new ParsingState(transition.target, tokenIndex, suppressed, parser));
+                        activeStates.push(new ParsingState(transition.target, tokenIndex, suppressed));
                     }
                     else if (transition instanceof WildcardTransition) {
                         throw new UnsupportedOperationException("not yet implemented: wildcard transition");
@@ -300,12 +468,9 @@ class ErrorHandler
                             labels = labels.complement(IntervalSet.of(Token.MIN_USER_TOKEN_TYPE, atn.maxTokenType));
                         }
 
-                        // Surprisingly, TokenStream (i.e. BufferedTokenStream) may not have loaded all the tokens from the
-                        // underlying stream. TokenStream.get() does not force tokens to be buffered -- it just returns what's
-                        // in the current buffer, or fail with an IndexOutOfBoundsError. Since Antlr decided the error occurred
-                        // within the current set of buffered tokens, stop when we reach the end of the buffer.
-                        if (labels.contains(currentToken) && tokenIndex < stream.size() - 1) {
-                            activeStates.push(new ParsingState(transition.target, tokenIndex + 1, false, parser));
+                        // The captured tokens end where the parser's buffer ended, stop when we reach the end of the buffer.
+                        if (labels.contains(currentToken) && tokenIndex < tokenTypes.length - 1) {
+                            activeStates.push(new ParsingState(transition.target, tokenIndex + 1, false));
                         }
                         else {
                             if (!suppressed) {
@@ -365,6 +530,7 @@ class ErrorHandler
         private final Map<Integer, String> specialRules = new HashMap<>();
         private final Map<Integer, String> specialTokens = new HashMap<>();
         private final Set<Integer> ignoredRules = new HashSet<>();
+        private int maxExplorationSteps = DEFAULT_MAX_EXPLORATION_STEPS;
 
         public Builder specialRule(int ruleId, String name)
         {
@@ -384,9 +550,19 @@ class ErrorHandler
             return this;
         }
 
+        /**
+         * Limits the number of ATN states visited when computing the expected tokens of one error.
+         */
+        public Builder maxExplorationSteps(int maxExplorationSteps)
+        {
+            checkArgument(maxExplorationSteps > 0, "maxExplorationSteps must be positive");
+            this.maxExplorationSteps = maxExplorationSteps;
+            return this;
+        }
+
         public ErrorHandler build()
         {
-            return new ErrorHandler(specialRules, specialTokens, ignoredRules);
+            return new ErrorHandler(specialRules, specialTokens, ignoredRules, maxExplorationSteps);
         }
     }
 
@@ -394,11 +570,13 @@ class ErrorHandler
     {
         private final int errorTokenIndex;
         private final Set<String> expected;
+        private final boolean truncated;
 
-        public Result(int errorTokenIndex, Set<String> expected)
+        public Result(int errorTokenIndex, Set<String> expected, boolean truncated)
         {
             this.errorTokenIndex = errorTokenIndex;
             this.expected = expected;
+            this.truncated = truncated;
         }
 
         public int getErrorTokenIndex()
@@ -410,5 +588,10 @@ class ErrorHandler
         {
             return expected;
         }
+
+        public boolean isTruncated()
+        {
+            return truncated;
+        }
     }
 }
@@ -15,11 +15,21 @@ package com.kyotom.ditto.parser;
 
 import com.kyotom.ditto.parser.tree.AstVisitor;
 import com.kyotom.ditto.parser.tree.BooleanLiteral;
+import com.kyotom.ditto.parser.tree.ComparisonExpression;
+import com.kyotom.ditto.parser.tree.DereferenceExpression;
 import com.kyotom.ditto.parser.tree.Expression;
+import com.kyotom.ditto.parser.tree.Identifier;
+import com.kyotom.ditto.parser.tree.InListExpression;
+import com.kyotom.ditto.parser.tree.InPredicate;
+import com.kyotom.ditto.parser.tree.LogicalExpression;
+import com.kyotom.ditto.parser.tree.LongLiteral;
+import com.kyotom.ditto.parser.tree.NotExpression;
+import com.kyotom.ditto.parser.tree.Row;
 import com.kyotom.ditto.parser.tree.StringLiteral;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.List;
 import java.util.Locale;
 
 public final class ExpressionFormatter
@@ -52,5 +62,74 @@ public final class ExpressionFormatter
         public String visitStringLiteral(StringLiteral node, Void context) {
             return node.getValue();
         }
+
+        @Override
+        public String visitLongLiteral(LongLiteral node, Void context)
+        {
+            return Long.toString(node.getValue());
+        }
+
+        @Override
+        public String visitIdentifier(Identifier node, Void context)
+        {
+            if (!node.isDelimited()) {
+                return node.getValue();
+            }
+            return formatIdentifier(node.getValue());
+        }
+
+        @Override
+        public String visitDereferenceExpression(DereferenceExpression node, Void context)
+        {
+            return process(node.getBase(), context) + "." + process(node.getField(), context);
+        }
+
+        @Override
+        public String visitNotExpression(NotExpression node, Void context)
+        {
+            return "(NOT " + process(node.getValue(), context) + ")";
+        }
+
+        @Override
+        public String visitComparisonExpression(ComparisonExpression node, Void context)
+        {
+            return "(" + process(node.getLeft(), context) + " " + node.getOperator().getValue() + " " + process(node.getRight(), context) + ")";
+        }
+
+        @Override
+        public String visitLogicalExpression(LogicalExpression node, Void context)
+        {
+            return "(" + joinExpressions(node.getTerms(), " " + node.getOperator() + " ") + ")";
+        }
+
+        @Override
+        public String visitInPredicate(InPredicate node, Void context)
+        {
+            return "(" + process(node.getValue(), context) + " IN " + process(node.getValueList(), context) + ")";
+        }
+
+        @Override
+        public String visitInListExpression(InListExpression node, Void context)
+        {
+            return "(" + joinExpressions(node.getValues(), ", ") + ")";
+        }
+
+        @Override
+        public String visitRow(Row node, Void context)
+        {
+            return "ROW (" + joinExpressions(node.getItems(), ", ") + ")";
+        }
+
+        private String joinExpressions(List<Expression> expressions, String separator)
+        {
+            StringBuilder builder = new StringBuilder();
+            for (Expression expression : expressions) {
+                if (builder.length() > 0) {
+                    builder.append(separator);
+                }
+                builder.append(process(expression, null));
+            }
+            return builder.toString();
+        }
     }
 }
@@ -4,16 +4,23 @@ import com.google.common.collect.ImmutableList;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.kyotom.ditto.client.ClientModule;
-import com.kyotom.ditto.parser.bridging.Bridging;
-import com.kyotom.ditto.parser.tree.Statement;
+import com.kyotom.ditto.client.ParserConfig;
 import io.airlift.bootstrap.Bootstrap;
-import io.trino.sql.SqlFormatter;
+import org.antlr.v4.runtime.Token;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Entry point of the command line interface, which translates with one {@link SqlTranslator} set up by
+ * {@link #init()}. Applications that embed the translation can create a {@link SqlTranslator} instead.
+ */
 public class Main {
 
     private static boolean inited;
-    private static SqlParser sqlParser;
-    private static Bridging bridging;
+    private static SqlTranslator translator;
+    private static ParserConfig parserConfig;
 
     public static void main(String[] args) {
         init();
@@ -21,11 +28,29 @@ public class Main {
     }
 
     public static String transformSingle(String sql){
-        SqlParser sqlParser = getSqlParser();
-        Statement statement = sqlParser.createStatement(sql);
-        io.trino.sql.tree.Node node = bridging.process(statement);
-        String formatSql = SqlFormatter.formatSql(node);
-        return formatSql;
+        return getTranslator().translate(sql);
+    }
+
+    /**
+     * Translates a statement from the tokens it was split from, without lexing it again.
+     */
+    public static String transformSingle(List<? extends Token> tokens){
+        StringBuilder out = new StringBuilder();
+        try {
+            transformSingle(tokens, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Translates a statement from the tokens it was split from, and writes it to {@code out} without building the
+     * output as a {@code String}.
+     */
+    public static void transformSingle(List<? extends Token> tokens, Appendable out) throws IOException{
+        getTranslator().translate(tokens, out);
     }
 
     public static void init(){
@@ -36,17 +61,41 @@ public class Main {
 
         Bootstrap app = new Bootstrap(modules.build());
         Injector injector = app.strictConfig().doNotInitializeLogging().initialize();
-        sqlParser = injector.getInstance(SqlParser.class);
-        bridging = injector.getInstance(Bridging.class);
+        translator = injector.getInstance(SqlTranslator.class);
+
+        parserConfig = injector.getInstance(ParserConfig.class);
+        ParserWarmup.warmUp(translator.getSqlParser(), parserConfig);
         inited = true;
     }
 
+    public static SqlTranslator getTranslator(){
+        if (inited) {
+            return translator;
+        }
+        else {
+            throw new RuntimeException("You need to init before get translator");
+        }
+    }
+
+    /**
+     * Closes the translator set up by {@link #init()}, which releases its {@link TranslationStore}.
+     */
+    public static void close() throws IOException{
+        if (inited) {
+            translator.close();
+        }
+    }
+
     public static SqlParser getSqlParser(){
+        return getTranslator().getSqlParser();
+    }
+
+    public static ParserConfig getParserConfig(){
         if (inited) {
-            return sqlParser;
+            return parserConfig;
         }
         else {
-            throw new RuntimeException("You need to init before get sql parser");
+            throw new RuntimeException("You need to init before get parser config");
         }
     }
 }
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.kyotom.ditto.parser.tree.Statement;
+
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * One item of {@link SqlParser#streamStatements}: the text of a statement, and either the parsed statement
+ * or the error that prevented parsing it.
+ */
+public final class ParsedStatement
+{
+    private final String sql;
+    private final Optional<Statement> statement;
+    private final Optional<ParsingException> error;
+
+    private ParsedStatement(String sql, Optional<Statement> statement, Optional<ParsingException> error)
+    {
+        this.sql = requireNonNull(sql, "sql is null");
+        this.statement = requireNonNull(statement, "statement is null");
+        this.error = requireNonNull(error, "error is null");
+        checkArgument(statement.isPresent() != error.isPresent(), "exactly one of statement and error must be present");
+    }
+
+    public static ParsedStatement parsed(String sql, Statement statement)
+    {
+        return new ParsedStatement(sql, Optional.of(statement), Optional.empty());
+    }
+
+    public static ParsedStatement failed(String sql, ParsingException error)
+    {
+        return new ParsedStatement(sql, Optional.empty(), Optional.of(error));
+    }
+
+    public String getSql()
+    {
+        return sql;
+    }
+
+    public Optional<Statement> getStatement()
+    {
+        return statement;
+    }
+
+    public Optional<ParsingException> getError()
+    {
+        return error;
+    }
+
+    public boolean isFailed()
+    {
+        return error.isPresent();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("sql", sql)
+                .add("statement", statement.orElse(null))
+                .add("error", error.map(ParsingException::getMessage).orElse(null))
+                .omitNullValues()
+                .toString();
+    }
+}
@@ -11,5 +11,6 @@ public class ParserModule implements Module {
         binder.bind(ParsingOptions.class).in(Scopes.SINGLETON);
         binder.bind(SqlParser.class).in(Scopes.SINGLETON);
         binder.bind(Bridging.class).in(Scopes.SINGLETON);
+        binder.bind(SqlTranslator.class).in(Scopes.SINGLETON);
     }
 }
@@ -0,0 +1,262 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.ImmutableMap;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * SLL/LL prediction mode counters and timers of a {@link SqlParser}, broken down by statement kind.
+ * The kind of a statement is derived from its leading keywords, e.g. {@code CREATE TABLE}, {@code REFRESH}
+ * or {@code SELECT}. Also reports the size of the DFA caches of the parser, and how often they were reset.
+ */
+public class ParserStats
+{
+    // statements of a kind that skip the SLL stage still try it once every this many parses,
+    // so that a kind can return to the fast path when its inputs change
+    private static final int SLL_PROBE_INTERVAL = 100;
+
+    // the stats by kind name, which are shared by the token types with the same name, e.g. all non-keywords
+    private final ConcurrentMap<String, StatementKindStats> statementKinds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, StatementKindStats> statementKindsByTokenTypes = new ConcurrentHashMap<>();
+    private final LongSupplier dfaStates;
+    private final LongAdder dfaCacheResets = new LongAdder();
+
+    ParserStats(LongSupplier dfaStates)
+    {
+        this.dfaStates = requireNonNull(dfaStates, "dfaStates is null");
+    }
+
+    /**
+     * Returns the stats of the kind of statement at the start of the given token stream.
+     */
+    StatementKindStats getStatementKindStats(TokenStream tokens)
+    {
+        int first = tokens.LA(1);
+        int second = Token.INVALID_TYPE;
+        if (isCompoundStatement(first)) {
+            int position = 2;
+            // CREATE [TEMPORARY] [EXTERNAL] TABLE is still a CREATE TABLE
+            while (first == HiveLexer.KW_CREATE && (tokens.LA(position) == HiveLexer.KW_TEMPORARY || tokens.LA(position) == HiveLexer.KW_EXTERNAL)) {
+                position++;
+            }
+            second = tokens.LA(position);
+        }
+
+        int key = (first << 16) | (second & 0xFFFF);
+        StatementKindStats stats = statementKindsByTokenTypes.get(key);
+        if (stats == null) {
+            StatementKindStats kindStats = statementKinds.computeIfAbsent(kindName(first, second), StatementKindStats::new);
+            stats = statementKindsByTokenTypes.computeIfAbsent(key, ignored -> kindStats);
+        }
+        return stats;
+    }
+
+    public Map<String, StatementKindStats> getStatementKinds()
+    {
+        return ImmutableMap.copyOf(statementKinds);
+    }
+
+    public long getSllAttempts()
+    {
+        return statementKinds.values().stream().mapToLong(StatementKindStats::getSllAttempts).sum();
+    }
+
+    public long getSllSuccesses()
+    {
+        return statementKinds.values().stream().mapToLong(StatementKindStats::getSllSuccesses).sum();
+    }
+
+    public long getLlFallbacks()
+    {
+        return statementKinds.values().stream().mapToLong(StatementKindStats::getLlFallbacks).sum();
+    }
+
+    public long getLlParses()
+    {
+        return statementKinds.values().stream().mapToLong(StatementKindStats::getLlParses).sum();
+    }
+
+    /**
+     * Number of states of the lexer and parser DFA caches in use.
+     */
+    public long getDfaStates()
+    {
+        return dfaStates.getAsLong();
+    }
+
+    /**
+     * Number of DFA caches that were reset for exceeding their size limit.
+     */
+    public long getDfaCacheResets()
+    {
+        return dfaCacheResets.sum();
+    }
+
+    void recordDfaCacheReset()
+    {
+        dfaCacheResets.increment();
+    }
+
+    private static boolean isCompoundStatement(int tokenType)
+    {
+        switch (tokenType) {
+            case HiveLexer.KW_CREATE:
+            case HiveLexer.KW_DROP:
+            case HiveLexer.KW_ALTER:
+            case HiveLexer.KW_SHOW:
+            case HiveLexer.KW_INSERT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String kindName(int first, int second)
+    {
+        String name = keyword(first);
+        if (second != Token.INVALID_TYPE) {
+            name += " " + keyword(second);
+        }
+        return name;
+    }
+
+    private static String keyword(int tokenType)
+    {
+        if (tokenType == Token.EOF) {
+            return "<EOF>";
+        }
+        String literal = HiveLexer.VOCABULARY.getLiteralName(tokenType);
+        if (literal == null || !literal.startsWith("'") || !Character.isLetter(literal.charAt(1))) {
+            return "OTHER";
+        }
+        return literal.substring(1, literal.length() - 1).toUpperCase(ENGLISH);
+    }
+
+    public static class StatementKindStats
+    {
+        private final String kind;
+        private final LongAdder sllAttempts = new LongAdder();
+        private final LongAdder sllSuccesses = new LongAdder();
+        private final LongAdder llFallbacks = new LongAdder();
+        private final LongAdder llParses = new LongAdder();
+        private final LongAdder sllTimeNanos = new LongAdder();
+        private final LongAdder llTimeNanos = new LongAdder();
+        private final AtomicLong sllSkips = new AtomicLong();
+
+        private StatementKindStats(String kind)
+        {
+            this.kind = kind;
+        }
+
+        public String getKind()
+        {
+            return kind;
+        }
+
+        public long getSllAttempts()
+        {
+            return sllAttempts.sum();
+        }
+
+        public long getSllSuccesses()
+        {
+            return sllSuccesses.sum();
+        }
+
+        /**
+         * Number of SLL attempts that failed and were re-parsed in LL mode.
+         */
+        public long getLlFallbacks()
+        {
+            return llFallbacks.sum();
+        }
+
+        /**
+         * Number of LL parses, both fallbacks and parses that skipped the SLL stage.
+         */
+        public long getLlParses()
+        {
+            return llParses.sum();
+        }
+
+        public long getSllTimeNanos()
+        {
+            return sllTimeNanos.sum();
+        }
+
+        public long getLlTimeNanos()
+        {
+            return llTimeNanos.sum();
+        }
+
+        public double getFallbackRate()
+        {
+            long attempts = getSllAttempts();
+            return attempts == 0 ? 0 : (double) getLlFallbacks() / attempts;
+        }
+
+        boolean shouldTrySll(double fallbackThreshold, int minSamples)
+        {
+            if (getSllAttempts() < minSamples || getFallbackRate() < fallbackThreshold) {
+                return true;
+            }
+            return sllSkips.incrementAndGet() % SLL_PROBE_INTERVAL == 0;
+        }
+
+        void recordSll(boolean success, long nanos)
+        {
+            sllAttempts.increment();
+            sllTimeNanos.add(nanos);
+            if (success) {
+                sllSuccesses.increment();
+            }
+            else {
+                llFallbacks.increment();
+            }
+        }
+
+        void recordLl(long nanos)
+        {
+            llParses.increment();
+            llTimeNanos.add(nanos);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("kind", kind)
+                    .add("sllAttempts", getSllAttempts())
+                    .add("sllSuccesses", getSllSuccesses())
+                    .add("llFallbacks", getLlFallbacks())
+                    .add("llParses", getLlParses())
+                    .add("sllTimeNanos", getSllTimeNanos())
+                    .add("llTimeNanos", getLlTimeNanos())
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.kyotom.ditto.client.ParserConfig;
+import org.antlr.v4.runtime.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replays a corpus of representative statements through a {@link SqlParser} so that the DFA caches of
+ * {@link HiveLexer} and {@link HiveParser} are populated before the first real statement is parsed.
+ * <p>
+ * ANTLR cannot persist learned DFA states (they reference prediction contexts of the in-memory ATN),
+ * so the warm state is rebuilt from the corpus on every start instead.
+ */
+public final class ParserWarmup
+{
+    private static final String DEFAULT_CORPUS = "warmup.sql";
+
+    private ParserWarmup() {}
+
+    /**
+     * Warms up the parser as configured by {@code parser.warmup.enabled} and {@code parser.warmup.corpus-file}.
+     *
+     * @return the number of statements parsed
+     */
+    public static int warmUp(SqlParser sqlParser, ParserConfig parserConfig)
+    {
+        if (!parserConfig.isWarmupEnabled()) {
+            return 0;
+        }
+        if (parserConfig.getWarmupCorpusFile() != null) {
+            return warmUp(sqlParser, Paths.get(parserConfig.getWarmupCorpusFile()));
+        }
+        return warmUp(sqlParser);
+    }
+
+    /**
+     * Warms up the parser with the bundled corpus.
+     *
+     * @return the number of statements parsed
+     */
+    public static int warmUp(SqlParser sqlParser)
+    {
+        return sqlParser.warmUp(loadDefaultCorpus());
+    }
+
+    /**
+     * Warms up the parser with the statements of the given script.
+     *
+     * @return the number of statements parsed
+     */
+    public static int warmUp(SqlParser sqlParser, Path corpus)
+    {
+        try {
+            return sqlParser.warmUp(splitStatements(Files.readString(corpus, UTF_8)));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Error reading warm-up corpus " + corpus, e);
+        }
+    }
+
+    public static List<String> loadDefaultCorpus()
+    {
+        try {
+            return splitStatements(Resources.toString(Resources.getResource(ParserWarmup.class, DEFAULT_CORPUS), UTF_8));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Error reading warm-up corpus " + DEFAULT_CORPUS, e);
+        }
+    }
+
+    static List<String> splitStatements(String script)
+    {
+        requireNonNull(script, "script is null");
+        HiveLexer lexer = new HiveLexer(CaseFoldingCharStream.fromString(script));
+        lexer.removeErrorListeners();
+
+        ImmutableList.Builder<String> statements = ImmutableList.builder();
+        int start = -1;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            if (token.getType() == HiveLexer.SEMICOLON) {
+                if (start >= 0) {
+                    statements.add(script.substring(start, token.getStartIndex()));
+                }
+                start = -1;
+            }
+            else if (start < 0 && token.getChannel() != Token.HIDDEN_CHANNEL) {
+                start = token.getStartIndex();
+            }
+        }
+        if (start >= 0) {
+            statements.add(script.substring(start));
+        }
+        return statements.build();
+    }
+}
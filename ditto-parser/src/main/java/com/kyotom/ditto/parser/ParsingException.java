@@ -13,24 +13,38 @@
  */
 package com.kyotom.ditto.parser;
 
+import com.google.common.base.Suppliers;
 import com.kyotom.ditto.parser.tree.NodeLocation;
 import org.antlr.v4.runtime.RecognitionException;
 
+import java.util.function.Supplier;
+
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
 
 public class ParsingException
         extends RuntimeException
 {
+    private final Supplier<String> errorMessage;
     private final int line;
     private final int column;
 
     public ParsingException(String message, RecognitionException cause, int line, int column)
     {
-        super(message, cause);
+        this(Suppliers.ofInstance(message), cause, line, column);
+    }
+
+    /**
+     * Creates an exception whose error message is computed when it is first read.
+     */
+    public ParsingException(Supplier<String> errorMessage, Throwable cause, int line, int column)
+    {
+        super(null, cause);
         checkArgument(line > 0, "line must be > 0");
         checkArgument(column > 0, "column must be > 0");
 
+        this.errorMessage = Suppliers.memoize(requireNonNull(errorMessage, "errorMessage is null")::get);
         this.line = line;
         this.column = column;
     }
@@ -45,6 +59,11 @@ public class ParsingException
         this(message, null, nodeLocation.getLineNumber(), nodeLocation.getColumnNumber());
     }
 
+    public ParsingException(String message, Throwable cause, NodeLocation nodeLocation)
+    {
+        this(Suppliers.ofInstance(message), cause, nodeLocation.getLineNumber(), nodeLocation.getColumnNumber());
+    }
+
     public int getLineNumber()
     {
         return line;
@@ -57,7 +76,7 @@ public class ParsingException
 
     public String getErrorMessage()
     {
-        return super.getMessage();
+        return errorMessage.get();
     }
 
     @Override
@@ -55,4 +55,9 @@ public class ParsingOptions
     public ParserConfig getParserConfig() {
         return parserConfig;
     }
+
+    public boolean isNodeLocationsEnabled()
+    {
+        return parserConfig == null || parserConfig.isNodeLocationsEnabled();
+    }
 }
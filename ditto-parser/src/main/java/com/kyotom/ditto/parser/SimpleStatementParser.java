@@ -0,0 +1,278 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.parser.tree.DropTable;
+import com.kyotom.ditto.parser.tree.Identifier;
+import com.kyotom.ditto.parser.tree.InvalidateMetadata;
+import com.kyotom.ditto.parser.tree.QualifiedName;
+import com.kyotom.ditto.parser.tree.Refresh;
+import com.kyotom.ditto.parser.tree.SetProperty;
+import com.kyotom.ditto.parser.tree.Statement;
+import com.kyotom.ditto.parser.tree.Table;
+import com.kyotom.ditto.parser.tree.Use;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Recursive descent recognizer for the short statements that make up most of the input: {@code REFRESH},
+ * {@code INVALIDATE METADATA}, {@code USE}, {@code SET} and {@code DROP TABLE}. It builds the same AST as
+ * {@link AstBuilder} without running the ANTLR parser. A statement it does not match completely, such as one
+ * using a keyword as identifier, is left to the grammar.
+ */
+final class SimpleStatementParser
+{
+    private final TokenSource tokenSource;
+    private final ParsingOptions parsingOptions;
+    private final StatementBudget budget;
+    private Token next;
+    // the whitespace and comments before the next token, only collected for the text of SET statements
+    private List<Token> hiddenTokens;
+
+    private SimpleStatementParser(TokenSource tokenSource, ParsingOptions parsingOptions, StatementBudget budget)
+    {
+        this.tokenSource = requireNonNull(tokenSource, "tokenSource is null");
+        this.parsingOptions = requireNonNull(parsingOptions, "parsingOptions is null");
+        this.budget = requireNonNull(budget, "budget is null");
+    }
+
+    /**
+     * Returns the statement read from {@code tokenSource}, or empty if it has to be parsed with the grammar,
+     * from its first token.
+     */
+    public static Optional<Statement> parse(TokenSource tokenSource, ParsingOptions parsingOptions, StatementBudget budget)
+    {
+        SimpleStatementParser parser = new SimpleStatementParser(tokenSource, parsingOptions, budget);
+        parser.next = parser.nextToken();
+        return Optional.ofNullable(parser.statement());
+    }
+
+    private Statement statement()
+    {
+        Statement statement;
+        switch (next.getType()) {
+            case HiveLexer.KW_REFRESH:
+                statement = refresh();
+                break;
+            case HiveLexer.KW_INVALIDATE:
+                statement = invalidateMetadata();
+                break;
+            case HiveLexer.KW_USE:
+                statement = use();
+                break;
+            case HiveLexer.KW_SET:
+                statement = setProperty();
+                break;
+            case HiveLexer.KW_DROP:
+                statement = dropTable();
+                break;
+            default:
+                return null;
+        }
+        if (statement == null || next.getType() != Token.EOF) {
+            return null;
+        }
+        return statement;
+    }
+
+    // REFRESH tableName
+    private Statement refresh()
+    {
+        Token start = consume();
+        Table table = tableName();
+        if (table == null) {
+            return null;
+        }
+        return new Refresh(location(start), table);
+    }
+
+    // INVALIDATE METADATA tableName?
+    private Statement invalidateMetadata()
+    {
+        Token start = consume();
+        if (!accept(HiveLexer.KW_METADATA)) {
+            return null;
+        }
+        if (next.getType() == Token.EOF) {
+            return new InvalidateMetadata(location(start), Optional.empty());
+        }
+        Table table = tableName();
+        if (table == null) {
+            return null;
+        }
+        return new InvalidateMetadata(location(start), Optional.of(table));
+    }
+
+    // USE identifier
+    private Statement use()
+    {
+        Token start = consume();
+        Identifier schema = identifier();
+        if (schema == null) {
+            return null;
+        }
+        return new Use(location(start), Optional.empty(), schema);
+    }
+
+    // SET key '=' value?, with the text of the key and the value as written, including whitespace within them
+    private Statement setProperty()
+    {
+        Token start = consume();
+        hiddenTokens = new ArrayList<>();
+        List<Token> key = new ArrayList<>();
+        while (next.getType() != HiveLexer.EQUAL) {
+            if (next.getType() == Token.EOF || next.getType() == HiveLexer.SEMICOLON) {
+                return null;
+            }
+            consumeText(key);
+        }
+        if (key.isEmpty()) {
+            return null;
+        }
+        consume();
+        hiddenTokens.clear();
+        List<Token> value = new ArrayList<>();
+        while (next.getType() != Token.EOF) {
+            if (next.getType() == HiveLexer.SEMICOLON) {
+                return null;
+            }
+            consumeText(value);
+        }
+        return new SetProperty(location(start), getText(key), getText(value));
+    }
+
+    // adds the next token to the text, with the hidden tokens before it unless it is the first one
+    private void consumeText(List<Token> text)
+    {
+        if (!text.isEmpty()) {
+            text.addAll(hiddenTokens);
+        }
+        hiddenTokens.clear();
+        text.add(consume());
+    }
+
+    private static String getText(List<Token> tokens)
+    {
+        if (tokens.isEmpty()) {
+            return "";
+        }
+        Token first = tokens.get(0);
+        Token last = tokens.get(tokens.size() - 1);
+        if (first.getInputStream() instanceof CaseFoldingCharStream) {
+            return first.getInputStream().getText(Interval.of(first.getStartIndex(), last.getStopIndex()));
+        }
+        StringBuilder text = new StringBuilder();
+        for (Token token : tokens) {
+            text.append(token.getText());
+        }
+        return text.toString();
+    }
+
+    // DROP TABLE (IF EXISTS)? tableName PURGE?
+    private Statement dropTable()
+    {
+        Token start = consume();
+        if (!accept(HiveLexer.KW_TABLE)) {
+            return null;
+        }
+        boolean exists = false;
+        if (accept(HiveLexer.KW_IF)) {
+            if (!accept(HiveLexer.KW_EXISTS)) {
+                return null;
+            }
+            exists = true;
+        }
+        Table table = tableName();
+        if (table == null) {
+            return null;
+        }
+        accept(HiveLexer.KW_PURGE);
+        return new DropTable(location(start), table.getName(), exists);
+    }
+
+    // identifier (DOT identifier)?
+    private Table tableName()
+    {
+        Token start = next;
+        Identifier first = identifier();
+        if (first == null) {
+            return null;
+        }
+        if (!accept(HiveLexer.DOT)) {
+            return new Table(location(start), QualifiedName.of(ImmutableList.of(first)));
+        }
+        Identifier second = identifier();
+        if (second == null) {
+            return null;
+        }
+        return new Table(location(start), QualifiedName.of(ImmutableList.of(first, second)));
+    }
+
+    // only unquoted Identifier tokens, quoted identifiers and non-reserved keywords are left to the grammar
+    private Identifier identifier()
+    {
+        if (next.getType() != HiveLexer.Identifier || next.getText().charAt(0) == '`') {
+            return null;
+        }
+        Token token = consume();
+        return new Identifier(location(token), token.getText(), false);
+    }
+
+    private boolean accept(int type)
+    {
+        if (next.getType() != type) {
+            return false;
+        }
+        consume();
+        return true;
+    }
+
+    private Token consume()
+    {
+        Token token = next;
+        next = nextToken();
+        return token;
+    }
+
+    private long location(Token token)
+    {
+        return AstBuilder.location(token, parsingOptions.isNodeLocationsEnabled());
+    }
+
+    private Token nextToken()
+    {
+        while (true) {
+            Token token = tokenSource.nextToken();
+            if (token.getType() == Token.EOF) {
+                return token;
+            }
+            if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+                budget.tokenRead(token);
+                return token;
+            }
+            if (hiddenTokens != null) {
+                hiddenTokens.add(token);
+            }
+            budget.step();
+        }
+    }
+}
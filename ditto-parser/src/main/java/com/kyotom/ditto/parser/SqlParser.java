@@ -13,17 +13,42 @@
  */
 package com.kyotom.ditto.parser;
 
+import com.google.common.collect.Streams;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.ParserStats.StatementKindStats;
+import com.kyotom.ditto.parser.bridging.Bridging;
+import com.kyotom.ditto.parser.bridging.DefaultCatalogs;
+import com.kyotom.ditto.parser.tree.Expression;
 import com.kyotom.ditto.parser.tree.Node;
+import com.kyotom.ditto.parser.tree.NodeLocation;
 import com.kyotom.ditto.parser.tree.Statement;
 import com.kyotom.ditto.parser.tree.Statements;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.Pair;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.synchronizedMap;
 import static java.util.Objects.requireNonNull;
 
 public class SqlParser
@@ -37,17 +62,51 @@ public class SqlParser
             throw new ParsingException(message, e, line, charPositionInLine + 1);
         }
     };
-    private static final BiConsumer<HiveLexer, HiveParser> DEFAULT_PARSER_INITIALIZER = (HiveLexer lexer, HiveParser parser) -> {};
 
-    private static final ErrorHandler PARSER_ERROR_HANDLER = ErrorHandler.builder()
-            .specialRule(HiveParser.RULE_expression, "<expression>")
-            .ignoredRule(HiveParser.RULE_nonReserved)
-            .build();
+    // ListTokenSource names the EOF token it appends "EOF", the lexer's reads "<EOF>" in error messages
+    private static final TokenFactory<CommonToken> LIST_TOKEN_FACTORY = new CommonTokenFactory()
+    {
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel, int start, int stop, int line, int charPositionInLine)
+        {
+            return super.create(source, type, type == Token.EOF ? "<EOF>" : text, channel, start, stop, line, charPositionInLine);
+        }
+    };
+
+    // statements with more tokens than this are parsed with a fresh context afterwards
+    private static final int MAX_POOLED_TOKENS = 64 * 1024;
+
+    // number of statements parsed with a context between checks of the size of its DFA cache
+    private static final int DFA_CACHE_CHECK_INTERVAL = 1024;
+
+    private static final BiConsumer<HiveLexer, HiveParser> DEFAULT_PARSER_INITIALIZER = (HiveLexer lexer, HiveParser parser) -> {};
 
     private final BiConsumer<HiveLexer, HiveParser> initializer;
 
     private final ParsingOptions defaultParsingOptions;
 
+    private final ThreadLocal<ParserContext> parserContexts = ThreadLocal.withInitial(this::newParserContext);
+
+    private final ParserStats stats = new ParserStats(this::getDfaStateCount);
+
+    private final ErrorHandler parserErrorHandler;
+
+    // when enabled, statement kinds that mostly fail in SLL mode are parsed with LL right away
+    private final boolean adaptivePredictionMode;
+    private final double fallbackThreshold;
+    private final int minSamples;
+
+    // with thread-local caches, each thread parses with its own DFA cache; otherwise, all threads share
+    // the static caches of the generated recognizers, or a cache owned by the parser when its size is limited
+    private final ThreadLocal<DfaCache> dfaCaches;
+    private final Map<Thread, DfaCache> threadDfaCaches = synchronizedMap(new WeakHashMap<>());
+    private volatile DfaCache sharedDfaCache;
+    private final AtomicBoolean sharedDfaCacheResetting = new AtomicBoolean();
+    private final int maxDfaStates;
+    private final boolean dfaCacheRewarm;
+    // the caches learned from the warm-up statements, copied by new and reset caches
+    private volatile DfaCache warmDfaCache;
+
     public SqlParser()
     {
         this(DEFAULT_PARSER_INITIALIZER, null);
@@ -62,6 +121,34 @@ public class SqlParser
     {
         this.initializer = requireNonNull(initializer, "initializer is null");
         this.defaultParsingOptions = defaultParsingOptions;
+
+        ParserConfig parserConfig = defaultParsingOptions == null ? null : defaultParsingOptions.getParserConfig();
+        if (parserConfig != null) {
+            this.adaptivePredictionMode = parserConfig.isAdaptivePredictionModeEnabled();
+            this.fallbackThreshold = parserConfig.getAdaptivePredictionModeFallbackThreshold();
+            this.minSamples = parserConfig.getAdaptivePredictionModeMinSamples();
+        }
+        else {
+            this.adaptivePredictionMode = false;
+            this.fallbackThreshold = 1;
+            this.minSamples = Integer.MAX_VALUE;
+        }
+        this.maxDfaStates = parserConfig == null ? 0 : parserConfig.getDfaCacheMaxStates();
+        this.dfaCacheRewarm = parserConfig == null || parserConfig.isDfaCacheRewarmEnabled();
+        if (parserConfig != null && parserConfig.isThreadLocalDfaCacheEnabled()) {
+            this.dfaCaches = ThreadLocal.withInitial(() -> registerThreadDfaCache(newDfaCache(true)));
+            this.sharedDfaCache = null;
+        }
+        else {
+            this.dfaCaches = null;
+            this.sharedDfaCache = maxDfaStates > 0 ? DfaCache.empty() : DfaCache.generated();
+        }
+
+        this.parserErrorHandler = ErrorHandler.builder()
+                .specialRule(HiveParser.RULE_expression, "<expression>")
+                .ignoredRule(HiveParser.RULE_nonReserved)
+                .maxExplorationSteps(parserConfig == null ? ErrorHandler.DEFAULT_MAX_EXPLORATION_STEPS : parserConfig.getErrorAnalysisMaxSteps())
+                .build();
     }
 
     public Statements createStatements(String sql)
@@ -71,7 +158,7 @@ public class SqlParser
 
     public Statements createStatements(String sql, ParsingOptions parsingOptions)
     {
-        return (Statements) invokeParser("statements", sql, HiveParser::statements, parsingOptions);
+        return (Statements) invokeParser("statements", lex(sql), HiveParser::statements, parsingOptions, newStatementBudget(parsingOptions));
     }
 
     public Statement createStatement(String sql)
@@ -79,65 +166,581 @@ public class SqlParser
         return createStatement(sql, defaultParsingOptions);
     }
 
-
     public Statement createStatement(String sql, ParsingOptions parsingOptions)
     {
-        return (Statement) invokeParser("statement", sql, HiveParser::statement, parsingOptions);
+        return createStatement(sql, parsingOptions, newStatementBudget(parsingOptions));
+    }
+
+    /**
+     * Parses a statement within the limits of {@code budget}, which can then be used for the rest of its translation.
+     */
+    public Statement createStatement(String sql, StatementBudget budget)
+    {
+        return createStatement(sql, defaultParsingOptions, budget);
+    }
+
+    private Statement createStatement(String sql, ParsingOptions parsingOptions, StatementBudget budget)
+    {
+        return parseStatement(lex(sql), parsingOptions, budget, new NodeLocation(1, 1));
+    }
+
+    public Statement createStatement(List<? extends Token> tokens)
+    {
+        return createStatement(tokens, defaultParsingOptions);
     }
 
-    private Node invokeParser(String name, String sql, Function<HiveParser, ParserRuleContext> parseFunction, ParsingOptions parsingOptions)
+    public Statement createStatement(List<? extends Token> tokens, StatementBudget budget)
+    {
+        return createStatement(tokens, defaultParsingOptions, budget);
+    }
+
+    /**
+     * Parses a statement that has already been lexed by a {@link HiveLexer} reading a case-folded stream,
+     * such as {@link CaseFoldingCharStream}. The tokens must not include the statement separator.
+     */
+    public Statement createStatement(List<? extends Token> tokens, ParsingOptions parsingOptions)
+    {
+        return createStatement(tokens, parsingOptions, newStatementBudget(parsingOptions));
+    }
+
+    private Statement createStatement(List<? extends Token> tokens, ParsingOptions parsingOptions, StatementBudget budget)
+    {
+        checkArgument(!tokens.isEmpty(), "tokens is empty");
+        return parseStatement(tokenSource(tokens), parsingOptions, budget, AstBuilder.getLocation(tokens.get(0)));
+    }
+
+    private static Function<ParserContext, TokenSource> tokenSource(List<? extends Token> tokens)
+    {
+        if (tokens instanceof TokenBuffer.TokenList) {
+            TokenBuffer.TokenList tokenList = (TokenBuffer.TokenList) tokens;
+            return context -> new TokenBufferStream(tokenList).getTokenSource();
+        }
+        return context -> {
+            ListTokenSource listTokenSource = new ListTokenSource(tokens);
+            listTokenSource.setTokenFactory(LIST_TOKEN_FACTORY);
+            return listTokenSource;
+        };
+    }
+
+    /**
+     * Builds the statements recognized by {@link SimpleStatementParser} directly, and parses anything else with the grammar.
+     */
+    private Statement parseStatement(Function<ParserContext, TokenSource> tokenSource, ParsingOptions parsingOptions, StatementBudget budget, NodeLocation location)
     {
         requireNonNull(parsingOptions, "parsingOptions is null");
+        Optional<Statement> statement = parseSimpleStatement(tokenSource, parsingOptions, budget);
+        if (statement.isPresent()) {
+            return statement.get();
+        }
+        return toStatement(invokeParser("statement", tokenSource, HiveParser::statement, parsingOptions, budget), location);
+    }
+
+    private Optional<Statement> parseSimpleStatement(Function<ParserContext, TokenSource> tokenSource, ParsingOptions parsingOptions, StatementBudget budget)
+    {
+        ParserContext context = parserContexts.get();
+        if (context.inUse) {
+            return Optional.empty();
+        }
+        budget.check();
+        context.inUse = true;
+        context.useDfaCache(currentDfaCache());
         try {
-            HiveLexer lexer = new HiveLexer(new CaseInsensitiveStream(CharStreams.fromString(sql)));
-            CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-            HiveParser parser = new HiveParser(tokenStream);
-            initializer.accept(lexer, parser);
-
-            // Override the default error strategy to not attempt inserting or deleting a token.
-            // Otherwise, it messes up error reporting
-            parser.setErrorHandler(new DefaultErrorStrategy()
-            {
-                @Override
-                public Token recoverInline(Parser recognizer)
-                        throws RecognitionException
-                {
-                    if (nextTokensContext == null) {
-                        throw new InputMismatchException(recognizer);
+            return SimpleStatementParser.parse(tokenSource.apply(context), parsingOptions, budget);
+        }
+        finally {
+            context.inUse = false;
+        }
+    }
+
+    /**
+     * Parses a statement into the Trino AST. {@code CREATE TABLE} and {@code INSERT ... VALUES} statements are
+     * built by {@link TrinoAstBuilder} straight from the parse tree, which applies the built-in rewrite rules
+     * itself with the catalogs of {@code bridging}; other statements, and all statements when {@code bridging}
+     * has other rules, are built as ditto statements and converted by {@code bridging}. The translation is
+     * limited by {@code budget}.
+     */
+    public io.trino.sql.tree.Node createTrinoStatement(String sql, StatementBudget budget, Bridging bridging)
+    {
+        return createTrinoStatement(lex(sql), defaultParsingOptions, budget, bridging, new NodeLocation(1, 1));
+    }
+
+    /**
+     * Parses a statement that has already been lexed, as {@link #createStatement(List, ParsingOptions)}, into the Trino AST.
+     *
+     * @see #createTrinoStatement(String, StatementBudget, Bridging)
+     */
+    public io.trino.sql.tree.Node createTrinoStatement(List<? extends Token> tokens, StatementBudget budget, Bridging bridging)
+    {
+        checkArgument(!tokens.isEmpty(), "tokens is empty");
+        return createTrinoStatement(tokenSource(tokens), defaultParsingOptions, budget, bridging, AstBuilder.getLocation(tokens.get(0)));
+    }
+
+    private io.trino.sql.tree.Node createTrinoStatement(Function<ParserContext, TokenSource> tokenSource, ParsingOptions parsingOptions, StatementBudget budget, Bridging bridging, NodeLocation location)
+    {
+        requireNonNull(bridging, "bridging is null");
+        Optional<Statement> statement = parseSimpleStatement(tokenSource, parsingOptions, budget);
+        if (statement.isPresent()) {
+            return bridging.process(statement.get(), budget);
+        }
+        return invokeParser("statement", tokenSource, HiveParser::statement, budget, tree -> {
+            Optional<DefaultCatalogs> catalogs = bridging.getRules().getDefaultCatalogs();
+            if (catalogs.isPresent()) {
+                Optional<io.trino.sql.tree.Statement> trinoStatement = TrinoAstBuilder.build(tree, parsingOptions, catalogs.get(), budget);
+                if (trinoStatement.isPresent()) {
+                    return trinoStatement.get();
+                }
+            }
+            return bridging.process(toStatement(new AstBuilder(parsingOptions, budget).visit(tree), location), budget);
+        });
+    }
+
+    public Expression createExpression(String expression)
+    {
+        return createExpression(expression, defaultParsingOptions);
+    }
+
+    public Expression createExpression(String expression, ParsingOptions parsingOptions)
+    {
+        return (Expression) invokeParser("expression", lex(expression), HiveParser::singleExpression, parsingOptions, newStatementBudget(parsingOptions));
+    }
+
+    /**
+     * Starts a budget with the statement limits of the default parsing options.
+     */
+    public StatementBudget newStatementBudget()
+    {
+        return newStatementBudget(defaultParsingOptions);
+    }
+
+    private static StatementBudget newStatementBudget(ParsingOptions parsingOptions)
+    {
+        return StatementBudget.start(parsingOptions == null ? null : parsingOptions.getParserConfig());
+    }
+
+    /**
+     * Lazily parses the semicolon separated statements read from {@code reader}. Only the tokens of the current
+     * statement are kept in memory. A statement that fails to parse is returned as a failed item, and parsing
+     * continues with the next statement. When the thread is interrupted, the stream fails with a
+     * {@link StatementAbortedException} instead.
+     */
+    public Stream<ParsedStatement> streamStatements(Reader reader)
+    {
+        return streamStatements(reader, defaultParsingOptions);
+    }
+
+    public Stream<ParsedStatement> streamStatements(Reader reader, ParsingOptions parsingOptions)
+    {
+        requireNonNull(parsingOptions, "parsingOptions is null");
+        return Streams.stream(new StatementIterator(this, reader, parsingOptions));
+    }
+
+    /**
+     * Same as {@link #streamStatements(Reader)} for a UTF-8 encoded file. The file is closed when the stream is closed.
+     */
+    public Stream<ParsedStatement> streamStatements(Path path)
+            throws IOException
+    {
+        Reader reader = Files.newBufferedReader(path, UTF_8);
+        return streamStatements(reader, defaultParsingOptions)
+                .onClose(() -> {
+                    try {
+                        reader.close();
                     }
-                    else {
-                        throw new InputMismatchException(recognizer, nextTokensState, nextTokensContext);
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
+                });
+    }
+
+    /**
+     * Parses the given statements without building an AST, to populate the lexer and parser DFA caches shared
+     * by all parser instances. Statements that fail to parse are skipped.
+     * <p>
+     * When the parser owns its DFA caches, because they are thread-local or their size is limited, the statements
+     * are parsed into a new cache instead. The shared cache, or the cache of the calling thread, is replaced with
+     * a copy of it, and so are the caches of the threads that parse their first statement afterwards and the caches
+     * that are reset.
+     *
+     * @return the number of statements that were parsed successfully
+     */
+    public int warmUp(List<String> statements)
+    {
+        ParserContext context = newParserContext();
+        DfaCache cache = dfaCaches != null || maxDfaStates > 0 ? DfaCache.empty() : DfaCache.generated();
+        context.useDfaCache(cache);
+
+        int parsed = 0;
+        for (String statement : statements) {
+            try {
+                StatementBudget budget = StatementBudget.unlimited();
+                parse(context, tokenStream(context, lex(statement).apply(context), budget), HiveParser::statement, budget);
+                parsed++;
+            }
+            catch (ParsingException | StackOverflowError ignored) {
+            }
+        }
+
+        if (cache != DfaCache.generated()) {
+            warmDfaCache = cache;
+            if (dfaCaches != null) {
+                dfaCaches.set(registerThreadDfaCache(cache.copy()));
+            }
+            else {
+                sharedDfaCache = cache.copy();
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the number of states of the DFA caches in use, summed over all threads with thread-local caches.
+     */
+    public long getDfaStateCount()
+    {
+        if (dfaCaches == null) {
+            return sharedDfaCache.getStateCount();
+        }
+        synchronized (threadDfaCaches) {
+            return threadDfaCaches.values().stream().mapToLong(DfaCache::getStateCount).sum();
+        }
+    }
+
+    private DfaCache currentDfaCache()
+    {
+        return dfaCaches == null ? sharedDfaCache : dfaCaches.get();
+    }
+
+    private DfaCache newDfaCache(boolean warm)
+    {
+        DfaCache warmCache = warmDfaCache;
+        return warm && warmCache != null ? warmCache.copy() : DfaCache.empty();
+    }
+
+    private DfaCache registerThreadDfaCache(DfaCache cache)
+    {
+        threadDfaCaches.put(Thread.currentThread(), cache);
+        return cache;
+    }
+
+    /**
+     * Replaces the given cache, used by the current thread, when it has grown past the limit. Statements being
+     * parsed with the cache on other threads keep using it until they complete.
+     */
+    private void checkDfaCacheSize(DfaCache cache)
+    {
+        if (cache.getStateCount() <= maxDfaStates) {
+            return;
+        }
+        if (dfaCaches != null) {
+            if (dfaCaches.get() == cache) {
+                dfaCaches.set(registerThreadDfaCache(newDfaCache(dfaCacheRewarm)));
+                stats.recordDfaCacheReset();
+            }
+        }
+        else if (sharedDfaCacheResetting.compareAndSet(false, true)) {
+            try {
+                if (sharedDfaCache == cache) {
+                    sharedDfaCache = newDfaCache(dfaCacheRewarm);
+                    stats.recordDfaCacheReset();
                 }
-            });
+            }
+            finally {
+                sharedDfaCacheResetting.set(false);
+            }
+        }
+    }
+
+    private Node invokeParser(String name, Function<ParserContext, TokenSource> tokenSource, Function<HiveParser, ParserRuleContext> parseFunction, ParsingOptions parsingOptions, StatementBudget budget)
+    {
+        requireNonNull(parsingOptions, "parsingOptions is null");
+        return invokeParser(name, tokenSource, parseFunction, budget, tree -> new AstBuilder(parsingOptions, budget).visit(tree));
+    }
+
+    private <T> T invokeParser(String name, Function<ParserContext, TokenSource> tokenSource, Function<HiveParser, ParserRuleContext> parseFunction, StatementBudget budget, Function<ParserRuleContext, T> builder)
+    {
+        requireNonNull(budget, "budget is null");
+        try {
+            ParserRuleContext tree = parse(tokenSource, parseFunction, budget);
+            return builder.apply(tree);
+        }
+        catch (StackOverflowError e) {
+            throw new ParsingException(name + " is too large (stack overflow while parsing)");
+        }
+    }
+
+    private static Statement toStatement(Node node, NodeLocation location)
+    {
+        if (!(node instanceof Statement)) {
+            throw new ParsingException("Unsupported statement", location);
+        }
+        return (Statement) node;
+    }
+
+    private static Function<ParserContext, TokenSource> lex(String sql)
+    {
+        return context -> {
+            context.lexer.setInputStream(CaseFoldingCharStream.fromString(sql));
+            return context.lexer;
+        };
+    }
+
+    private ParserRuleContext parse(Function<ParserContext, TokenSource> tokenSource, Function<HiveParser, ParserRuleContext> parseFunction, StatementBudget budget)
+    {
+        ParserContext context = parserContexts.get();
+        if (context.inUse) {
+            // re-entrant call on this thread, e.g. from a parse listener; don't disturb the pooled instances
+            context = newParserContext();
+        }
+
+        budget.check();
+        context.inUse = true;
+        context.useDfaCache(currentDfaCache());
+        try {
+            return parse(context, tokenStream(context, tokenSource.apply(context), budget), parseFunction, budget);
+        }
+        finally {
+            context.inUse = false;
+            context.budgetListener.budget = null;
+            if (context.tokenStream.size() > MAX_POOLED_TOKENS) {
+                // don't pin the token buffer of an unusually large statement to this thread
+                parserContexts.remove();
+            }
+            if (maxDfaStates > 0 && ++context.parsedStatements % DFA_CACHE_CHECK_INTERVAL == 0) {
+                checkDfaCacheSize(context.dfaCache);
+            }
+        }
+    }
+
+    private static TokenStream tokenStream(ParserContext context, TokenSource tokenSource, StatementBudget budget)
+    {
+        if (tokenSource instanceof TokenBufferStream.Source) {
+            // buffered tokens are read in place rather than copied into the token stream of the context
+            TokenBufferStream tokenStream = ((TokenBufferStream.Source) tokenSource).getStream();
+            tokenStream.countTokens(budget);
+            return tokenStream;
+        }
+        context.tokenStream.setTokenSource(new BudgetedTokenSource(tokenSource, budget));
+        return context.tokenStream;
+    }
 
-//            parser.addParseListener(new PostProcessor(Arrays.asList(parser.getRuleNames()), parser));
+    private ParserRuleContext parse(ParserContext context, TokenStream tokenStream, Function<HiveParser, ParserRuleContext> parseFunction, StatementBudget budget)
+    {
+        HiveParser parser = context.parser;
 
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(LEXER_ERROR_LISTENER);
+        context.budgetListener.budget = budget;
 
-            parser.removeErrorListeners();
-            parser.addErrorListener(PARSER_ERROR_HANDLER);
+        parser.setErrorHandler(context.bailErrorStrategy);
+        parser.setTokenStream(tokenStream);
 
-            ParserRuleContext tree;
+        StatementKindStats statementStats = stats.getStatementKindStats(tokenStream);
+        if (!adaptivePredictionMode || statementStats.shouldTrySll(fallbackThreshold, minSamples)) {
+            long start = System.nanoTime();
             try {
-                // first, try parsing with potentially faster SLL mode
+                // first, try parsing with potentially faster SLL mode. Errors are not reported in this stage:
+                // the bail strategy aborts on the first mismatch so that the input can be re-parsed with LL
                 parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
-                tree = parseFunction.apply(parser);
+                ParserRuleContext tree = parseFunction.apply(parser);
+                statementStats.recordSll(true, System.nanoTime() - start);
+                return tree;
             }
             catch (ParseCancellationException ex) {
+                statementStats.recordSll(false, System.nanoTime() - start);
                 // if we fail, parse with LL mode
                 tokenStream.seek(0); // rewind input stream
-                parser.reset();
+                budget.resetDepth();
+            }
+        }
 
-                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
-                tree = parseFunction.apply(parser);
+        // Override the default error strategy to not attempt inserting or deleting a token.
+        // Otherwise, it messes up error reporting
+        parser.setErrorHandler(new DefaultErrorStrategy()
+        {
+            @Override
+            public Token recoverInline(Parser recognizer)
+                    throws RecognitionException
+            {
+                if (nextTokensContext == null) {
+                    throw new InputMismatchException(recognizer);
+                }
+                else {
+                    throw new InputMismatchException(recognizer, nextTokensState, nextTokensContext);
+                }
             }
+        });
+        parser.reset();
 
-            return new AstBuilder(parsingOptions).visit(tree);
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        long start = System.nanoTime();
+        try {
+            return parseFunction.apply(parser);
         }
-        catch (StackOverflowError e) {
-            throw new ParsingException(name + " is too large (stack overflow while parsing)");
+        finally {
+            statementStats.recordLl(System.nanoTime() - start);
+        }
+    }
+
+    private ParserContext newParserContext()
+    {
+        HiveLexer lexer = new HiveLexer(CaseFoldingCharStream.fromString(""));
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        HiveParser parser = new HiveParser(tokenStream);
+        initializer.accept(lexer, parser);
+
+//        parser.addParseListener(new PostProcessor(Arrays.asList(parser.getRuleNames()), parser));
+
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(LEXER_ERROR_LISTENER);
+
+        parser.removeErrorListeners();
+        parser.addErrorListener(parserErrorHandler);
+
+        BudgetListener budgetListener = new BudgetListener();
+        parser.addParseListener(budgetListener);
+
+        return new ParserContext(lexer, tokenStream, parser, budgetListener);
+    }
+
+    public ParserStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Lexer, token stream and parser reused by all statements parsed on one thread. The instances are
+     * reset with a new input for every statement; the initializer and the error listeners are applied
+     * once, when the context is created.
+     */
+    private static class ParserContext
+    {
+        private final HiveLexer lexer;
+        private final CommonTokenStream tokenStream;
+        private final HiveParser parser;
+        private final BudgetListener budgetListener;
+        private final ANTLRErrorStrategy bailErrorStrategy = new BailErrorStrategy()
+        {
+            @Override
+            public void reportError(Parser recognizer, RecognitionException e)
+            {
+                // the SLL stage is silent, errors are reported by the LL stage
+            }
+        };
+
+        private boolean inUse;
+        // the generated recognizers start out with the static caches
+        private DfaCache dfaCache = DfaCache.generated();
+        private long parsedStatements;
+
+        private ParserContext(HiveLexer lexer, CommonTokenStream tokenStream, HiveParser parser, BudgetListener budgetListener)
+        {
+            this.lexer = lexer;
+            this.tokenStream = tokenStream;
+            this.parser = parser;
+            this.budgetListener = budgetListener;
+        }
+
+        private void useDfaCache(DfaCache dfaCache)
+        {
+            if (this.dfaCache != dfaCache) {
+                dfaCache.install(lexer, parser);
+                this.dfaCache = dfaCache;
+            }
+        }
+    }
+
+    /**
+     * Tracks the nesting depth of the rules entered by the parser in the budget of the current statement.
+     */
+    private static class BudgetListener
+            implements ParseTreeListener
+    {
+        private StatementBudget budget;
+
+        @Override
+        public void enterEveryRule(ParserRuleContext context)
+        {
+            budget.enterRule(context);
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext context)
+        {
+            budget.exitRule();
+        }
+
+        @Override
+        public void visitTerminal(TerminalNode node)
+        {
+        }
+
+        @Override
+        public void visitErrorNode(ErrorNode node)
+        {
+        }
+    }
+
+    /**
+     * Counts the tokens of the current statement against its budget as they are read from the lexer.
+     * Whitespace and comments are not counted, but still advance the deadline checks.
+     */
+    private static class BudgetedTokenSource
+            implements TokenSource
+    {
+        private final TokenSource delegate;
+        private final StatementBudget budget;
+
+        private BudgetedTokenSource(TokenSource delegate, StatementBudget budget)
+        {
+            this.delegate = delegate;
+            this.budget = budget;
+        }
+
+        @Override
+        public Token nextToken()
+        {
+            Token token = delegate.nextToken();
+            if (token.getChannel() == Token.DEFAULT_CHANNEL && token.getType() != Token.EOF) {
+                budget.tokenRead(token);
+            }
+            else {
+                budget.step();
+            }
+            return token;
+        }
+
+        @Override
+        public int getLine()
+        {
+            return delegate.getLine();
+        }
+
+        @Override
+        public int getCharPositionInLine()
+        {
+            return delegate.getCharPositionInLine();
+        }
+
+        @Override
+        public CharStream getInputStream()
+        {
+            return delegate.getInputStream();
+        }
+
+        @Override
+        public String getSourceName()
+        {
+            return delegate.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory)
+        {
+            delegate.setTokenFactory(factory);
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory()
+        {
+            return delegate.getTokenFactory();
         }
     }
 
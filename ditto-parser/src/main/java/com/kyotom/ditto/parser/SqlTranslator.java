@@ -0,0 +1,339 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.bridging.Bridging;
+import io.trino.sql.tree.Node;
+import org.antlr.v4.runtime.Token;
+
+import javax.inject.Inject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Translates Hive statements to Trino statements. A translator is thread-safe: each thread parses with its own
+ * parser, and they share the DFA caches of the grammar.
+ * <p>
+ * A translator can be created from a {@link ParserConfig} alone, which also warms up the parser when
+ * {@code parser.warmup.enabled} is set, or injected by {@link ParserModule}. Translations are looked up in a
+ * {@link TranslationCache} first when {@code parser.translation-cache.max-weight} is set, and then in a
+ * {@link TranslationStore} when {@code parser.translation-cache.file} is set. A translator with a store must be
+ * closed. When {@code parser.translation-templates.max-size} is set, statements that only differ from a
+ * statement translated before in their literals are translated from its {@link TranslationTemplates template}.
+ * The caches are keyed by the settings of the built-in rewrite rules, so they are not used when the bridging has
+ * other {@link com.kyotom.ditto.parser.bridging.RewriteRules rules}.
+ */
+public final class SqlTranslator
+        implements Closeable
+{
+    // each worker gets several ranges of statements, so that workers that finish early can steal the rest
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final ParserConfig parserConfig;
+    private final SqlParser sqlParser;
+    private final Bridging bridging;
+    private final Optional<TranslationCache> cache;
+    private final Optional<TranslationStore> store;
+    private final Optional<TranslationTemplates> templates;
+    // empty when the bridging has other rules than the built-in ones, whose translations are not cached
+    private final Optional<String> configFingerprint;
+
+    public SqlTranslator(ParserConfig parserConfig)
+    {
+        this(parserConfig, new SqlParser(new ParsingOptions(parserConfig)), new Bridging(parserConfig));
+        ParserWarmup.warmUp(sqlParser, parserConfig);
+    }
+
+    @Inject
+    public SqlTranslator(ParserConfig parserConfig, SqlParser sqlParser, Bridging bridging)
+    {
+        this(parserConfig, sqlParser, bridging, TranslationCache.create(parserConfig), TranslationStore.open(parserConfig), TranslationTemplates.create(parserConfig));
+    }
+
+    public SqlTranslator(ParserConfig parserConfig, SqlParser sqlParser, Bridging bridging, Optional<TranslationCache> cache)
+    {
+        this(parserConfig, sqlParser, bridging, cache, Optional.empty(), Optional.empty());
+    }
+
+    public SqlTranslator(
+            ParserConfig parserConfig,
+            SqlParser sqlParser,
+            Bridging bridging,
+            Optional<TranslationCache> cache,
+            Optional<TranslationStore> store,
+            Optional<TranslationTemplates> templates)
+    {
+        this.parserConfig = requireNonNull(parserConfig, "parserConfig is null");
+        this.sqlParser = requireNonNull(sqlParser, "sqlParser is null");
+        this.bridging = requireNonNull(bridging, "bridging is null");
+        this.cache = requireNonNull(cache, "cache is null");
+        this.store = requireNonNull(store, "store is null");
+        this.templates = requireNonNull(templates, "templates is null");
+        this.configFingerprint = bridging.getRules().getDefaultCatalogs()
+                .map(catalogs -> TranslationCache.fingerprint(catalogs, parserConfig));
+    }
+
+    public SqlParser getSqlParser()
+    {
+        return sqlParser;
+    }
+
+    public Optional<TranslationCache> getCache()
+    {
+        return cache;
+    }
+
+    public Optional<TranslationStore> getStore()
+    {
+        return store;
+    }
+
+    public Optional<TranslationTemplates> getTemplates()
+    {
+        return templates;
+    }
+
+    public String translate(String sql)
+    {
+        if (isTemplated()) {
+            Optional<StatementShape> shape = StatementShape.of(sql);
+            if (shape.isPresent()) {
+                return translateTemplated(shape.get(), () -> translateUncached(sql));
+            }
+            return translateUncached(sql);
+        }
+        Optional<String> normalizedSql = isCached() ? TranslationCache.normalize(sql) : Optional.empty();
+        if (normalizedSql.isPresent()) {
+            return translateCached(normalizedSql.get(), () -> translateUncached(sql));
+        }
+        return translateUncached(sql);
+    }
+
+    public void translate(String sql, Appendable out)
+            throws IOException
+    {
+        if (isCached() || isTemplated()) {
+            out.append(translate(sql));
+            return;
+        }
+        translateUncached(sql, out);
+    }
+
+    /**
+     * Translates a statement from the tokens it was split from, without lexing it again.
+     */
+    public void translate(List<? extends Token> tokens, Appendable out)
+            throws IOException
+    {
+        if (isTemplated()) {
+            Optional<StatementShape> shape = StatementShape.of(tokens);
+            if (shape.isPresent()) {
+                out.append(translateTemplated(shape.get(), () -> translateUncached(tokens)));
+                return;
+            }
+        }
+        if (isCached()) {
+            out.append(translateCached(TranslationCache.normalize(tokens), () -> translateUncached(tokens)));
+            return;
+        }
+        translateUncached(tokens, out);
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (store.isPresent()) {
+            store.get().close();
+        }
+    }
+
+    private boolean isCached()
+    {
+        return configFingerprint.isPresent() && (cache.isPresent() || store.isPresent());
+    }
+
+    private boolean isTemplated()
+    {
+        return configFingerprint.isPresent() && templates.isPresent();
+    }
+
+    private String translateTemplated(StatementShape shape, Supplier<String> translation)
+    {
+        Supplier<String> cachedTranslation = translation;
+        if (isCached()) {
+            cachedTranslation = () -> translateCached(shape.getNormalizedSql(), translation);
+        }
+        return templates.get().translate(configFingerprint.get(), shape, cachedTranslation, this::translateUncached);
+    }
+
+    private String translateCached(String normalizedSql, Supplier<String> translation)
+    {
+        Optional<String> cached = cache.flatMap(translationCache -> translationCache.get(configFingerprint.get(), normalizedSql));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Optional<String> stored = store.flatMap(translationStore -> translationStore.get(configFingerprint.get(), normalizedSql));
+        String translated;
+        if (stored.isPresent()) {
+            translated = stored.get();
+        }
+        else {
+            translated = translation.get();
+            store.ifPresent(translationStore -> translationStore.put(configFingerprint.get(), normalizedSql, translated));
+        }
+        cache.ifPresent(translationCache -> translationCache.put(configFingerprint.get(), normalizedSql, translated));
+        return translated;
+    }
+
+    private String translateUncached(String sql)
+    {
+        StringBuilder out = new StringBuilder();
+        try {
+            translateUncached(sql, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private void translateUncached(String sql, Appendable out)
+            throws IOException
+    {
+        StatementBudget budget = sqlParser.newStatementBudget();
+        Node node;
+        if (parserConfig.isDirectTrinoAstEnabled()) {
+            node = sqlParser.createTrinoStatement(sql, budget, bridging);
+        }
+        else {
+            node = bridging.process(sqlParser.createStatement(sql, budget), budget);
+        }
+        format(node, out);
+    }
+
+    private String translateUncached(List<? extends Token> tokens)
+    {
+        StringBuilder out = new StringBuilder();
+        try {
+            translateUncached(tokens, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private void translateUncached(List<? extends Token> tokens, Appendable out)
+            throws IOException
+    {
+        StatementBudget budget = sqlParser.newStatementBudget();
+        Node node;
+        if (parserConfig.isDirectTrinoAstEnabled()) {
+            node = sqlParser.createTrinoStatement(tokens, budget, bridging);
+        }
+        else {
+            node = bridging.process(sqlParser.createStatement(tokens, budget), budget);
+        }
+        format(node, out);
+    }
+
+    /**
+     * Translates statements in parallel on the common fork-join pool.
+     *
+     * @see #translateAll(List, ForkJoinPool)
+     */
+    public List<TranslationResult> translateAll(List<String> sqls)
+    {
+        return translateAll(sqls, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Translates statements in parallel on {@code pool}. The results are in the order of the statements; a
+     * statement that cannot be translated is returned as a failed result, and does not stop the others.
+     */
+    public List<TranslationResult> translateAll(List<String> sqls, ForkJoinPool pool)
+    {
+        List<String> statements = ImmutableList.copyOf(requireNonNull(sqls, "sqls is null"));
+        requireNonNull(pool, "pool is null");
+        TranslationResult[] results = new TranslationResult[statements.size()];
+        if (!statements.isEmpty()) {
+            int rangeSize = Math.max(1, statements.size() / (pool.getParallelism() * RANGES_PER_THREAD));
+            pool.invoke(new TranslateRange(statements, results, 0, statements.size(), rangeSize));
+        }
+        return ImmutableList.copyOf(results);
+    }
+
+    private TranslationResult translateForBatch(String sql)
+    {
+        try {
+            return TranslationResult.translated(sql, translate(sql));
+        }
+        catch (RuntimeException e) {
+            return TranslationResult.failed(sql, e);
+        }
+    }
+
+    private void format(Node node, Appendable out)
+            throws IOException
+    {
+        if (node == null) {
+            throw new UnsupportedOperationException("Statement is not supported by the translation");
+        }
+        StreamingSqlFormatter.formatSql(node, out, parserConfig.isSingleLineOutputEnabled());
+    }
+
+    private final class TranslateRange
+            extends RecursiveAction
+    {
+        private final List<String> sqls;
+        private final TranslationResult[] results;
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+
+        private TranslateRange(List<String> sqls, TranslationResult[] results, int from, int to, int rangeSize)
+        {
+            this.sqls = sqls;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > rangeSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TranslateRange(sqls, results, from, middle, rangeSize), new TranslateRange(sqls, results, middle, to, rangeSize));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                results[i] = translateForBatch(sqls.get(i));
+            }
+        }
+    }
+}
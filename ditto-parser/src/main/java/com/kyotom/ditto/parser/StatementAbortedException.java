@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.kyotom.ditto.parser.tree.NodeLocation;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Thrown when the translation of a statement is stopped before it completes, because the statement exceeds
+ * one of the limits of its {@link StatementBudget} or because the translating thread was interrupted.
+ */
+public class StatementAbortedException
+        extends ParsingException
+{
+    public enum Reason
+    {
+        TOO_MANY_TOKENS,
+        TOO_DEEPLY_NESTED,
+        TIMED_OUT,
+        CANCELLED
+    }
+
+    private final Reason reason;
+
+    public StatementAbortedException(Reason reason, String message)
+    {
+        super(message);
+        this.reason = requireNonNull(reason, "reason is null");
+    }
+
+    public StatementAbortedException(Reason reason, String message, NodeLocation location)
+    {
+        super(message, location);
+        this.reason = requireNonNull(reason, "reason is null");
+    }
+
+    public Reason getReason()
+    {
+        return reason;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.StatementAbortedException.Reason;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Limits on the resources used to translate a single statement: the number of tokens, the nesting depth of
+ * the grammar rules and the wall-clock time from lexing to the end of the translation. The limits are checked
+ * cooperatively by the lexer, the parser, the {@link AstBuilder} and the bridging visitor, which also stop when
+ * the translating thread is interrupted.
+ * <p>
+ * A budget is started for every statement, and must only be used by the thread translating it.
+ */
+public final class StatementBudget
+{
+    // number of tokens, rules and nodes processed between two checks of the deadline and the interrupt flag
+    private static final int CHECK_INTERVAL = 256;
+
+    private final int maxTokens;
+    private final int maxDepth;
+    private final long timeoutMillis;
+    private final long deadline;
+
+    private int tokens;
+    private int depth;
+    private int steps;
+
+    private StatementBudget(int maxTokens, int maxDepth, long timeoutMillis)
+    {
+        checkArgument(maxTokens > 0, "maxTokens must be > 0");
+        checkArgument(maxDepth > 0, "maxDepth must be > 0");
+        checkArgument(timeoutMillis >= 0, "timeoutMillis must be >= 0");
+        this.maxTokens = maxTokens;
+        this.maxDepth = maxDepth;
+        this.timeoutMillis = timeoutMillis;
+        this.deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Starts a budget with the given limits. A {@code timeoutMillis} of zero disables the time limit.
+     */
+    public static StatementBudget start(int maxTokens, int maxDepth, long timeoutMillis)
+    {
+        return new StatementBudget(maxTokens, maxDepth, timeoutMillis);
+    }
+
+    /**
+     * Starts a budget with the limits of {@code parserConfig}, or without limits when it is {@code null}.
+     */
+    public static StatementBudget start(ParserConfig parserConfig)
+    {
+        if (parserConfig == null) {
+            return unlimited();
+        }
+        return start(parserConfig.getMaxStatementTokens(), parserConfig.getMaxStatementDepth(), parserConfig.getStatementTimeoutMillis());
+    }
+
+    /**
+     * Returns a budget without limits, which still stops when the translating thread is interrupted.
+     */
+    public static StatementBudget unlimited()
+    {
+        return new StatementBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Checks the deadline and the interrupt flag of the current thread.
+     *
+     * @throws StatementAbortedException if the statement timed out or the thread was interrupted
+     */
+    public void check()
+    {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new StatementAbortedException(Reason.CANCELLED, "Statement cancelled");
+        }
+        if (timeoutMillis > 0 && System.nanoTime() - deadline > 0) {
+            throw new StatementAbortedException(Reason.TIMED_OUT, format("Statement timed out after %sms", timeoutMillis));
+        }
+    }
+
+    /**
+     * Counts one unit of work, checking the deadline and the interrupt flag every {@value #CHECK_INTERVAL} units.
+     */
+    public void step()
+    {
+        if (++steps == CHECK_INTERVAL) {
+            steps = 0;
+            check();
+        }
+    }
+
+    void tokenRead(Token token)
+    {
+        if (++tokens > maxTokens) {
+            throw new StatementAbortedException(
+                    Reason.TOO_MANY_TOKENS,
+                    format("Statement has more than %s tokens", maxTokens),
+                    AstBuilder.getLocation(token));
+        }
+        step();
+    }
+
+    void enterRule(ParserRuleContext context)
+    {
+        if (++depth > maxDepth) {
+            throw new StatementAbortedException(
+                    Reason.TOO_DEEPLY_NESTED,
+                    format("Statement is nested more than %s levels deep", maxDepth),
+                    AstBuilder.getLocation(context));
+        }
+        step();
+    }
+
+    void exitRule()
+    {
+        depth--;
+    }
+
+    /**
+     * Resets the nesting depth before the statement is parsed again, in LL mode.
+     */
+    void resetDepth()
+    {
+        depth = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("maxTokens", maxTokens)
+                .add("maxDepth", maxDepth)
+                .add("timeoutMillis", timeoutMillis)
+                .add("tokens", tokens)
+                .add("depth", depth)
+                .toString();
+    }
+}
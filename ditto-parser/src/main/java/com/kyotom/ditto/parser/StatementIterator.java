@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits the input on top-level semicolons while lexing it, and parses one statement at a time.
+ * The input is read through an {@link UnbufferedCharStream}, and tokens copy their text, so only
+ * the tokens of the current statement are held in memory.
+ */
+class StatementIterator
+        extends AbstractIterator<ParsedStatement>
+{
+    private final SqlParser sqlParser;
+    private final ParsingOptions parsingOptions;
+    private final HiveLexer lexer;
+
+    private final List<Token> tokens = new ArrayList<>();
+    private int lastDefaultToken = -1;
+    private ParsingException lexerError;
+
+    public StatementIterator(SqlParser sqlParser, Reader reader, ParsingOptions parsingOptions)
+    {
+        this.sqlParser = requireNonNull(sqlParser, "sqlParser is null");
+        this.parsingOptions = requireNonNull(parsingOptions, "parsingOptions is null");
+        requireNonNull(reader, "reader is null");
+
+        this.lexer = new HiveLexer(new CaseInsensitiveStream(new UnbufferedCharStream(reader)));
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener()
+        {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String message, RecognitionException e)
+            {
+                // keep lexing, the error is reported with the statement it belongs to
+                if (lexerError == null) {
+                    lexerError = new ParsingException(message, e, line, charPositionInLine + 1);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected ParsedStatement computeNext()
+    {
+        while (true) {
+            Token token = lexer.nextToken();
+            boolean endOfInput = token.getType() == Token.EOF;
+            boolean separator = token.getType() == HiveLexer.SEMICOLON && token.getChannel() == Token.DEFAULT_CHANNEL;
+
+            if (!endOfInput && !separator) {
+                if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+                    lastDefaultToken = tokens.size();
+                }
+                if (lastDefaultToken >= 0) {
+                    // leading whitespace and comments are not part of the statement
+                    tokens.add(token);
+                }
+                continue;
+            }
+
+            // the lexer keeps returning EOF, so a final statement without separator is followed by the end of data
+            if (lastDefaultToken >= 0 || lexerError != null) {
+                return nextStatement();
+            }
+            if (endOfInput) {
+                return endOfData();
+            }
+        }
+    }
+
+    private ParsedStatement nextStatement()
+    {
+        // an input containing only an invalid character has no tokens
+        List<Token> statementTokens = ImmutableList.copyOf(tokens.subList(0, lastDefaultToken + 1));
+        ParsingException error = lexerError;
+        tokens.clear();
+        lastDefaultToken = -1;
+        lexerError = null;
+
+        StringBuilder sql = new StringBuilder();
+        for (Token token : statementTokens) {
+            sql.append(token.getText());
+        }
+
+        if (error != null) {
+            return ParsedStatement.failed(sql.toString(), error);
+        }
+        try {
+            return ParsedStatement.parsed(sql.toString(), sqlParser.createStatement(statementTokens, parsingOptions));
+        }
+        catch (StatementAbortedException e) {
+            // the thread was interrupted, the remaining statements would be cancelled too
+            if (e.getReason() == StatementAbortedException.Reason.CANCELLED) {
+                throw e;
+            }
+            return ParsedStatement.failed(sql.toString(), e);
+        }
+        catch (ParsingException e) {
+            // syntax errors, and constructs the AST builder does not support
+            return ParsedStatement.failed(sql.toString(), e);
+        }
+    }
+}
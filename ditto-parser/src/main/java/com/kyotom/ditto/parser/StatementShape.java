@@ -0,0 +1,236 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import org.antlr.v4.runtime.Token;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The normalized text of a statement (see {@link TranslationCache}) split at its literals, which are the slots
+ * of a {@link TranslationTemplate}. Only the literals the translation writes back unchanged are slots: string
+ * literals of printable ASCII characters, and integers without leading zeros that fit in a {@code long}. Other
+ * literals are kept in the shape.
+ */
+final class StatementShape
+{
+    // marks the slots in the shape; statements with this character in a token are not split
+    private static final char SLOT = '\0';
+    private static final CharMatcher PRINTABLE_ASCII = CharMatcher.inRange((char) 0x20, (char) 0x7E);
+    private static final CharMatcher DIGITS = CharMatcher.inRange('0', '9');
+    // integers of up to 18 digits fit in a long
+    private static final int MAX_INTEGER_LENGTH = 18;
+
+    enum SlotType
+    {
+        STRING,
+        INTEGER,
+    }
+
+    // the normalized text between the slots, one more than the slots
+    private final List<String> fragments;
+    private final List<String> literals;
+    private final List<SlotType> types;
+    private final String shape;
+
+    private StatementShape(List<String> fragments, List<String> literals, List<SlotType> types)
+    {
+        this.fragments = requireNonNull(fragments, "fragments is null");
+        this.literals = requireNonNull(literals, "literals is null");
+        this.types = requireNonNull(types, "types is null");
+        StringBuilder shape = new StringBuilder(fragments.get(0));
+        for (int slot = 0; slot < literals.size(); slot++) {
+            shape.append(SLOT).append(types.get(slot) == SlotType.STRING ? 's' : 'n').append(fragments.get(slot + 1));
+        }
+        this.shape = shape.toString();
+    }
+
+    /**
+     * Returns the shape of a statement, or empty when it cannot be lexed.
+     */
+    static Optional<StatementShape> of(String sql)
+    {
+        return TranslationCache.lex(sql).flatMap(StatementShape::of);
+    }
+
+    /**
+     * Returns the shape of a statement split into tokens, or empty when a token contains the slot marker.
+     */
+    static Optional<StatementShape> of(List<? extends Token> tokens)
+    {
+        ImmutableList.Builder<String> fragments = ImmutableList.builder();
+        ImmutableList.Builder<String> literals = ImmutableList.builder();
+        ImmutableList.Builder<SlotType> types = ImmutableList.builder();
+        StringBuilder fragment = new StringBuilder();
+        boolean separated = false;
+        boolean empty = true;
+        for (Token token : tokens) {
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                separated = true;
+                continue;
+            }
+            String text = token.getText();
+            if (text.indexOf(SLOT) >= 0) {
+                return Optional.empty();
+            }
+            if (separated && !empty) {
+                fragment.append(' ');
+            }
+            separated = false;
+            empty = false;
+            SlotType type = slotType(token.getType(), text);
+            if (type == null) {
+                fragment.append(text);
+                continue;
+            }
+            fragments.add(fragment.toString());
+            fragment.setLength(0);
+            literals.add(text);
+            types.add(type);
+        }
+        fragments.add(fragment.toString());
+        return Optional.of(new StatementShape(fragments.build(), literals.build(), types.build()));
+    }
+
+    private static SlotType slotType(int tokenType, String text)
+    {
+        if (tokenType == HiveLexer.StringLiteral && PRINTABLE_ASCII.matchesAllOf(text)) {
+            return SlotType.STRING;
+        }
+        if (tokenType == HiveLexer.Number
+                && text.length() <= MAX_INTEGER_LENGTH
+                && DIGITS.matchesAllOf(text)
+                && (text.length() == 1 || text.charAt(0) != '0')) {
+            return SlotType.INTEGER;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the text of the statement with the literals replaced by slot markers.
+     */
+    String getShape()
+    {
+        return shape;
+    }
+
+    int getSlotCount()
+    {
+        return literals.size();
+    }
+
+    SlotType getType(int slot)
+    {
+        return types.get(slot);
+    }
+
+    String getLiteral(int slot)
+    {
+        return literals.get(slot);
+    }
+
+    String getNormalizedSql()
+    {
+        return render(new BitSet(), null);
+    }
+
+    /**
+     * Returns the text of the statement with the literals of the slots that are not {@code kept} replaced by
+     * {@code sentinels}, or with all its literals when {@code sentinels} is null.
+     */
+    String render(BitSet kept, Sentinels sentinels)
+    {
+        StringBuilder sql = new StringBuilder(shape.length() + 16 * literals.size());
+        sql.append(fragments.get(0));
+        for (int slot = 0; slot < literals.size(); slot++) {
+            if (sentinels == null || kept.get(slot)) {
+                sql.append(literals.get(slot));
+            }
+            else {
+                sentinels.appendLiteral(sql, types.get(slot), slot);
+            }
+            sql.append(fragments.get(slot + 1));
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Appends the literal of a slot as the translation writes it.
+     */
+    void appendTranslated(StringBuilder out, int slot)
+    {
+        appendTranslated(out, types.get(slot), literals.get(slot));
+    }
+
+    private static void appendTranslated(StringBuilder out, SlotType type, String literal)
+    {
+        if (type == SlotType.INTEGER) {
+            out.append(literal);
+            return;
+        }
+        // the value of a string literal is its text without the quotes, written with its quotes doubled
+        out.append('\'');
+        int end = literal.length() - 1;
+        for (int i = 1; i < end; i++) {
+            char c = literal.charAt(i);
+            if (c == '\'') {
+                out.append('\'');
+            }
+            out.append(c);
+        }
+        out.append('\'');
+    }
+
+    /**
+     * Distinct literals that replace the literals of a statement, to find where the translation writes them.
+     */
+    enum Sentinels
+    {
+        SHORT("~ditto", 1_000_000_000L),
+        // longer than the short sentinels, so that translations that depend on the length of literals are detected
+        LONG("~~~~~ditto", 1_000_000_000_000L);
+
+        private final String stringPrefix;
+        private final long integerBase;
+
+        Sentinels(String stringPrefix, long integerBase)
+        {
+            this.stringPrefix = stringPrefix;
+            this.integerBase = integerBase;
+        }
+
+        void appendLiteral(StringBuilder out, SlotType type, int slot)
+        {
+            if (type == SlotType.INTEGER) {
+                out.append(integerBase + slot);
+            }
+            else {
+                out.append('\'').append(stringPrefix).append(slot).append("~'");
+            }
+        }
+
+        String literal(SlotType type, int slot)
+        {
+            StringBuilder literal = new StringBuilder();
+            appendLiteral(literal, type, slot);
+            return literal.toString();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.base.CharMatcher;
+import io.trino.sql.ExpressionFormatter;
+import io.trino.sql.SqlFormatter;
+import io.trino.sql.tree.AstVisitor;
+import io.trino.sql.tree.BooleanLiteral;
+import io.trino.sql.tree.ColumnDefinition;
+import io.trino.sql.tree.CreateTable;
+import io.trino.sql.tree.DropTable;
+import io.trino.sql.tree.Expression;
+import io.trino.sql.tree.Identifier;
+import io.trino.sql.tree.Insert;
+import io.trino.sql.tree.LikeClause;
+import io.trino.sql.tree.LongLiteral;
+import io.trino.sql.tree.Node;
+import io.trino.sql.tree.Property;
+import io.trino.sql.tree.QualifiedName;
+import io.trino.sql.tree.Query;
+import io.trino.sql.tree.Row;
+import io.trino.sql.tree.StringLiteral;
+import io.trino.sql.tree.TableElement;
+import io.trino.sql.tree.Values;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Formats the Trino AST of translated statements into an {@link Appendable}, such as a {@link java.io.Writer},
+ * rather than into a {@code String}. The statements built by the translation, {@code CREATE TABLE},
+ * {@code DROP TABLE} and {@code INSERT ... VALUES}, are written piece by piece, with the same output as
+ * {@link SqlFormatter#formatSql(Node)}; other statements are formatted by {@link SqlFormatter}.
+ * <p>
+ * In single line mode the statements written piece by piece are written without line breaks and indentation,
+ * e.g. {@code INSERT INTO hive.db.t (a) VALUES ROW (1), ROW (2)}.
+ */
+public final class StreamingSqlFormatter
+{
+    private static final String INDENT = "   ";
+    private static final CharMatcher PRINTABLE_ASCII = CharMatcher.inRange((char) 0x20, (char) 0x7E);
+
+    private StreamingSqlFormatter() {}
+
+    public static void formatSql(Node root, Appendable out)
+            throws IOException
+    {
+        formatSql(root, out, false);
+    }
+
+    public static void formatSql(Node root, Appendable out, boolean singleLine)
+            throws IOException
+    {
+        requireNonNull(out, "out is null");
+        try {
+            new Formatter(out, singleLine).process(root, 0);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class Formatter
+            extends AstVisitor<Void, Integer>
+    {
+        private final Appendable out;
+        private final boolean singleLine;
+
+        private Formatter(Appendable out, boolean singleLine)
+        {
+            this.out = out;
+            this.singleLine = singleLine;
+        }
+
+        @Override
+        protected Void visitNode(Node node, Integer indent)
+        {
+            // line breaks are kept, as string literals may span lines
+            append(SqlFormatter.formatSql(node));
+            return null;
+        }
+
+        @Override
+        protected Void visitCreateTable(CreateTable node, Integer indent)
+        {
+            append("CREATE TABLE ");
+            if (node.isNotExists()) {
+                append("IF NOT EXISTS ");
+            }
+            appendName(node.getName());
+            append(singleLine ? " (" : " (\n");
+            List<TableElement> elements = node.getElements();
+            for (int i = 0; i < elements.size(); i++) {
+                if (i > 0) {
+                    append(singleLine ? ", " : ",\n");
+                }
+                if (!singleLine) {
+                    appendIndent(indent + 1);
+                }
+                TableElement element = elements.get(i);
+                if (element instanceof ColumnDefinition) {
+                    appendColumnDefinition((ColumnDefinition) element);
+                }
+                else if (element instanceof LikeClause) {
+                    LikeClause likeClause = (LikeClause) element;
+                    append("LIKE ");
+                    appendName(likeClause.getTableName());
+                    if (likeClause.getPropertiesOption().isPresent()) {
+                        append(" ").append(likeClause.getPropertiesOption().get().name()).append(" PROPERTIES");
+                    }
+                }
+                else {
+                    throw new UnsupportedOperationException("unknown table element: " + element);
+                }
+            }
+            append(singleLine ? ")" : "\n)");
+            if (node.getComment().isPresent()) {
+                append(singleLine ? " COMMENT " : "\nCOMMENT ").appendStringLiteral(node.getComment().get());
+            }
+
+            List<Property> properties = node.getProperties();
+            if (!properties.isEmpty()) {
+                append(singleLine ? " WITH (" : "\nWITH (\n");
+                for (int i = 0; i < properties.size(); i++) {
+                    if (i > 0) {
+                        append(singleLine ? ", " : ",\n");
+                    }
+                    if (!singleLine) {
+                        append(INDENT);
+                    }
+                    appendProperty(properties.get(i));
+                }
+                append(singleLine ? ")" : "\n)");
+            }
+            return null;
+        }
+
+        @Override
+        protected Void visitDropTable(DropTable node, Integer indent)
+        {
+            append("DROP TABLE ");
+            if (node.isExists()) {
+                append("IF EXISTS ");
+            }
+            append(node.getTableName().toString());
+            return null;
+        }
+
+        @Override
+        protected Void visitInsert(Insert node, Integer indent)
+        {
+            append("INSERT INTO ").append(node.getTarget().toString());
+            if (node.getColumns().isPresent()) {
+                append(" (");
+                List<Identifier> columns = node.getColumns().get();
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        append(", ");
+                    }
+                    append(columns.get(i).toString());
+                }
+                append(")");
+            }
+            if (!singleLine) {
+                append("\n");
+            }
+            return process(node.getQuery(), indent);
+        }
+
+        @Override
+        protected Void visitQuery(Query node, Integer indent)
+        {
+            if (node.getWith().isPresent() || node.getOrderBy().isPresent() || node.getOffset().isPresent() || node.getLimit().isPresent() ||
+                    !(node.getQueryBody() instanceof Values)) {
+                if (singleLine) {
+                    append(" ");
+                }
+                return visitNode(node, indent);
+            }
+            return process(node.getQueryBody(), indent);
+        }
+
+        @Override
+        protected Void visitValues(Values node, Integer indent)
+        {
+            append(" VALUES ");
+            boolean first = true;
+            for (Expression row : node.getRows()) {
+                if (!singleLine) {
+                    append("\n");
+                    appendIndent(indent);
+                    append(first ? "  " : ", ");
+                }
+                else if (!first) {
+                    append(", ");
+                }
+                appendExpression(row);
+                first = false;
+            }
+            if (!singleLine) {
+                append("\n");
+            }
+            return null;
+        }
+
+        private void appendColumnDefinition(ColumnDefinition column)
+        {
+            appendExpression(column.getName());
+            append(" ").append(column.getType().toString());
+            if (!column.isNullable()) {
+                append(" NOT NULL");
+            }
+            if (column.getComment().isPresent()) {
+                append(" COMMENT ").appendStringLiteral(column.getComment().get());
+            }
+            List<Property> properties = column.getProperties();
+            if (!properties.isEmpty()) {
+                append(" WITH ( ");
+                for (int i = 0; i < properties.size(); i++) {
+                    if (i > 0) {
+                        append(", ");
+                    }
+                    appendProperty(properties.get(i));
+                }
+                append(" )");
+            }
+        }
+
+        private void appendProperty(Property property)
+        {
+            appendExpression(property.getName());
+            append(" = ");
+            appendExpression(property.getValue());
+        }
+
+        /**
+         * Writes the expressions of the translated statements, and any other expression as formatted by
+         * {@link ExpressionFormatter}.
+         */
+        private void appendExpression(Expression expression)
+        {
+            if (expression instanceof Identifier && !((Identifier) expression).isDelimited()) {
+                append(((Identifier) expression).getValue());
+            }
+            else if (expression instanceof LongLiteral) {
+                append(Long.toString(((LongLiteral) expression).getValue()));
+            }
+            else if (expression instanceof BooleanLiteral) {
+                append(((BooleanLiteral) expression).getValue() ? "true" : "false");
+            }
+            else if (expression instanceof StringLiteral) {
+                appendStringLiteral(((StringLiteral) expression).getValue());
+            }
+            else if (expression instanceof Row) {
+                append("ROW (");
+                List<Expression> items = ((Row) expression).getItems();
+                for (int i = 0; i < items.size(); i++) {
+                    if (i > 0) {
+                        append(", ");
+                    }
+                    appendExpression(items.get(i));
+                }
+                append(")");
+            }
+            else {
+                append(ExpressionFormatter.formatExpression(expression));
+            }
+        }
+
+        private Formatter appendStringLiteral(String value)
+        {
+            if (!PRINTABLE_ASCII.matchesAllOf(value)) {
+                // written as a Unicode string literal
+                return append(ExpressionFormatter.formatExpression(new StringLiteral(value)));
+            }
+            append("'");
+            int start = 0;
+            for (int quote = value.indexOf('\''); quote >= 0; quote = value.indexOf('\'', start)) {
+                appendRange(value, start, quote + 1).append("'");
+                start = quote + 1;
+            }
+            return appendRange(value, start, value.length()).append("'");
+        }
+
+        private void appendName(QualifiedName name)
+        {
+            List<Identifier> parts = name.getOriginalParts();
+            for (int i = 0; i < parts.size(); i++) {
+                if (i > 0) {
+                    append(".");
+                }
+                appendExpression(parts.get(i));
+            }
+        }
+
+        private void appendIndent(int indent)
+        {
+            for (int i = 0; i < indent; i++) {
+                append(INDENT);
+            }
+        }
+
+        private Formatter appendRange(CharSequence value, int start, int end)
+        {
+            try {
+                out.append(value, start, end);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        private Formatter append(String value)
+        {
+            try {
+                out.append(value);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+    }
+}
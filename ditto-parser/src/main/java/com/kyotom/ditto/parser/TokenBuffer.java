@@ -0,0 +1,340 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tokens of one input stored in parallel int arrays rather than as one {@link org.antlr.v4.runtime.CommonToken}
+ * per token. {@link Token} views are created on demand, and read their text back from the input.
+ * <p>
+ * The input must be a {@link CaseFoldingCharStream}, which can return the text of any range of its input; the
+ * text of the tokens of other streams is copied when they are added. Lists of buffered tokens returned by
+ * {@link #subList(int, int)} are parsed by {@link SqlParser} without materializing the tokens the grammar
+ * does not look at, such as whitespace.
+ */
+public final class TokenBuffer
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CharStream input;
+    private final boolean copyText;
+
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] channels = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] stops = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] columns = new int[INITIAL_CAPACITY];
+    private String[] texts;
+    private int size;
+
+    public TokenBuffer(CharStream input)
+    {
+        this.input = requireNonNull(input, "input is null");
+        this.copyText = !(input instanceof CaseFoldingCharStream);
+        if (copyText) {
+            texts = new String[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Adds a token read from the input of this buffer.
+     */
+    public void add(Token token)
+    {
+        checkArgument(token.getInputStream() == input, "token is not read from the input of the buffer");
+        ensureCapacity(size + 1);
+        types[size] = token.getType();
+        channels[size] = token.getChannel();
+        starts[size] = token.getStartIndex();
+        stops[size] = token.getStopIndex();
+        lines[size] = token.getLine();
+        columns[size] = token.getCharPositionInLine();
+        if (copyText) {
+            texts[size] = token.getText();
+        }
+        size++;
+    }
+
+    /**
+     * Adds the tokens from {@code from}, inclusive, to {@code to}, exclusive, of a buffer with the same input.
+     */
+    public void addAll(TokenBuffer buffer, int from, int to)
+    {
+        checkArgument(buffer.input == input, "buffer does not have the same input");
+        checkPositionIndexes(from, to, buffer.size);
+        int count = to - from;
+        ensureCapacity(size + count);
+        System.arraycopy(buffer.types, from, types, size, count);
+        System.arraycopy(buffer.channels, from, channels, size, count);
+        System.arraycopy(buffer.starts, from, starts, size, count);
+        System.arraycopy(buffer.stops, from, stops, size, count);
+        System.arraycopy(buffer.lines, from, lines, size, count);
+        System.arraycopy(buffer.columns, from, columns, size, count);
+        if (copyText) {
+            System.arraycopy(buffer.texts, from, texts, size, count);
+        }
+        size += count;
+    }
+
+    public void clear()
+    {
+        if (copyText) {
+            Arrays.fill(texts, 0, size, null);
+        }
+        size = 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public CharStream getInputStream()
+    {
+        return input;
+    }
+
+    public int getType(int index)
+    {
+        checkElementIndex(index, size);
+        return types[index];
+    }
+
+    public int getChannel(int index)
+    {
+        checkElementIndex(index, size);
+        return channels[index];
+    }
+
+    /**
+     * Returns a view of the token at {@code index}, whose token index is {@code index}.
+     */
+    public Token get(int index)
+    {
+        return get(index, index);
+    }
+
+    /**
+     * Returns an unmodifiable list of the tokens from {@code from}, inclusive, to {@code to}, exclusive. The tokens
+     * are indexed from the start of the list. The list must not be used after the buffer is cleared.
+     */
+    public List<Token> subList(int from, int to)
+    {
+        checkPositionIndexes(from, to, size);
+        return new TokenList(this, from, to);
+    }
+
+    Token get(int index, int tokenIndex)
+    {
+        checkElementIndex(index, size);
+        return new TokenView(this, index, tokenIndex);
+    }
+
+    String getText(int index)
+    {
+        if (copyText) {
+            return texts[index];
+        }
+        return input.getText(Interval.of(starts[index], stops[index]));
+    }
+
+    int getStartIndex(int index)
+    {
+        return starts[index];
+    }
+
+    int getStopIndex(int index)
+    {
+        return stops[index];
+    }
+
+    int getLine(int index)
+    {
+        return lines[index];
+    }
+
+    int getCharPositionInLine(int index)
+    {
+        return columns[index];
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= types.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, newCapacity);
+        channels = Arrays.copyOf(channels, newCapacity);
+        starts = Arrays.copyOf(starts, newCapacity);
+        stops = Arrays.copyOf(stops, newCapacity);
+        lines = Arrays.copyOf(lines, newCapacity);
+        columns = Arrays.copyOf(columns, newCapacity);
+        if (copyText) {
+            texts = Arrays.copyOf(texts, newCapacity);
+        }
+    }
+
+    /**
+     * A range of the tokens of a buffer.
+     */
+    static final class TokenList
+            extends AbstractList<Token>
+            implements RandomAccess
+    {
+        private final TokenBuffer buffer;
+        private final int from;
+        private final int to;
+
+        private TokenList(TokenBuffer buffer, int from, int to)
+        {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        TokenBuffer getBuffer()
+        {
+            return buffer;
+        }
+
+        int getFrom()
+        {
+            return from;
+        }
+
+        int getTo()
+        {
+            return to;
+        }
+
+        @Override
+        public Token get(int index)
+        {
+            checkElementIndex(index, size());
+            return buffer.get(from + index, index);
+        }
+
+        @Override
+        public int size()
+        {
+            return to - from;
+        }
+
+        @Override
+        public List<Token> subList(int fromIndex, int toIndex)
+        {
+            checkPositionIndexes(fromIndex, toIndex, size());
+            return new TokenList(buffer, from + fromIndex, from + toIndex);
+        }
+    }
+
+    private static final class TokenView
+            implements Token
+    {
+        private final TokenBuffer buffer;
+        private final int index;
+        private final int tokenIndex;
+
+        private TokenView(TokenBuffer buffer, int index, int tokenIndex)
+        {
+            this.buffer = buffer;
+            this.index = index;
+            this.tokenIndex = tokenIndex;
+        }
+
+        @Override
+        public String getText()
+        {
+            return buffer.getText(index);
+        }
+
+        @Override
+        public int getType()
+        {
+            return buffer.types[index];
+        }
+
+        @Override
+        public int getLine()
+        {
+            return buffer.lines[index];
+        }
+
+        @Override
+        public int getCharPositionInLine()
+        {
+            return buffer.columns[index];
+        }
+
+        @Override
+        public int getChannel()
+        {
+            return buffer.channels[index];
+        }
+
+        @Override
+        public int getTokenIndex()
+        {
+            return tokenIndex;
+        }
+
+        @Override
+        public int getStartIndex()
+        {
+            return buffer.starts[index];
+        }
+
+        @Override
+        public int getStopIndex()
+        {
+            return buffer.stops[index];
+        }
+
+        @Override
+        public TokenSource getTokenSource()
+        {
+            return null;
+        }
+
+        @Override
+        public CharStream getInputStream()
+        {
+            return buffer.input;
+        }
+
+        @Override
+        public String toString()
+        {
+            String text = getText().replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+            return "[@" + tokenIndex + "," + getStartIndex() + ":" + getStopIndex() + "='" + text + "',<" + getType() + ">" +
+                    (getChannel() > 0 ? ",channel=" + getChannel() : "") + "," + getLine() + ":" + getCharPositionInLine() + "]";
+        }
+    }
+}
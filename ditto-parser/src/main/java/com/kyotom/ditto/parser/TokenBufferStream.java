@@ -0,0 +1,313 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A {@link TokenStream} of the default channel tokens of a {@link TokenBuffer.TokenList}, like a
+ * {@link org.antlr.v4.runtime.CommonTokenStream} that has buffered all of them. Token types are read from the
+ * buffer, and token views are only created for the tokens the parser asks for, such as the tokens it matches.
+ */
+final class TokenBufferStream
+        implements TokenStream
+{
+    private static final int RECENT_TOKENS = 8;
+
+    private final TokenBuffer buffer;
+    private final int from;
+    // number of tokens, the EOF token is at index size
+    private final int size;
+    private final Token eof;
+
+    private int position;
+    // the parser asks for the current and the previous token several times, e.g. for the start and stop tokens of rules
+    private final Token[] recentTokens = new Token[RECENT_TOKENS];
+
+    TokenBufferStream(TokenBuffer.TokenList tokens)
+    {
+        this.buffer = tokens.getBuffer();
+        this.from = tokens.getFrom();
+        this.size = tokens.size();
+        this.eof = createEof();
+        this.position = nextOnChannel(0);
+    }
+
+    /**
+     * Counts the default channel tokens of the stream in {@code budget}.
+     */
+    void countTokens(StatementBudget budget)
+    {
+        for (int i = 0; i < size; i++) {
+            if (buffer.getChannel(from + i) == Token.DEFAULT_CHANNEL) {
+                budget.tokenRead(get(i));
+            }
+        }
+        budget.check();
+    }
+
+    @Override
+    public Token LT(int k)
+    {
+        if (k == 0) {
+            return null;
+        }
+        if (k < 0) {
+            return LB(-k);
+        }
+        return get(skipOnChannel(k));
+    }
+
+    private Token LB(int k)
+    {
+        int index = position;
+        for (int n = 0; n < k; n++) {
+            index = previousOnChannel(index - 1);
+            if (index < 0) {
+                return null;
+            }
+        }
+        return get(index);
+    }
+
+    @Override
+    public int LA(int i)
+    {
+        if (i > 0) {
+            int index = skipOnChannel(i);
+            return index == size ? Token.EOF : buffer.getType(from + index);
+        }
+        Token token = LT(i);
+        return token == null ? 0 : token.getType();
+    }
+
+    private int skipOnChannel(int k)
+    {
+        int index = position;
+        for (int n = 1; n < k && index < size; n++) {
+            index = nextOnChannel(index + 1);
+        }
+        return index;
+    }
+
+    @Override
+    public void consume()
+    {
+        if (position == size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position = nextOnChannel(position + 1);
+    }
+
+    @Override
+    public Token get(int index)
+    {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("token index " + index + " out of range 0.." + size);
+        }
+        if (index == size) {
+            return eof;
+        }
+        int slot = index & (RECENT_TOKENS - 1);
+        Token token = recentTokens[slot];
+        if (token == null || token.getTokenIndex() != index) {
+            token = buffer.get(from + index, index);
+            recentTokens[slot] = token;
+        }
+        return token;
+    }
+
+    /**
+     * Returns a new source of all the tokens of the stream, for parsers that do not need a token stream.
+     */
+    @Override
+    public Source getTokenSource()
+    {
+        return new Source();
+    }
+
+    @Override
+    public String getText(Interval interval)
+    {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        StringBuilder text = new StringBuilder();
+        for (int i = start; i <= stop; i++) {
+            text.append(buffer.getText(from + i));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String getText()
+    {
+        return getText(Interval.of(0, size - 1));
+    }
+
+    @Override
+    public String getText(RuleContext context)
+    {
+        return getText(context.getSourceInterval());
+    }
+
+    @Override
+    public String getText(Token start, Token stop)
+    {
+        if (start == null || stop == null) {
+            return "";
+        }
+        return getText(Interval.of(start.getTokenIndex(), stop.getTokenIndex()));
+    }
+
+    @Override
+    public int mark()
+    {
+        return 0;
+    }
+
+    @Override
+    public void release(int marker)
+    {
+    }
+
+    @Override
+    public int index()
+    {
+        return position;
+    }
+
+    @Override
+    public void seek(int index)
+    {
+        position = nextOnChannel(Math.max(0, Math.min(index, size)));
+    }
+
+    @Override
+    public int size()
+    {
+        return size + 1;
+    }
+
+    @Override
+    public String getSourceName()
+    {
+        return buffer.getInputStream().getSourceName();
+    }
+
+    private int nextOnChannel(int index)
+    {
+        while (index < size && buffer.getChannel(from + index) != Token.DEFAULT_CHANNEL) {
+            index++;
+        }
+        return index;
+    }
+
+    private int previousOnChannel(int index)
+    {
+        while (index >= 0 && buffer.getChannel(from + index) != Token.DEFAULT_CHANNEL) {
+            index--;
+        }
+        return index;
+    }
+
+    private Token createEof()
+    {
+        // placed right after the last token, like the EOF token of a ListTokenSource
+        int start = 0;
+        int line = 1;
+        int column = 0;
+        if (size > 0) {
+            int last = from + size - 1;
+            start = buffer.getStopIndex(last) + 1;
+            String text = buffer.getText(last);
+            line = buffer.getLine(last);
+            column = buffer.getCharPositionInLine(last) + text.length();
+            int newline = text.lastIndexOf('\n');
+            if (newline >= 0) {
+                line += (int) text.chars().filter(c -> c == '\n').count();
+                column = text.length() - newline - 1;
+            }
+        }
+        CommonToken token = new CommonToken(Token.EOF, "<EOF>");
+        token.setStartIndex(start);
+        token.setStopIndex(start - 1);
+        token.setLine(line);
+        token.setCharPositionInLine(column);
+        token.setTokenIndex(size);
+        return token;
+    }
+
+    final class Source
+            implements TokenSource
+    {
+        private int index;
+
+        TokenBufferStream getStream()
+        {
+            return TokenBufferStream.this;
+        }
+
+        @Override
+        public Token nextToken()
+        {
+            if (index == size) {
+                return eof;
+            }
+            return buffer.get(from + index, index++);
+        }
+
+        @Override
+        public int getLine()
+        {
+            return index == size ? eof.getLine() : buffer.getLine(from + index);
+        }
+
+        @Override
+        public int getCharPositionInLine()
+        {
+            return index == size ? eof.getCharPositionInLine() : buffer.getCharPositionInLine(from + index);
+        }
+
+        @Override
+        public CharStream getInputStream()
+        {
+            return buffer.getInputStream();
+        }
+
+        @Override
+        public String getSourceName()
+        {
+            return TokenBufferStream.this.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory)
+        {
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory()
+        {
+            return CommonTokenFactory.DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.bridging.DefaultCatalogs;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Translations of statements, keyed by the normalized text of the statement and a fingerprint of the settings
+ * that change the translation (see {@link #fingerprint}). The text is normalized with the Hive lexer: whitespace
+ * and line comments are dropped, and a single space is kept where they separated two tokens, so statements that
+ * only differ in layout share an entry. Block comments are kept, as the lexer returns them as hints. Only
+ * successful translations are cached.
+ * <p>
+ * The cache is bounded by the total length of the statements and translations it keeps, and is safe for
+ * concurrent use. It can be shared by translators with different configurations.
+ */
+public final class TranslationCache
+{
+    private static final BaseErrorListener LEXER_ERROR_LISTENER = new BaseErrorListener()
+    {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String message, RecognitionException e)
+        {
+            throw new ParsingException(message, e, line, charPositionInLine + 1);
+        }
+    };
+
+    private final Cache<Key, String> cache;
+
+    /**
+     * @param maxWeight the maximum total length, in characters, of the cached statements and translations
+     */
+    public TranslationCache(long maxWeight)
+    {
+        checkArgument(maxWeight > 0, "maxWeight must be positive");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key key, String translation) -> key.getWeight() + translation.length())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a cache sized by {@code parser.translation-cache.max-weight}, or empty when the cache is disabled.
+     */
+    public static Optional<TranslationCache> create(ParserConfig parserConfig)
+    {
+        if (parserConfig.getTranslationCacheMaxWeight() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new TranslationCache(parserConfig.getTranslationCacheMaxWeight()));
+    }
+
+    /**
+     * Returns the fingerprint of the translations of a translator whose bridging has the built-in rewrite rules of
+     * {@code parserConfig}.
+     */
+    public static String fingerprint(ParserConfig parserConfig)
+    {
+        return fingerprint(DefaultCatalogs.of(parserConfig), parserConfig);
+    }
+
+    /**
+     * Returns the settings the translation of a statement depends on: the default catalogs of the built-in
+     * rewrite rules, and the single-line output of {@code parserConfig}.
+     */
+    public static String fingerprint(DefaultCatalogs catalogs, ParserConfig parserConfig)
+    {
+        return catalogs.getHiveCatalog() + '\0' + catalogs.getKuduCatalog() + '\0' + parserConfig.isSingleLineOutputEnabled();
+    }
+
+    Optional<String> get(String fingerprint, String normalizedSql)
+    {
+        return Optional.ofNullable(cache.getIfPresent(new Key(fingerprint, normalizedSql)));
+    }
+
+    void put(String fingerprint, String normalizedSql, String translation)
+    {
+        cache.put(new Key(fingerprint, normalizedSql), translation);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache.
+     */
+    public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the normalized text of a statement, or empty when it cannot be lexed; the statement is then
+     * translated without the cache, which reports the error.
+     */
+    static Optional<String> normalize(String sql)
+    {
+        HiveLexer lexer = newLexer(sql);
+        StringBuilder normalized = new StringBuilder(sql.length());
+        boolean separated = false;
+        try {
+            for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+                separated = append(normalized, token, separated);
+            }
+        }
+        catch (ParsingException e) {
+            return Optional.empty();
+        }
+        return Optional.of(normalized.toString());
+    }
+
+    /**
+     * Returns the tokens of a statement, or empty when it cannot be lexed.
+     */
+    static Optional<List<Token>> lex(String sql)
+    {
+        HiveLexer lexer = newLexer(sql);
+        ImmutableList.Builder<Token> tokens = ImmutableList.builder();
+        try {
+            for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+                tokens.add(token);
+            }
+        }
+        catch (ParsingException e) {
+            return Optional.empty();
+        }
+        return Optional.of(tokens.build());
+    }
+
+    private static HiveLexer newLexer(String sql)
+    {
+        HiveLexer lexer = new HiveLexer(CaseFoldingCharStream.fromString(sql));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(LEXER_ERROR_LISTENER);
+        return lexer;
+    }
+
+    /**
+     * Returns the normalized text of a statement split into tokens.
+     */
+    static String normalize(List<? extends Token> tokens)
+    {
+        StringBuilder normalized = new StringBuilder();
+        boolean separated = false;
+        for (Token token : tokens) {
+            separated = append(normalized, token, separated);
+        }
+        return normalized.toString();
+    }
+
+    private static boolean append(StringBuilder normalized, Token token, boolean separated)
+    {
+        if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+            return true;
+        }
+        if (separated && normalized.length() > 0) {
+            normalized.append(' ');
+        }
+        normalized.append(token.getText());
+        return false;
+    }
+
+    static final class Key
+    {
+        private final String fingerprint;
+        private final String sql;
+
+        Key(String fingerprint, String sql)
+        {
+            this.fingerprint = requireNonNull(fingerprint, "fingerprint is null");
+            this.sql = requireNonNull(sql, "sql is null");
+        }
+
+        int getWeight()
+        {
+            return sql.length();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return sql.equals(key.sql) && fingerprint.equals(key.fingerprint);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(fingerprint, sql);
+        }
+    }
+}
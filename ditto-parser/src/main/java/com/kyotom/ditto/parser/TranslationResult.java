@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * One item of {@link SqlTranslator#translateAll}: the text of a statement, and either its translation or the
+ * error that prevented translating it.
+ */
+public final class TranslationResult
+{
+    private final String sql;
+    private final Optional<String> translation;
+    private final Optional<RuntimeException> error;
+
+    private TranslationResult(String sql, Optional<String> translation, Optional<RuntimeException> error)
+    {
+        this.sql = requireNonNull(sql, "sql is null");
+        this.translation = requireNonNull(translation, "translation is null");
+        this.error = requireNonNull(error, "error is null");
+        checkArgument(translation.isPresent() != error.isPresent(), "exactly one of translation and error must be present");
+    }
+
+    public static TranslationResult translated(String sql, String translation)
+    {
+        return new TranslationResult(sql, Optional.of(translation), Optional.empty());
+    }
+
+    public static TranslationResult failed(String sql, RuntimeException error)
+    {
+        return new TranslationResult(sql, Optional.empty(), Optional.of(error));
+    }
+
+    public String getSql()
+    {
+        return sql;
+    }
+
+    public Optional<String> getTranslation()
+    {
+        return translation;
+    }
+
+    public Optional<RuntimeException> getError()
+    {
+        return error;
+    }
+
+    public boolean isFailed()
+    {
+        return error.isPresent();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("sql", sql)
+                .add("translation", translation.orElse(null))
+                .add("error", error.map(RuntimeException::getMessage).orElse(null))
+                .omitNullValues()
+                .toString();
+    }
+}
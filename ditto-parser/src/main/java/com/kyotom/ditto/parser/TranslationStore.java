@@ -0,0 +1,335 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.kyotom.ditto.client.ParserConfig;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Translations stored in an append-only file, so that they are reused by later runs of the command line
+ * interface. Entries are indexed by a 128-bit hash of the normalized statement and of the config fingerprint
+ * (see {@link TranslationCache}); the entries of the previous runs are read from a memory mapping of the file,
+ * and the entries appended by this run from the file itself. The store stops appending when the file would grow
+ * too large to be mapped by the next run.
+ * <p>
+ * The file starts with the version of the translation, derived from the build of ditto and its grammar, and
+ * is started over when the version changes. Each record is written with a checksum, and the file is truncated
+ * to its last complete record when opened, so a run that crashes while appending does not corrupt it. The
+ * file is locked while open; when another process holds the lock, translations are not stored.
+ */
+public final class TranslationStore
+        implements Closeable
+{
+    private static final Logger LOG = Logger.getLogger(TranslationStore.class.getName());
+
+    private static final int MAGIC = 0x4454_5331;
+    // hash, translation length and checksum
+    private static final int RECORD_HEADER_SIZE = 16 + Integer.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final MappedByteBuffer mapping;
+    // offset and length of the translations of the previous runs in the mapping
+    private final Map<HashCode, Long> storedEntries = new ConcurrentHashMap<>();
+    // offset and length of the translations appended by this run in the file
+    private final Map<HashCode, Long> appendedEntries = new ConcurrentHashMap<>();
+    private long size;
+    private boolean closed;
+
+    private TranslationStore(FileChannel channel, FileLock lock, String version)
+            throws IOException
+    {
+        this.channel = requireNonNull(channel, "channel is null");
+        this.lock = requireNonNull(lock, "lock is null");
+        byte[] header = header(version);
+
+        long fileSize = channel.size();
+        MappedByteBuffer mapping = null;
+        if (fileSize >= header.length && fileSize <= Integer.MAX_VALUE) {
+            mapping = channel.map(MapMode.READ_ONLY, 0, fileSize);
+            byte[] fileHeader = new byte[header.length];
+            read(mapping, 0, fileHeader);
+            if (!Arrays.equals(header, fileHeader)) {
+                mapping = null;
+            }
+        }
+        if (mapping == null) {
+            // new file, other version or too large to map: start over
+            channel.truncate(0);
+            writeFully(ByteBuffer.wrap(header), 0);
+            channel.force(true);
+            size = header.length;
+        }
+        else {
+            size = readEntries(mapping, header.length);
+            if (size < fileSize) {
+                LOG.warning("Truncating incomplete translation store records after offset " + size);
+                channel.truncate(size);
+            }
+        }
+        this.mapping = mapping;
+    }
+
+    /**
+     * Opens the store at {@code parser.translation-cache.file}, or returns empty when it is not set or cannot be
+     * opened.
+     */
+    public static Optional<TranslationStore> open(ParserConfig parserConfig)
+    {
+        if (parserConfig.getTranslationCacheFile() == null) {
+            return Optional.empty();
+        }
+        return open(Paths.get(parserConfig.getTranslationCacheFile()), buildVersion());
+    }
+
+    static Optional<TranslationStore> open(Path file, String version)
+    {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, CREATE, READ, WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                LOG.warning("Translation store " + file + " is used by another process, translations are not stored");
+                channel.close();
+                return Optional.empty();
+            }
+            return Optional.of(new TranslationStore(channel, lock, version));
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.warning("Cannot open translation store " + file + ", translations are not stored: " + e);
+            if (channel != null) {
+                try {
+                    channel.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    Optional<String> get(String fingerprint, String normalizedSql)
+    {
+        HashCode key = key(fingerprint, normalizedSql);
+        Long entry = storedEntries.get(key);
+        if (entry != null) {
+            ByteBuffer translation = mapping.duplicate();
+            translation.position(offset(entry)).limit(offset(entry) + length(entry));
+            return Optional.of(UTF_8.decode(translation).toString());
+        }
+        entry = appendedEntries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        ByteBuffer translation = ByteBuffer.allocate(length(entry));
+        try {
+            readFully(translation, offset(entry));
+        }
+        catch (IOException e) {
+            LOG.warning("Cannot read from translation store: " + e);
+            return Optional.empty();
+        }
+        translation.flip();
+        return Optional.of(UTF_8.decode(translation).toString());
+    }
+
+    void put(String fingerprint, String normalizedSql, String translation)
+    {
+        HashCode key = key(fingerprint, normalizedSql);
+        if (storedEntries.containsKey(key) || appendedEntries.containsKey(key)) {
+            return;
+        }
+        byte[] bytes = translation.getBytes(UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+        record.put(key.asBytes()).putInt(bytes.length).putInt(checksum(key.asBytes(), bytes)).put(bytes).flip();
+        synchronized (this) {
+            if (closed || appendedEntries.containsKey(key) || size + record.capacity() > Integer.MAX_VALUE) {
+                return;
+            }
+            try {
+                writeFully(record, size);
+                // the entry is visible once its record is written
+                appendedEntries.put(key, entry(size + RECORD_HEADER_SIZE, bytes.length));
+                size += record.capacity();
+            }
+            catch (IOException e) {
+                // the partial record is dropped when the store is opened again
+                LOG.warning("Cannot append to translation store: " + e);
+            }
+        }
+    }
+
+    public int size()
+    {
+        return storedEntries.size() + appendedEntries.size();
+    }
+
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            lock.release();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Indexes the records of the mapping, and returns the offset after the last complete one.
+     */
+    private long readEntries(MappedByteBuffer mapping, int offset)
+    {
+        byte[] hash = new byte[16];
+        while (mapping.limit() - offset >= RECORD_HEADER_SIZE) {
+            read(mapping, offset, hash);
+            int length = mapping.getInt(offset + hash.length);
+            int checksum = mapping.getInt(offset + hash.length + Integer.BYTES);
+            int valueOffset = offset + RECORD_HEADER_SIZE;
+            if (length < 0 || length > mapping.limit() - valueOffset) {
+                break;
+            }
+            byte[] value = new byte[length];
+            read(mapping, valueOffset, value);
+            if (checksum(hash, value) != checksum) {
+                break;
+            }
+            storedEntries.put(HashCode.fromBytes(hash.clone()), entry(valueOffset, length));
+            offset = valueOffset + length;
+        }
+        return offset;
+    }
+
+    private static long entry(long offset, int length)
+    {
+        return (offset << 32) | length;
+    }
+
+    private static int offset(long entry)
+    {
+        return (int) (entry >>> 32);
+    }
+
+    private static int length(long entry)
+    {
+        return (int) entry;
+    }
+
+    private static void read(ByteBuffer buffer, int offset, byte[] target)
+    {
+        buffer.duplicate().position(offset).get(target);
+    }
+
+    private void readFully(ByteBuffer buffer, long position)
+            throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Translation store ends at offset " + position);
+            }
+            position += read;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position)
+            throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static HashCode key(String fingerprint, String normalizedSql)
+    {
+        return Hashing.murmur3_128().newHasher()
+                .putString(fingerprint, UTF_8)
+                .putByte((byte) 0)
+                .putString(normalizedSql, UTF_8)
+                .hash();
+    }
+
+    private static int checksum(byte[] hash, byte[] value)
+    {
+        CRC32C crc = new CRC32C();
+        crc.update(hash);
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] header(String version)
+    {
+        byte[] bytes = version.getBytes(UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES * 2 + bytes.length)
+                .putInt(MAGIC)
+                .putInt(bytes.length)
+                .put(bytes)
+                .array();
+    }
+
+    /**
+     * Returns the version of the translation: the version of ditto, the grammar, and the size and time of the
+     * jar or directory the classes are loaded from, which changes with every build.
+     */
+    static String buildVersion()
+    {
+        StringBuilder version = new StringBuilder()
+                .append(SqlTranslator.class.getPackage().getImplementationVersion())
+                .append('/')
+                .append(Hashing.murmur3_128().hashString(HiveParser._serializedATN, UTF_8));
+        CodeSource codeSource = SqlTranslator.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) {
+            try {
+                File location = new File(codeSource.getLocation().toURI());
+                version.append('/').append(location.length()).append('/').append(location.lastModified());
+            }
+            catch (URISyntaxException | IllegalArgumentException ignored) {
+                // not a file
+            }
+        }
+        return version.toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.kyotom.ditto.parser.StatementShape.Sentinels;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The translation of a {@link StatementShape}, split at the places the literals of its slots are written. The
+ * translation of another statement of the same shape is the template with the literals of the statement spliced
+ * in, without parsing it.
+ * <p>
+ * A template is built by translating the statement with its literals replaced by sentinels, twice with sentinels
+ * of different lengths, and finding where the translations write them. Slots whose sentinel is not written
+ * exactly once, such as string literals translated to identifiers, are kept: the template is only used for
+ * statements with the same literals in these slots. No template is built when the two translations differ
+ * outside of the slots, or when the template does not reproduce the translation of the statement.
+ */
+final class TranslationTemplate
+{
+    // each attempt keeps the slots whose sentinels were not found by the previous one
+    private static final int MAX_ATTEMPTS = 3;
+
+    // the translation between the slots, one more than the slots
+    private final List<String> fragments;
+    // the slots in the order they are written
+    private final int[] slots;
+    private final Map<Integer, String> keptLiterals;
+
+    private TranslationTemplate(List<String> fragments, int[] slots, Map<Integer, String> keptLiterals)
+    {
+        this.fragments = requireNonNull(fragments, "fragments is null");
+        this.slots = requireNonNull(slots, "slots is null");
+        this.keptLiterals = requireNonNull(keptLiterals, "keptLiterals is null");
+    }
+
+    /**
+     * Builds the template of {@code shape}, whose statement translates to {@code translation}, translating the
+     * statements with sentinels with {@code translator}. Returns empty when the translation of the shape cannot
+     * be split at its slots.
+     */
+    static Optional<TranslationTemplate> create(StatementShape shape, String translation, Function<String, String> translator)
+    {
+        if (shape.getSlotCount() == 0) {
+            return Optional.of(new TranslationTemplate(ImmutableList.of(translation), new int[0], ImmutableMap.of()));
+        }
+        BitSet kept = new BitSet();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            String shortTranslation;
+            String longTranslation;
+            try {
+                shortTranslation = translator.apply(shape.render(kept, Sentinels.SHORT));
+                longTranslation = translator.apply(shape.render(kept, Sentinels.LONG));
+            }
+            catch (RuntimeException e) {
+                return Optional.empty();
+            }
+            BitSet missing = new BitSet();
+            TranslationTemplate template = split(shape, kept, Sentinels.SHORT, shortTranslation, missing);
+            TranslationTemplate longTemplate = split(shape, kept, Sentinels.LONG, longTranslation, missing);
+            if (!missing.isEmpty()) {
+                kept.or(missing);
+                continue;
+            }
+            if (!template.fragments.equals(longTemplate.fragments)
+                    || !Arrays.equals(template.slots, longTemplate.slots)
+                    || !template.render(shape).map(translation::equals).orElse(false)) {
+                return Optional.empty();
+            }
+            return Optional.of(template);
+        }
+        return Optional.empty();
+    }
+
+    private static TranslationTemplate split(StatementShape shape, BitSet kept, Sentinels sentinels, String translation, BitSet missing)
+    {
+        // slots by the offset their sentinel is written at
+        TreeMap<Integer, Integer> offsets = new TreeMap<>();
+        ImmutableMap.Builder<Integer, String> keptLiterals = ImmutableMap.builder();
+        for (int slot = 0; slot < shape.getSlotCount(); slot++) {
+            if (kept.get(slot)) {
+                keptLiterals.put(slot, shape.getLiteral(slot));
+                continue;
+            }
+            String sentinel = sentinels.literal(shape.getType(slot), slot);
+            int offset = find(translation, sentinel, 0);
+            if (offset < 0 || find(translation, sentinel, offset + sentinel.length()) >= 0) {
+                missing.set(slot);
+                continue;
+            }
+            offsets.put(offset, slot);
+        }
+        ImmutableList.Builder<String> fragments = ImmutableList.builder();
+        int[] slots = new int[offsets.size()];
+        int start = 0;
+        int index = 0;
+        for (Map.Entry<Integer, Integer> entry : offsets.entrySet()) {
+            fragments.add(translation.substring(start, entry.getKey()));
+            slots[index++] = entry.getValue();
+            start = entry.getKey() + sentinels.literal(shape.getType(entry.getValue()), entry.getValue()).length();
+        }
+        fragments.add(translation.substring(start));
+        return new TranslationTemplate(fragments.build(), slots, keptLiterals.build());
+    }
+
+    /**
+     * Returns the offset of {@code sentinel} in {@code translation} from {@code from}, where it is not part of a
+     * longer word or number.
+     */
+    private static int find(String translation, String sentinel, int from)
+    {
+        for (int offset = translation.indexOf(sentinel, from); offset >= 0; offset = translation.indexOf(sentinel, offset + 1)) {
+            int end = offset + sentinel.length();
+            if ((offset == 0 || !isWordPart(translation.charAt(offset - 1)))
+                    && (end == translation.length() || !isWordPart(translation.charAt(end)))) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWordPart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    /**
+     * Returns the translation of a statement of the shape of the template, or empty when the statement has other
+     * literals than the template in the slots that are kept.
+     */
+    Optional<String> render(StatementShape shape)
+    {
+        for (Map.Entry<Integer, String> entry : keptLiterals.entrySet()) {
+            if (!shape.getLiteral(entry.getKey()).equals(entry.getValue())) {
+                return Optional.empty();
+            }
+        }
+        int length = 0;
+        for (String fragment : fragments) {
+            length += fragment.length();
+        }
+        StringBuilder translation = new StringBuilder(length + 16 * slots.length);
+        translation.append(fragments.get(0));
+        for (int i = 0; i < slots.length; i++) {
+            shape.appendTranslated(translation, slots[i]);
+            translation.append(fragments.get(i + 1));
+        }
+        return Optional.of(translation.toString());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.kyotom.ditto.client.ParserConfig;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Templates of translations, keyed by the shape of the statement, its text without the literals (see
+ * {@link StatementShape}), and the config fingerprint of {@link TranslationCache}. Statements that only differ in
+ * their literals, such as {@code INSERT ... VALUES} statements generated with other values, are translated once
+ * per shape, and then by splicing their literals into the {@link TranslationTemplate} without parsing them.
+ * <p>
+ * Building a template translates the statement again, so templates are only built for shapes seen twice:
+ * statements that all have a shape of their own, such as {@code CREATE TABLE} statements of distinct tables,
+ * are not translated more than once. The shapes seen once are remembered by their hash in a table of the size of
+ * the cache, where a shape replaces the one with the same index. Shapes no template can be built for are cached
+ * too, so that their statements are translated without trying again.
+ * <p>
+ * The cache is bounded by the number of shapes, and is safe for concurrent use.
+ */
+public final class TranslationTemplates
+{
+    private static final int MAX_SEEN_SHAPES = 1 << 20;
+
+    private final Cache<TranslationCache.Key, Optional<TranslationTemplate>> cache;
+    // hashes of the shapes seen once, 0 for none
+    private final AtomicLongArray seenShapes;
+
+    public TranslationTemplates(long maxSize)
+    {
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.seenShapes = new AtomicLongArray(toIntExact(Math.min(maxSize, MAX_SEEN_SHAPES)));
+    }
+
+    /**
+     * Returns a cache sized by {@code parser.translation-templates.max-size}, or empty when the templates are
+     * disabled.
+     */
+    public static Optional<TranslationTemplates> create(ParserConfig parserConfig)
+    {
+        if (parserConfig.getTranslationTemplatesMaxSize() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new TranslationTemplates(parserConfig.getTranslationTemplatesMaxSize()));
+    }
+
+    /**
+     * Returns the translation of a statement from the template of its shape, or from {@code translation} when
+     * there is none; the template of a new shape is built with {@code translator}, which translates a statement
+     * without the caches.
+     */
+    String translate(String fingerprint, StatementShape shape, Supplier<String> translation, Function<String, String> translator)
+    {
+        TranslationCache.Key key = new TranslationCache.Key(fingerprint, shape.getShape());
+        Optional<TranslationTemplate> template = cache.getIfPresent(key);
+        if (template != null) {
+            Optional<String> rendered = template.flatMap(value -> value.render(shape));
+            if (rendered.isPresent()) {
+                return rendered.get();
+            }
+            return translation.get();
+        }
+        if (!seen(fingerprint, shape)) {
+            return translation.get();
+        }
+        String translated = translation.get();
+        cache.put(key, TranslationTemplate.create(shape, translated, translator));
+        return translated;
+    }
+
+    /**
+     * Returns whether a shape was seen before, and remembers it otherwise.
+     */
+    private boolean seen(String fingerprint, StatementShape shape)
+    {
+        long hash = Hashing.murmur3_128().newHasher()
+                .putUnencodedChars(fingerprint)
+                .putUnencodedChars(shape.getShape())
+                .hash()
+                .asLong();
+        if (hash == 0) {
+            hash = 1;
+        }
+        int index = (int) Math.floorMod(hash, (long) seenShapes.length());
+        if (seenShapes.get(index) == hash) {
+            return true;
+        }
+        seenShapes.lazySet(index, hash);
+        return false;
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the shapes.
+     */
+    public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.parser.bridging.DefaultCatalogs;
+import com.kyotom.ditto.parser.bridging.TableFormatRule;
+import io.trino.sql.tree.BooleanLiteral;
+import io.trino.sql.tree.ColumnDefinition;
+import io.trino.sql.tree.CreateTable;
+import io.trino.sql.tree.DataType;
+import io.trino.sql.tree.DataTypeParameter;
+import io.trino.sql.tree.DereferenceExpression;
+import io.trino.sql.tree.Expression;
+import io.trino.sql.tree.GenericDataType;
+import io.trino.sql.tree.Identifier;
+import io.trino.sql.tree.Insert;
+import io.trino.sql.tree.LikeClause;
+import io.trino.sql.tree.LongLiteral;
+import io.trino.sql.tree.Node;
+import io.trino.sql.tree.NodeLocation;
+import io.trino.sql.tree.NumericParameter;
+import io.trino.sql.tree.Property;
+import io.trino.sql.tree.QualifiedName;
+import io.trino.sql.tree.Query;
+import io.trino.sql.tree.Row;
+import io.trino.sql.tree.Statement;
+import io.trino.sql.tree.StringLiteral;
+import io.trino.sql.tree.TableElement;
+import io.trino.sql.tree.Values;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds the Trino AST of a statement straight from its parse tree, without building the ditto tree first, for
+ * the statements that {@link AstBuilder} and {@link com.kyotom.ditto.parser.bridging.Bridging} translate
+ * node for node: {@code CREATE TABLE} with primitive column types, and {@code INSERT ... VALUES} of literals
+ * and column references. The result is the same tree the two steps build.
+ * <p>
+ * The two steps remain the reference. A statement using anything else is left to them by {@link #build}, so
+ * that the errors of the translation are reported in one place.
+ */
+final class TrinoAstBuilder
+        extends HiveParserBaseVisitor<Node>
+{
+    private static final CharMatcher DIGITS = CharMatcher.inRange('0', '9');
+    // the identifiers Trino accepts without quotes
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_]([a-zA-Z0-9_:@])*");
+    // integers of up to 18 digits fit in a long
+    private static final int MAX_INTEGER_LENGTH = 18;
+    // thrown for any construct the builder does not handle, so it needs no stack trace
+    private static final UnsupportedConstructException UNSUPPORTED = new UnsupportedConstructException();
+
+    private final DefaultCatalogs catalogs;
+    private final StatementBudget budget;
+    private final boolean nodeLocations;
+
+    private TrinoAstBuilder(ParsingOptions parsingOptions, DefaultCatalogs catalogs, StatementBudget budget)
+    {
+        this.catalogs = requireNonNull(catalogs, "catalogs is null");
+        this.budget = requireNonNull(budget, "budget is null");
+        this.nodeLocations = parsingOptions.isNodeLocationsEnabled();
+    }
+
+    /**
+     * Returns the Trino AST of a statement parsed with {@link HiveParser#statement()}, or empty if it has to be
+     * built by {@link AstBuilder} and converted by {@link com.kyotom.ditto.parser.bridging.Bridging}. The tables
+     * are prefixed with the {@code catalogs} of the built-in rewrite rules of the bridging.
+     */
+    public static Optional<Statement> build(ParserRuleContext tree, ParsingOptions parsingOptions, DefaultCatalogs catalogs, StatementBudget budget)
+    {
+        try {
+            Node node = new TrinoAstBuilder(parsingOptions, catalogs, budget).visit(tree);
+            if (node instanceof Statement) {
+                return Optional.of((Statement) node);
+            }
+        }
+        catch (UnsupportedConstructException e) {
+            // left to the two steps
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Node visit(ParseTree tree)
+    {
+        budget.step();
+        return super.visit(tree);
+    }
+
+    /**
+     * Skips through the rules with a single child, such as the alternatives that lead to a statement. The
+     * builder does not handle any other rule it has no visitor for.
+     */
+    @Override
+    public Node visitChildren(RuleNode node)
+    {
+        if (node.getChildCount() != 1) {
+            throw UNSUPPORTED;
+        }
+        return visit(node.getChild(0));
+    }
+
+    @Override
+    public Node visitTerminal(TerminalNode node)
+    {
+        throw UNSUPPORTED;
+    }
+
+    @Override
+    public Node visitExec(HiveParser.ExecContext ctx) {
+        return visit(ctx.execStatement());
+    }
+
+    @Override
+    public Node visitQueryStatementExpression(HiveParser.QueryStatementExpressionContext ctx) {
+        return visit(ctx.queryStatementExpressionBody());
+    }
+
+    @Override
+    public Node visitRegularBody(HiveParser.RegularBodyContext ctx) {
+        HiveParser.InsertClauseContext insertClause = ctx.insertClause();
+        if (insertClause == null || insertClause.KW_INTO() == null || ctx.valuesClause() == null
+                || insertClause.tableOrPartition().partitionSpec() != null) {
+            throw UNSUPPORTED;
+        }
+        QualifiedName target = tableName(catalogs.getHiveCatalog(), insertClause.tableOrPartition().tableName());
+        Optional<List<Identifier>> columns = Optional.empty();
+        if (insertClause.columnNameList() != null) {
+            columns = Optional.of(visit(insertClause.columnNameList().columnName(), Identifier.class));
+        }
+        NodeLocation location = location(ctx.valuesClause());
+        Values values = (Values) visit(ctx.valuesClause());
+        Query query;
+        if (location != null) {
+            query = new Query(location, Optional.empty(), values, Optional.empty(), Optional.empty(), Optional.empty());
+        }
+        else {
+            query = new Query(Optional.empty(), values, Optional.empty(), Optional.empty(), Optional.empty());
+        }
+        return new Insert(target, columns, query);
+    }
+
+    @Override
+    public Node visitValuesClause(HiveParser.ValuesClauseContext ctx) {
+        List<HiveParser.ValueRowConstructorContext> rowContexts = ctx.valuesTableConstructor().valueRowConstructor();
+        ImmutableList.Builder<Expression> rows = ImmutableList.builderWithExpectedSize(rowContexts.size());
+        for (HiveParser.ValueRowConstructorContext row : rowContexts) {
+            NodeLocation location = location(row);
+            List<Expression> items = visitExpressions(row.expressionsInParenthesis());
+            rows.add(location != null ? new Row(location, items) : new Row(items));
+        }
+        NodeLocation location = location(ctx);
+        return location != null ? new Values(location, rows.build()) : new Values(rows.build());
+    }
+
+    @Override
+    public Node visitCreateTableStatement(HiveParser.CreateTableStatementContext ctx) {
+        NodeLocation location = location(ctx);
+        List<TableElement> elements;
+        if (ctx.KW_LIKE() != null) {
+            QualifiedName likeTarget = tableName(ctx.tableName(1));
+            elements = ImmutableList.of(location != null ? new LikeClause(location, likeTarget, Optional.empty()) : new LikeClause(likeTarget, Optional.empty()));
+        }
+        else {
+            elements = visit(ctx.columnNameTypeOrConstraintList().columnNameTypeOrConstraint(), TableElement.class);
+        }
+
+        List<HiveParser.KeyValuePropertyContext> keyValueProperties = ImmutableList.of();
+        if (ctx.tablePropertiesPrefixed() != null
+                && ctx.tablePropertiesPrefixed().tableProperties() != null
+                && ctx.tablePropertiesPrefixed().tableProperties().tablePropertiesList() != null) {
+            keyValueProperties = ctx.tablePropertiesPrefixed().tableProperties().tablePropertiesList().keyValueProperty();
+        }
+        // the table properties, the format and the location, in the order of AstBuilder
+        ImmutableList.Builder<Property> properties = ImmutableList.builderWithExpectedSize(keyValueProperties.size() + 2);
+        for (HiveParser.KeyValuePropertyContext property : keyValueProperties) {
+            String key = property.StringLiteral(0).getText();
+            String value = property.StringLiteral(1).getText();
+            properties.add(new Property(new Identifier(key.substring(1, key.length() - 1)), new StringLiteral(value.substring(1, value.length() - 1))));
+        }
+
+        Property tableLocation = null;
+        if (ctx.tableLocation() != null) {
+            String value = ctx.tableLocation().StringLiteral().getText();
+            tableLocation = new Property(new Identifier("location"), new StringLiteral(value.substring(1, value.length() - 1)));
+        }
+
+        QualifiedName tableName;
+        if (ctx.tableFileFormat() != null) {
+            if (!(ctx.tableFileFormat() instanceof HiveParser.FileFormatAsContext)) {
+                throw UNSUPPORTED;
+            }
+            String storedAs = ((HiveParser.FileFormatAsContext) ctx.tableFileFormat()).identifier().getText();
+            if ("KUDU".equalsIgnoreCase(storedAs)) {
+                if (tableLocation != null) {
+                    throw UNSUPPORTED;
+                }
+                tableName = tableName(catalogs.getKuduCatalog(), ctx.tableName(0));
+            }
+            else {
+                tableName = tableName(catalogs.getHiveCatalog(), ctx.tableName(0));
+                properties.add(new Property(new Identifier("format"), new StringLiteral(TableFormatRule.trinoFormat(storedAs))));
+            }
+        }
+        else {
+            tableName = tableName(catalogs.getHiveCatalog(), ctx.tableName(0));
+            properties.add(new Property(new Identifier("format"), new StringLiteral("TextFile")));
+        }
+        if (tableLocation != null) {
+            properties.add(tableLocation);
+        }
+
+        boolean notExists = ctx.ifNotExists() != null;
+        if (location != null) {
+            return new CreateTable(location, tableName, elements, notExists, properties.build(), Optional.empty());
+        }
+        return new CreateTable(tableName, elements, notExists, properties.build(), Optional.empty());
+    }
+
+    @Override
+    public Node visitColumnNameTypeOrConstraint(HiveParser.ColumnNameTypeOrConstraintContext ctx) {
+        if (ctx.columnNameTypeConstraint() == null) {
+            throw UNSUPPORTED;
+        }
+        return visit(ctx.columnNameTypeConstraint());
+    }
+
+    @Override
+    public Node visitColumnNameTypeConstraint(HiveParser.ColumnNameTypeConstraintContext ctx) {
+        DataType dataType = (DataType) visit(ctx.colType());
+        boolean nullable = ctx.KW_NOT() == null || ctx.KW_NULL() == null;
+        List<Property> properties = ImmutableList.of();
+        if (ctx.columnConstraint() != null) {
+            properties = ImmutableList.of((Property) visit(ctx.columnConstraint()));
+        }
+        NodeLocation location = location(ctx);
+        Identifier name = (Identifier) visit(ctx.identifier());
+        if (location != null) {
+            return new ColumnDefinition(location, name, dataType, nullable, properties, Optional.empty());
+        }
+        return new ColumnDefinition(name, dataType, nullable, properties, Optional.empty());
+    }
+
+    @Override
+    public Node visitColConstraint(HiveParser.ColConstraintContext ctx) {
+        NodeLocation location = location(ctx);
+        Identifier name = location != null ? new Identifier(location, "primary_key", false) : new Identifier("primary_key", false);
+        return new Property(name, new BooleanLiteral(ctx.tableConstraintPrimaryKey() != null ? "true" : "false"));
+    }
+
+    @Override
+    public Node visitPrimitiveType(HiveParser.PrimitiveTypeContext ctx) {
+        Optional<NodeLocation> location = Optional.ofNullable(location(ctx));
+        List<DataTypeParameter> parameters;
+        String name;
+        if (ctx.KW_BIGINT() != null) {
+            name = "BIGINT";
+            parameters = ImmutableList.of();
+        }
+        else if (ctx.KW_VARCHAR() != null) {
+            name = "VARCHAR";
+            TerminalNode length = ctx.Number(0);
+            parameters = length == null ? ImmutableList.of() : ImmutableList.of(new NumericParameter(location, length.getText()));
+        }
+        else if (ctx.KW_DECIMAL() != null) {
+            name = "DECIMAL";
+            TerminalNode precision = ctx.Number(0);
+            TerminalNode scale = ctx.Number(1);
+            if (precision != null && scale != null) {
+                parameters = ImmutableList.of(new NumericParameter(location, precision.getText()), new NumericParameter(location, scale.getText()));
+            }
+            else if (precision != null) {
+                parameters = ImmutableList.of(new NumericParameter(location, precision.getText()));
+            }
+            else {
+                parameters = ImmutableList.of();
+            }
+        }
+        else {
+            throw UNSUPPORTED;
+        }
+        return new GenericDataType(location, new Identifier(name), parameters);
+    }
+
+    @Override
+    public Node visitIdentifier(HiveParser.IdentifierContext ctx) {
+        if (!NAME_PATTERN.matcher(ctx.getText()).matches()) {
+            throw UNSUPPORTED;
+        }
+        NodeLocation location = location(ctx);
+        return location != null ? new Identifier(location, ctx.getText(), false) : new Identifier(ctx.getText(), false);
+    }
+
+    @Override
+    public Node visitExpression(HiveParser.ExpressionContext ctx) {
+        if (ctx.atomExpression() == null || ctx.LSQUARE(0) != null) {
+            throw UNSUPPORTED;
+        }
+        Expression expression = (Expression) visit(ctx.atomExpression());
+        HiveParser.IdentifierContext field;
+        for (int i = 0; (field = ctx.identifier(i)) != null; i++) {
+            NodeLocation location = location(field);
+            Identifier name = (Identifier) visit(field);
+            expression = location != null ? new DereferenceExpression(location, expression, name) : new DereferenceExpression(expression, name);
+        }
+        return expression;
+    }
+
+    @Override
+    public Node visitAtomExpression(HiveParser.AtomExpressionContext ctx) {
+        if (ctx.constant() != null) {
+            return visit(ctx.constant());
+        }
+        if (ctx.tableOrColumn() != null) {
+            return visit(ctx.tableOrColumn().identifier());
+        }
+        if (ctx.expressionsInParenthesis() != null) {
+            List<Expression> expressions = visitExpressions(ctx.expressionsInParenthesis());
+            if (expressions.size() == 1) {
+                return expressions.get(0);
+            }
+        }
+        throw UNSUPPORTED;
+    }
+
+    @Override
+    public Node visitConstant(HiveParser.ConstantContext ctx) {
+        NodeLocation location = location(ctx);
+        if (ctx.StringLiteral() != null) {
+            String text = ctx.StringLiteral().getText();
+            String value = text.substring(1, text.length() - 1);
+            return location != null ? new StringLiteral(location, value) : new StringLiteral(value);
+        }
+        if (ctx.Number() != null) {
+            String value = ctx.Number().getText();
+            if (value.length() <= MAX_INTEGER_LENGTH && DIGITS.matchesAllOf(value)) {
+                return location != null ? new LongLiteral(location, value) : new LongLiteral(value);
+            }
+        }
+        if (ctx.booleanValue() != null) {
+            String value = ctx.booleanValue().getText();
+            return location != null ? new BooleanLiteral(location, value) : new BooleanLiteral(value);
+        }
+        throw UNSUPPORTED;
+    }
+
+    private List<Expression> visitExpressions(HiveParser.ExpressionsInParenthesisContext ctx) {
+        HiveParser.ExpressionsNotInParenthesisContext expressions = ctx.expressionsNotInParenthesis();
+        if (expressions.expressionPart() == null) {
+            return ImmutableList.of((Expression) visit(expressions.expression()));
+        }
+        List<HiveParser.ExpressionContext> rest = expressions.expressionPart().expression();
+        ImmutableList.Builder<Expression> values = ImmutableList.builderWithExpectedSize(rest.size() + 1);
+        values.add((Expression) visit(expressions.expression()));
+        for (HiveParser.ExpressionContext value : rest) {
+            values.add((Expression) visit(value));
+        }
+        return values.build();
+    }
+
+    private QualifiedName tableName(HiveParser.TableNameContext ctx)
+    {
+        return QualifiedName.of(visit(ctx.identifier(), Identifier.class));
+    }
+
+    private QualifiedName tableName(String catalog, HiveParser.TableNameContext ctx)
+    {
+        List<HiveParser.IdentifierContext> identifiers = ctx.identifier();
+        ImmutableList.Builder<Identifier> parts = ImmutableList.builderWithExpectedSize(identifiers.size() + 1);
+        parts.add(new Identifier(catalog));
+        for (HiveParser.IdentifierContext identifier : identifiers) {
+            parts.add((Identifier) visit(identifier));
+        }
+        return QualifiedName.of(parts.build());
+    }
+
+    private NodeLocation location(ParserRuleContext ctx)
+    {
+        if (!nodeLocations) {
+            return null;
+        }
+        return new NodeLocation(ctx.getStart().getLine(), ctx.getStart().getCharPositionInLine() + 1);
+    }
+
+    private <T> List<T> visit(List<? extends ParserRuleContext> contexts, Class<T> clazz)
+    {
+        ImmutableList.Builder<T> nodes = ImmutableList.builderWithExpectedSize(contexts.size());
+        for (ParserRuleContext context : contexts) {
+            nodes.add(clazz.cast(visit(context)));
+        }
+        return nodes.build();
+    }
+
+    private static final class UnsupportedConstructException
+            extends RuntimeException
+    {
+        private UnsupportedConstructException()
+        {
+            super("Unsupported by the direct Trino AST builder", null, false, false);
+        }
+    }
+}
@@ -1,29 +1,60 @@
 package com.kyotom.ditto.parser.bridging;
 
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.StatementBudget;
 import com.kyotom.ditto.parser.tree.*;
 import io.trino.sql.tree.Node;
 
+import javax.inject.Inject;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import static java.util.stream.Collectors.toList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Converts a statement to the Trino AST. Each node is rewritten by the {@link RewriteRules} before it is
+ * converted. The context of the visitor is the budget of the statement being translated, or {@code null} when it
+ * is not limited.
+ */
+public class Bridging extends AstVisitor<Node, StatementBudget> {
 
-public class Bridging extends AstVisitor<Node, Void> {
+    private final RewriteRules rules;
+
+    public Bridging() {
+        this(RewriteRules.defaultRules(new ParserConfig()));
+    }
+
+    @Inject
+    public Bridging(ParserConfig parserConfig) {
+        this(RewriteRules.defaultRules(parserConfig));
+    }
+
+    public Bridging(RewriteRules rules) {
+        this.rules = requireNonNull(rules, "rules is null");
+    }
+
+    public RewriteRules getRules() {
+        return rules;
+    }
 
     @Override
-    public Node visitCreateTable(CreateTable node, Void context) {
-        List<io.trino.sql.tree.Property> propertyList = new ArrayList<>();
-        for (Property property : node.getProperties()) {
-            propertyList.add((io.trino.sql.tree.Property)process(property, context));
-        }
-        List<io.trino.sql.tree.TableElement> tableElementList = new ArrayList<>();
-        for (TableElement element : node.getElements()) {
-            tableElementList.add((io.trino.sql.tree.TableElement)process(element, context));
+    public Node process(com.kyotom.ditto.parser.tree.Node node, StatementBudget context) {
+        if (context != null) {
+            context.step();
         }
+        return super.process(rules.rewrite(node), context);
+    }
+
+    @Override
+    public Node visitCreateTable(CreateTable node, StatementBudget context) {
+        List<io.trino.sql.tree.Property> propertyList = process(node.getProperties(), io.trino.sql.tree.Property.class, context);
+        List<io.trino.sql.tree.TableElement> tableElementList = process(node.getElements(), io.trino.sql.tree.TableElement.class, context);
 
         io.trino.sql.tree.QualifiedName qualifiedName = visitQualifiedName(node.getName(), context);
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(), context);
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
         io.trino.sql.tree.CreateTable createTable;
         if (location != null) {
             createTable = new io.trino.sql.tree.CreateTable(location, qualifiedName, tableElementList, node.isNotExists(), propertyList, node.getComment());
@@ -35,8 +66,75 @@ public class Bridging extends AstVisitor<Node, Void> {
     }
 
     @Override
-    public Node visitLikeClause(LikeClause node, Void context) {
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(), context);
+    public Node visitUse(Use node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        Optional<io.trino.sql.tree.Identifier> catalog = node.getCatalog()
+                .map(identifier -> (io.trino.sql.tree.Identifier)process(identifier, context));
+        io.trino.sql.tree.Identifier schema = (io.trino.sql.tree.Identifier)process(node.getSchema(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.Use(location, catalog, schema);
+        }
+        else {
+            return new io.trino.sql.tree.Use(catalog, schema);
+        }
+    }
+
+    @Override
+    public Node visitDropTable(DropTable node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        io.trino.sql.tree.QualifiedName tableName = visitQualifiedName(node.getTableName(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.DropTable(location, tableName, node.isExists());
+        }
+        else {
+            return new io.trino.sql.tree.DropTable(tableName, node.isExists());
+        }
+    }
+
+    @Override
+    public Node visitInsert(Insert node, StatementBudget context) {
+        io.trino.sql.tree.QualifiedName target = visitQualifiedName(node.getTarget(), context);
+        Optional<List<io.trino.sql.tree.Identifier>> columns = node.getColumns()
+                .map(identifiers -> process(identifiers, io.trino.sql.tree.Identifier.class, context));
+        io.trino.sql.tree.QueryBody queryBody = (io.trino.sql.tree.QueryBody)process(node.getQuery(), context);
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getQuery().getPackedLocation(), context);
+        io.trino.sql.tree.Query query;
+        if (location != null) {
+            query = new io.trino.sql.tree.Query(location, Optional.empty(), queryBody, Optional.empty(), Optional.empty(), Optional.empty());
+        }
+        else {
+            query = new io.trino.sql.tree.Query(Optional.empty(), queryBody, Optional.empty(), Optional.empty(), Optional.empty());
+        }
+        return new io.trino.sql.tree.Insert(target, columns, query);
+    }
+
+    @Override
+    public Node visitValues(Values node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        List<io.trino.sql.tree.Expression> rows = process(node.getRows(), io.trino.sql.tree.Expression.class, context);
+        if (location != null) {
+            return new io.trino.sql.tree.Values(location, rows);
+        }
+        else {
+            return new io.trino.sql.tree.Values(rows);
+        }
+    }
+
+    @Override
+    public Node visitRow(Row node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        List<io.trino.sql.tree.Expression> items = process(node.getItems(), io.trino.sql.tree.Expression.class, context);
+        if (location != null) {
+            return new io.trino.sql.tree.Row(location, items);
+        }
+        else {
+            return new io.trino.sql.tree.Row(items);
+        }
+    }
+
+    @Override
+    public Node visitLikeClause(LikeClause node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
         io.trino.sql.tree.QualifiedName qualifiedName = visitQualifiedName(node.getTableName(), context);
         Optional<io.trino.sql.tree.LikeClause.PropertiesOption> propertiesOption = visitPropertiesOption(node.getPropertiesOption());
         io.trino.sql.tree.LikeClause likeClause;
@@ -50,14 +148,11 @@ public class Bridging extends AstVisitor<Node, Void> {
     }
 
     @Override
-    public Node visitColumnDefinition(ColumnDefinition node, Void context) {
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(), context);
+    public Node visitColumnDefinition(ColumnDefinition node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
         io.trino.sql.tree.Identifier identifier = (io.trino.sql.tree.Identifier)process(node.getName(), context);
         io.trino.sql.tree.DataType dataType = visitDataType(node.getType(), context);
-        List<io.trino.sql.tree.Property> propertyList = new ArrayList<>();
-        for (Property property : node.getProperties()) {
-            propertyList.add((io.trino.sql.tree.Property)process(property, context));
-        }
+        List<io.trino.sql.tree.Property> propertyList = process(node.getProperties(), io.trino.sql.tree.Property.class, context);
         io.trino.sql.tree.ColumnDefinition columnDefinition;
         if(location != null){
             columnDefinition = new io.trino.sql.tree.ColumnDefinition(location, identifier, dataType,
@@ -70,19 +165,21 @@ public class Bridging extends AstVisitor<Node, Void> {
         return columnDefinition;
     }
 
-    private io.trino.sql.tree.DataType visitDataType(DataType type, Void context) {
+    private io.trino.sql.tree.DataType visitDataType(DataType type, StatementBudget context) {
         return (io.trino.sql.tree.DataType)process(type,context);
     }
 
     @Override
-    public Node visitGenericDataType(GenericDataType node, Void context) {
+    public Node visitGenericDataType(GenericDataType node, StatementBudget context) {
         Identifier name = node.getName();
-        return new io.trino.sql.tree.GenericDataType(visitNodeLocation(node.getLocation(), context), new io.trino.sql.tree.Identifier(name.getValue()), process(node.getArguments(), io.trino.sql.tree.DataTypeParameter.class));
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        List<io.trino.sql.tree.DataTypeParameter> arguments = process(node.getArguments(), io.trino.sql.tree.DataTypeParameter.class, context);
+        return new io.trino.sql.tree.GenericDataType(Optional.ofNullable(location), new io.trino.sql.tree.Identifier(name.getValue()), arguments);
     }
 
     @Override
-    public Node visitNumericTypeParameter(NumericParameter node, Void context) {
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(), context);
+    public Node visitNumericTypeParameter(NumericParameter node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
         io.trino.sql.tree.NumericParameter numericParameter;
         if (location != null){
             numericParameter = new io.trino.sql.tree.NumericParameter(location, node.getValue());
@@ -94,15 +191,15 @@ public class Bridging extends AstVisitor<Node, Void> {
     }
 
     @Override
-    public Node visitRowDataType(RowDataType node, Void context) {
+    public Node visitRowDataType(RowDataType node, StatementBudget context) {
         return null;
     }
 
-    private Node visitIntervalDayTimeDataType(IntervalDayTimeDataType type, Void context) {
+    private Node visitIntervalDayTimeDataType(IntervalDayTimeDataType type, StatementBudget context) {
         return null;
     }
 
-    private Node visitDataTimeDataType(DateTimeDataType type, Void context) {
+    private Node visitDataTimeDataType(DateTimeDataType type, StatementBudget context) {
         return null;
     }
 
@@ -112,10 +209,10 @@ public class Bridging extends AstVisitor<Node, Void> {
 
 
     @Override
-    public Node visitProperty(Property node, Void context) {
+    public Node visitProperty(Property node, StatementBudget context) {
         io.trino.sql.tree.Identifier identifier = (io.trino.sql.tree.Identifier)process(node.getName(), context);
         io.trino.sql.tree.Expression expression = (io.trino.sql.tree.Expression)process(node.getValue(), context);
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(), context);
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
         io.trino.sql.tree.Property property;
         if (location != null) {
             property = new io.trino.sql.tree.Property(location, identifier, expression);
@@ -127,8 +224,8 @@ public class Bridging extends AstVisitor<Node, Void> {
     }
 
     @Override
-    public Node visitIdentifier(Identifier node, Void context) {
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(), context);
+    public Node visitIdentifier(Identifier node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
         io.trino.sql.tree.Identifier identifier;
         if (location != null) {
            identifier = new io.trino.sql.tree.Identifier(location, node.getValue(), node.isDelimited());
@@ -140,8 +237,8 @@ public class Bridging extends AstVisitor<Node, Void> {
     }
 
     @Override
-    public Node visitBooleanLiteral(BooleanLiteral node, Void context) {
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(),context);
+    public Node visitBooleanLiteral(BooleanLiteral node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(),context);
         if (location!= null) {
             return new io.trino.sql.tree.BooleanLiteral(location, node.toString());
         }
@@ -151,8 +248,8 @@ public class Bridging extends AstVisitor<Node, Void> {
     }
 
     @Override
-    public Node visitStringLiteral(StringLiteral node, Void context) {
-        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getLocation(),context);
+    public Node visitStringLiteral(StringLiteral node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(),context);
         if (location!= null) {
             return new io.trino.sql.tree.StringLiteral(location, node.toString());
         }
@@ -161,35 +258,142 @@ public class Bridging extends AstVisitor<Node, Void> {
         }
     }
 
-    public io.trino.sql.tree.QualifiedName visitQualifiedName(QualifiedName node, Void context) {
-        List<io.trino.sql.tree.Identifier> identifierList = new ArrayList<>();
-        for (Identifier identifier : node.getOriginalParts()) {
-            identifierList.add((io.trino.sql.tree.Identifier)process(identifier, context));
+    @Override
+    public Node visitLongLiteral(LongLiteral node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.LongLiteral(location, Long.toString(node.getValue()));
+        }
+        else {
+            return new io.trino.sql.tree.LongLiteral(Long.toString(node.getValue()));
+        }
+    }
+
+    @Override
+    public Node visitDereferenceExpression(DereferenceExpression node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        io.trino.sql.tree.Expression base = (io.trino.sql.tree.Expression)process(node.getBase(), context);
+        io.trino.sql.tree.Identifier field = (io.trino.sql.tree.Identifier)process(node.getField(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.DereferenceExpression(location, base, field);
+        }
+        else {
+            return new io.trino.sql.tree.DereferenceExpression(base, field);
+        }
+    }
+
+    @Override
+    public Node visitNotExpression(NotExpression node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        io.trino.sql.tree.Expression value = (io.trino.sql.tree.Expression)process(node.getValue(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.NotExpression(location, value);
+        }
+        else {
+            return new io.trino.sql.tree.NotExpression(value);
+        }
+    }
+
+    @Override
+    public Node visitComparisonExpression(ComparisonExpression node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        io.trino.sql.tree.ComparisonExpression.Operator operator = io.trino.sql.tree.ComparisonExpression.Operator.valueOf(node.getOperator().name());
+        io.trino.sql.tree.Expression left = (io.trino.sql.tree.Expression)process(node.getLeft(), context);
+        io.trino.sql.tree.Expression right = (io.trino.sql.tree.Expression)process(node.getRight(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.ComparisonExpression(location, operator, left, right);
+        }
+        else {
+            return new io.trino.sql.tree.ComparisonExpression(operator, left, right);
         }
+    }
+
+    /**
+     * Trino only has binary logical expressions. The terms are combined pairwise, one level at a time, into a
+     * balanced tree, so that the depth of the tree, and the recursion of the Trino formatter, grow with the
+     * logarithm of the number of terms. The terms keep their order, and AND and OR are associative.
+     */
+    @Override
+    public Node visitLogicalExpression(LogicalExpression node, StatementBudget context) {
+        io.trino.sql.tree.LogicalBinaryExpression.Operator operator = io.trino.sql.tree.LogicalBinaryExpression.Operator.valueOf(node.getOperator().name());
+        List<io.trino.sql.tree.Expression> terms = new ArrayList<>(node.getTerms().size());
+        for (Expression term : node.getTerms()) {
+            terms.add((io.trino.sql.tree.Expression)process(term, context));
+        }
+        while (terms.size() > 1) {
+            List<io.trino.sql.tree.Expression> combined = new ArrayList<>((terms.size() + 1) / 2);
+            for (int i = 0; i + 1 < terms.size(); i += 2) {
+                io.trino.sql.tree.Expression left = terms.get(i);
+                io.trino.sql.tree.Expression right = terms.get(i + 1);
+                if (left.getLocation().isPresent()) {
+                    combined.add(new io.trino.sql.tree.LogicalBinaryExpression(left.getLocation().get(), operator, left, right));
+                }
+                else {
+                    combined.add(new io.trino.sql.tree.LogicalBinaryExpression(operator, left, right));
+                }
+            }
+            if (terms.size() % 2 == 1) {
+                combined.add(terms.get(terms.size() - 1));
+            }
+            terms = combined;
+        }
+        return terms.get(0);
+    }
+
+    @Override
+    public Node visitInPredicate(InPredicate node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        io.trino.sql.tree.Expression value = (io.trino.sql.tree.Expression)process(node.getValue(), context);
+        io.trino.sql.tree.Expression valueList = (io.trino.sql.tree.Expression)process(node.getValueList(), context);
+        if (location != null) {
+            return new io.trino.sql.tree.InPredicate(location, value, valueList);
+        }
+        else {
+            return new io.trino.sql.tree.InPredicate(value, valueList);
+        }
+    }
+
+    @Override
+    public Node visitInListExpression(InListExpression node, StatementBudget context) {
+        io.trino.sql.tree.NodeLocation location = visitNodeLocation(node.getPackedLocation(), context);
+        List<io.trino.sql.tree.Expression> values = process(node.getValues(), io.trino.sql.tree.Expression.class, context);
+        if (location != null) {
+            return new io.trino.sql.tree.InListExpression(location, values);
+        }
+        else {
+            return new io.trino.sql.tree.InListExpression(values);
+        }
+    }
+
+    public io.trino.sql.tree.QualifiedName visitQualifiedName(QualifiedName node, StatementBudget context) {
+        List<io.trino.sql.tree.Identifier> identifierList = process(node.getOriginalParts(), io.trino.sql.tree.Identifier.class, context);
         io.trino.sql.tree.QualifiedName qualifiedName = io.trino.sql.tree.QualifiedName.of(identifierList);
         return qualifiedName;
     }
 
-    public io.trino.sql.tree.NodeLocation visitNodeLocation(NodeLocation node, Void context) {
+    public io.trino.sql.tree.NodeLocation visitNodeLocation(NodeLocation node, StatementBudget context) {
         io.trino.sql.tree.NodeLocation location = new io.trino.sql.tree.NodeLocation(node.getLineNumber(), node.getColumnNumber());
         return location;
     }
 
-    public io.trino.sql.tree.NodeLocation visitNodeLocation(Optional<NodeLocation> node, Void context) {
-        if(node.isPresent()){
-            io.trino.sql.tree.NodeLocation location = new io.trino.sql.tree.NodeLocation(node.get().getLineNumber(), node.get().getColumnNumber());
-            return location;
-        }
-        else {
+    /**
+     * Unpacks a location packed by {@link NodeLocation#pack()} straight into a Trino location, or returns null
+     * for {@link NodeLocation#NONE}, without creating a ditto location first.
+     */
+    public io.trino.sql.tree.NodeLocation visitNodeLocation(long node, StatementBudget context) {
+        if (node == NodeLocation.NONE) {
             return null;
         }
+        return new io.trino.sql.tree.NodeLocation(NodeLocation.getLineNumber(node), NodeLocation.getColumnNumber(node));
     }
 
-    private <T> List<T> process(List<? extends com.kyotom.ditto.parser.tree.Node> contexts, Class<T> clazz)
+    private <T> List<T> process(List<? extends com.kyotom.ditto.parser.tree.Node> contexts, Class<T> clazz, StatementBudget context)
     {
-        return contexts.stream()
-                .map(this::process)
-                .map(clazz::cast)
-                .collect(toList());
+        // the Trino nodes copy their children into immutable lists, which is free for an immutable list
+        ImmutableList.Builder<T> nodes = ImmutableList.builderWithExpectedSize(contexts.size());
+        for (com.kyotom.ditto.parser.tree.Node node : contexts) {
+            nodes.add(clazz.cast(process(node, context)));
+        }
+        return nodes.build();
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.bridging;
+
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.tree.CreateTable;
+import com.kyotom.ditto.parser.tree.DropTable;
+import com.kyotom.ditto.parser.tree.FileFormat;
+import com.kyotom.ditto.parser.tree.Identifier;
+import com.kyotom.ditto.parser.tree.Insert;
+import com.kyotom.ditto.parser.tree.QualifiedName;
+import com.kyotom.ditto.parser.tree.Use;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The default catalogs the tables of the statements are prefixed with, as Hive names have no catalog: the Kudu
+ * catalog for tables {@code STORED AS KUDU}, and the Hive catalog otherwise. A {@code USE} statement without a
+ * catalog switches to the schema of the Hive catalog. The prefixes are added by a rule per class of statement.
+ */
+public final class DefaultCatalogs
+{
+    private final Identifier hiveCatalog;
+    private final Identifier kuduCatalog;
+
+    public DefaultCatalogs(String hiveCatalog, String kuduCatalog)
+    {
+        this.hiveCatalog = new Identifier(requireNonNull(hiveCatalog, "hiveCatalog is null"));
+        this.kuduCatalog = new Identifier(requireNonNull(kuduCatalog, "kuduCatalog is null"));
+    }
+
+    public static DefaultCatalogs of(ParserConfig parserConfig)
+    {
+        return new DefaultCatalogs(parserConfig.getHiveDefaultCatalog(), parserConfig.getKuduDefaultCatalog());
+    }
+
+    public String getHiveCatalog()
+    {
+        return hiveCatalog.getValue();
+    }
+
+    public String getKuduCatalog()
+    {
+        return kuduCatalog.getValue();
+    }
+
+    /**
+     * Returns the rules that prefix the tables of {@code CREATE TABLE}, {@code INSERT} and {@code DROP TABLE}
+     * statements, and the schema of {@code USE} statements.
+     */
+    public List<RewriteRule<?>> getRules()
+    {
+        return ImmutableList.of(new CreateTableCatalogRule(), new InsertCatalogRule(), new DropTableCatalogRule(), new UseCatalogRule());
+    }
+
+    private static QualifiedName withCatalog(Identifier catalog, QualifiedName name)
+    {
+        List<Identifier> parts = name.getOriginalParts();
+        return QualifiedName.of(ImmutableList.<Identifier>builderWithExpectedSize(parts.size() + 1)
+                .add(catalog)
+                .addAll(parts)
+                .build());
+    }
+
+    private final class CreateTableCatalogRule
+            implements RewriteRule<CreateTable>
+    {
+        @Override
+        public Class<CreateTable> getNodeClass()
+        {
+            return CreateTable.class;
+        }
+
+        @Override
+        public RewriteResult apply(CreateTable node)
+        {
+            boolean kudu = node.getFileFormat().map(FileFormat::isKuduTable).orElse(false);
+            return RewriteResult.rewritten(node.withName(withCatalog(kudu ? kuduCatalog : hiveCatalog, node.getName())));
+        }
+    }
+
+    private final class InsertCatalogRule
+            implements RewriteRule<Insert>
+    {
+        @Override
+        public Class<Insert> getNodeClass()
+        {
+            return Insert.class;
+        }
+
+        @Override
+        public RewriteResult apply(Insert node)
+        {
+            return RewriteResult.rewritten(node.withTarget(withCatalog(hiveCatalog, node.getTarget())));
+        }
+    }
+
+    private final class DropTableCatalogRule
+            implements RewriteRule<DropTable>
+    {
+        @Override
+        public Class<DropTable> getNodeClass()
+        {
+            return DropTable.class;
+        }
+
+        @Override
+        public RewriteResult apply(DropTable node)
+        {
+            return RewriteResult.rewritten(node.withTableName(withCatalog(hiveCatalog, node.getTableName())));
+        }
+    }
+
+    private final class UseCatalogRule
+            implements RewriteRule<Use>
+    {
+        @Override
+        public Class<Use> getNodeClass()
+        {
+            return Use.class;
+        }
+
+        @Override
+        public RewriteResult apply(Use node)
+        {
+            if (node.getCatalog().isPresent()) {
+                return RewriteResult.unchanged();
+            }
+            return RewriteResult.rewritten(node.withCatalog(hiveCatalog));
+        }
+    }
+}
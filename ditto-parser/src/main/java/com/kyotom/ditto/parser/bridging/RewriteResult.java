@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.bridging;
+
+import com.kyotom.ditto.parser.tree.Node;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The result of applying a {@link RewriteRule} to a node.
+ */
+public final class RewriteResult
+{
+    private static final RewriteResult UNCHANGED = new RewriteResult(null, false);
+
+    private final Node node;
+    private final boolean done;
+
+    private RewriteResult(Node node, boolean done)
+    {
+        this.node = node;
+        this.done = done;
+    }
+
+    public static RewriteResult unchanged()
+    {
+        return UNCHANGED;
+    }
+
+    public static RewriteResult rewritten(Node node)
+    {
+        return new RewriteResult(requireNonNull(node, "node is null"), false);
+    }
+
+    /**
+     * Returns a result that replaces the node, which may be the node itself, and skips the rules registered
+     * after the one that returned it.
+     */
+    public static RewriteResult done(Node node)
+    {
+        return new RewriteResult(requireNonNull(node, "node is null"), true);
+    }
+
+    /**
+     * Returns whether the rule fired, that is whether it rewrote the node or stopped the rules.
+     */
+    public boolean isFired()
+    {
+        return node != null;
+    }
+
+    public Node getNode()
+    {
+        return node;
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("node", node)
+                .add("done", done)
+                .omitNullValues()
+                .toString();
+    }
+}
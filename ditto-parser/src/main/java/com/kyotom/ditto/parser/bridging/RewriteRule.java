@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.bridging;
+
+import com.kyotom.ditto.parser.tree.Node;
+
+/**
+ * A rewrite of the ditto tree applied by {@link Bridging} before a node is converted to the Trino AST. A rule is
+ * registered against a class of nodes, and is applied to the nodes of this class and of its subclasses.
+ */
+public interface RewriteRule<T extends Node>
+{
+    Class<T> getNodeClass();
+
+    /**
+     * Returns the rewritten node, {@link RewriteResult#unchanged()} when the rule does not apply to the node, or
+     * {@link RewriteResult#done} to skip the rules registered after this one.
+     */
+    RewriteResult apply(T node);
+
+    default String getName()
+    {
+        return getClass().getSimpleName();
+    }
+}
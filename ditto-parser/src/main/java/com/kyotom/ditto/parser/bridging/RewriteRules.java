@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.bridging;
+
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.tree.Node;
+
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link RewriteRule}s applied by {@link Bridging}, in the order they were added. The rules of a class of
+ * nodes are looked up once per class, so that a node is only given to the rules registered against its class or
+ * one of its superclasses. A rule is skipped when an earlier rule rewrote the node to a node of another class,
+ * and the rules after one that returned {@link RewriteResult#done} are skipped.
+ * <p>
+ * The rules are safe for concurrent use, if the rules they hold are.
+ */
+public final class RewriteRules
+{
+    private static final RuleStats[] NO_RULES = new RuleStats[0];
+
+    private final List<RuleStats> rules;
+    // the catalogs of the built-in rules, empty for other rules
+    private final Optional<DefaultCatalogs> defaultCatalogs;
+    private final ClassValue<RuleStats[]> rulesByClass = new ClassValue<>()
+    {
+        @Override
+        protected RuleStats[] computeValue(Class<?> nodeClass)
+        {
+            RuleStats[] matching = rules.stream()
+                    .filter(rule -> rule.appliesTo(nodeClass))
+                    .toArray(RuleStats[]::new);
+            return matching.length == 0 ? NO_RULES : matching;
+        }
+    };
+
+    private RewriteRules(List<RewriteRule<?>> rules, Optional<DefaultCatalogs> defaultCatalogs)
+    {
+        this.rules = rules.stream()
+                .map(RuleStats::new)
+                .collect(ImmutableList.toImmutableList());
+        this.defaultCatalogs = requireNonNull(defaultCatalogs, "defaultCatalogs is null");
+    }
+
+    /**
+     * Returns the rules that turn the Hive statements into Trino statements: the default catalogs of
+     * {@code parserConfig}, then the table format.
+     */
+    public static RewriteRules defaultRules(ParserConfig parserConfig)
+    {
+        DefaultCatalogs defaultCatalogs = DefaultCatalogs.of(parserConfig);
+        return new RewriteRules(defaultRuleList(defaultCatalogs), Optional.of(defaultCatalogs));
+    }
+
+    private static List<RewriteRule<?>> defaultRuleList(DefaultCatalogs defaultCatalogs)
+    {
+        return ImmutableList.<RewriteRule<?>>builder()
+                .addAll(defaultCatalogs.getRules())
+                .add(new TableFormatRule())
+                .build();
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Returns the node rewritten by the rules of its class, or the node itself when no rule fired.
+     */
+    public Node rewrite(Node node)
+    {
+        RuleStats[] matching = rulesByClass.get(node.getClass());
+        for (RuleStats rule : matching) {
+            if (!rule.appliesTo(node)) {
+                continue;
+            }
+            RewriteResult result = rule.apply(node);
+            if (result.isFired()) {
+                node = result.getNode();
+            }
+            if (result.isDone()) {
+                break;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the names of the rules a node of {@code nodeClass} is given to, in the order they are applied.
+     */
+    public List<String> getRuleNames(Class<? extends Node> nodeClass)
+    {
+        ImmutableList.Builder<String> names = ImmutableList.builder();
+        for (RuleStats rule : rulesByClass.get(nodeClass)) {
+            names.add(rule.getName());
+        }
+        return names.build();
+    }
+
+    /**
+     * Returns the statistics of the rules, in the order they are applied.
+     */
+    public List<RuleStats> getStats()
+    {
+        return rules;
+    }
+
+    /**
+     * Returns whether these are the {@link #defaultRules}, which the parser also applies when it builds the
+     * Trino AST directly, without the ditto AST.
+     */
+    public boolean isBuiltIn()
+    {
+        return defaultCatalogs.isPresent();
+    }
+
+    /**
+     * Returns the default catalogs of the {@link #defaultRules}, or empty for other rules.
+     */
+    public Optional<DefaultCatalogs> getDefaultCatalogs()
+    {
+        return defaultCatalogs;
+    }
+
+    public static final class Builder
+    {
+        private final ImmutableList.Builder<RewriteRule<?>> rules = ImmutableList.builder();
+
+        private Builder() {}
+
+        /**
+         * Adds the {@link #defaultRules} of {@code parserConfig}.
+         */
+        public Builder addDefaultRules(ParserConfig parserConfig)
+        {
+            rules.addAll(defaultRuleList(DefaultCatalogs.of(parserConfig)));
+            return this;
+        }
+
+        public Builder add(RewriteRule<?> rule)
+        {
+            rules.add(requireNonNull(rule, "rule is null"));
+            return this;
+        }
+
+        public RewriteRules build()
+        {
+            return new RewriteRules(rules.build(), Optional.empty());
+        }
+    }
+}
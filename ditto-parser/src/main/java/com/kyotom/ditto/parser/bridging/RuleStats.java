@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.bridging;
+
+import com.kyotom.ditto.parser.tree.Node;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How often a {@link RewriteRule} was applied and fired, and the time spent in it, since the {@link RewriteRules}
+ * were built.
+ */
+public final class RuleStats
+{
+    private final RewriteRule<?> rule;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    RuleStats(RewriteRule<?> rule)
+    {
+        this.rule = requireNonNull(rule, "rule is null");
+    }
+
+    RewriteResult apply(Node node)
+    {
+        long start = System.nanoTime();
+        RewriteResult result = apply(rule, node);
+        nanos.add(System.nanoTime() - start);
+        applied.increment();
+        if (result.isFired()) {
+            fired.increment();
+        }
+        return result;
+    }
+
+    private static <T extends Node> RewriteResult apply(RewriteRule<T> rule, Node node)
+    {
+        return requireNonNull(rule.apply(rule.getNodeClass().cast(node)), "result is null");
+    }
+
+    boolean appliesTo(Node node)
+    {
+        return rule.getNodeClass().isInstance(node);
+    }
+
+    boolean appliesTo(Class<?> nodeClass)
+    {
+        return rule.getNodeClass().isAssignableFrom(nodeClass);
+    }
+
+    public String getName()
+    {
+        return rule.getName();
+    }
+
+    public Class<? extends Node> getNodeClass()
+    {
+        return rule.getNodeClass();
+    }
+
+    public long getApplied()
+    {
+        return applied.sum();
+    }
+
+    public long getFired()
+    {
+        return fired.sum();
+    }
+
+    public long getTotalNanos()
+    {
+        return nanos.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("name", getName())
+                .add("nodeClass", getNodeClass().getSimpleName())
+                .add("applied", getApplied())
+                .add("fired", getFired())
+                .add("totalNanos", getTotalNanos())
+                .toString();
+    }
+}
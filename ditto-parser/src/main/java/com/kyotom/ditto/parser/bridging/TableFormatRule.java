@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.bridging;
+
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.parser.tree.CreateTable;
+import com.kyotom.ditto.parser.tree.FileFormat;
+import com.kyotom.ditto.parser.tree.Identifier;
+import com.kyotom.ditto.parser.tree.Property;
+import com.kyotom.ditto.parser.tree.StringLiteral;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Turns the {@code STORED AS} and {@code LOCATION} clauses of a {@code CREATE TABLE} statement into the
+ * {@code format} and {@code location} properties of the Hive connector, after the table properties. Tables without
+ * a {@code STORED AS} clause are text files, as in Hive. Kudu tables are left unchanged: they have no format, and
+ * the parser rejects a {@code LOCATION} clause for them.
+ */
+public final class TableFormatRule
+        implements RewriteRule<CreateTable>
+{
+    @Override
+    public Class<CreateTable> getNodeClass()
+    {
+        return CreateTable.class;
+    }
+
+    @Override
+    public RewriteResult apply(CreateTable node)
+    {
+        Optional<FileFormat> fileFormat = node.getFileFormat();
+        if (fileFormat.map(FileFormat::isKuduTable).orElse(false)) {
+            return RewriteResult.unchanged();
+        }
+        String format = fileFormat.map(value -> trinoFormat(value.getStoredAs().getValue())).orElse("TextFile");
+        ImmutableList.Builder<Property> properties = ImmutableList.builderWithExpectedSize(node.getProperties().size() + 2);
+        properties.addAll(node.getProperties());
+        properties.add(new Property(new Identifier("format"), new StringLiteral(format)));
+        node.getTableLocation().ifPresent(properties::add);
+        return RewriteResult.rewritten(node.withProperties(properties.build(), false));
+    }
+
+    /**
+     * Returns the {@code format} of the Hive connector for a {@code STORED AS} clause.
+     */
+    public static String trinoFormat(String storedAs)
+    {
+        switch (storedAs.toUpperCase(Locale.ENGLISH)) {
+            case "PARQUET":
+                return "Parquet";
+            case "ORC":
+                return "ORC";
+            case "AVRO":
+                return "Avro";
+            case "RCFILE":
+                return "RCText";
+            case "SEQUENCEFILE":
+                return "SequenceFile";
+            case "HUDI":
+            case "TEXT":
+            default:
+                return "TextFile";
+        }
+    }
+}
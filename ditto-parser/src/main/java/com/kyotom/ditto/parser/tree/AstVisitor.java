@@ -48,6 +48,31 @@ public abstract class AstVisitor<R, C>
         return visitNode(node, context);
     }
 
+    protected R visitInvalidateMetadata(InvalidateMetadata node, C context)
+    {
+        return visitStatement(node, context);
+    }
+
+    protected R visitUse(Use node, C context)
+    {
+        return visitStatement(node, context);
+    }
+
+    protected R visitSetProperty(SetProperty node, C context)
+    {
+        return visitStatement(node, context);
+    }
+
+    protected R visitDropTable(DropTable node, C context)
+    {
+        return visitStatement(node, context);
+    }
+
+    protected R visitInsert(Insert node, C context)
+    {
+        return visitStatement(node, context);
+    }
+
     protected R visitTable(Table node, C context)
     {
         return visitNode(node, context);
@@ -66,6 +91,10 @@ public abstract class AstVisitor<R, C>
         return visitNode(node, context);
     }
 
+    public R visitValues(Values node, C context) {
+        return visitQueryBody(node, context);
+    }
+
     public R visitRelation(Relation node, C context) {
         return visitNode(node, context);
     }
@@ -137,4 +166,36 @@ public abstract class AstVisitor<R, C>
     public R visitStringLiteral(StringLiteral node, C context) {
         return visitNode(node, context);
     }
+
+    public R visitLongLiteral(LongLiteral node, C context) {
+        return visitLiteral(node, context);
+    }
+
+    public R visitLogicalExpression(LogicalExpression node, C context) {
+        return visitExpression(node, context);
+    }
+
+    public R visitNotExpression(NotExpression node, C context) {
+        return visitExpression(node, context);
+    }
+
+    public R visitComparisonExpression(ComparisonExpression node, C context) {
+        return visitExpression(node, context);
+    }
+
+    public R visitInPredicate(InPredicate node, C context) {
+        return visitExpression(node, context);
+    }
+
+    public R visitInListExpression(InListExpression node, C context) {
+        return visitExpression(node, context);
+    }
+
+    public R visitDereferenceExpression(DereferenceExpression node, C context) {
+        return visitExpression(node, context);
+    }
+
+    public R visitRow(Row node, C context) {
+        return visitExpression(node, context);
+    }
 }
@@ -15,7 +15,6 @@ package com.kyotom.ditto.parser.tree;
 
 
 import java.util.Objects;
-import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Locale.ENGLISH;
@@ -24,22 +23,22 @@ import static java.util.Objects.requireNonNull;
 public class BooleanLiteral
         extends Literal
 {
-    public static final BooleanLiteral TRUE_LITERAL = new BooleanLiteral(Optional.empty(), "true");
-    public static final BooleanLiteral FALSE_LITERAL = new BooleanLiteral(Optional.empty(), "false");
+    public static final BooleanLiteral TRUE_LITERAL = new BooleanLiteral(NodeLocation.NONE, "true");
+    public static final BooleanLiteral FALSE_LITERAL = new BooleanLiteral(NodeLocation.NONE, "false");
 
     private final boolean value;
 
     public BooleanLiteral(String value)
     {
-        this(Optional.empty(), value);
+        this(NodeLocation.NONE, value);
     }
 
     public BooleanLiteral(NodeLocation location, String value)
     {
-        this(Optional.of(location), value);
+        this(location.pack(), value);
     }
 
-    private BooleanLiteral(Optional<NodeLocation> location, String value)
+    public BooleanLiteral(long location, String value)
     {
         super(location);
         requireNonNull(value, "value is null");
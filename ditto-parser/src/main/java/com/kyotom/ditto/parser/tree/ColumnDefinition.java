@@ -35,15 +35,15 @@ public final class ColumnDefinition
 
     public ColumnDefinition(Identifier name, DataType type, boolean nullable, List<Property> properties, Optional<String> comment)
     {
-        this(Optional.empty(), name, type, nullable, properties, comment);
+        this(NodeLocation.NONE, name, type, nullable, properties, comment);
     }
 
     public ColumnDefinition(NodeLocation location, Identifier name, DataType type, boolean nullable, List<Property> properties, Optional<String> comment)
     {
-        this(Optional.of(location), name, type, nullable, properties, comment);
+        this(location.pack(), name, type, nullable, properties, comment);
     }
 
-    private ColumnDefinition(Optional<NodeLocation> location, Identifier name, DataType type, boolean nullable, List<Property> properties, Optional<String> comment)
+    public ColumnDefinition(long location, Identifier name, DataType type, boolean nullable, List<Property> properties, Optional<String> comment)
     {
         super(location);
         this.name = requireNonNull(name, "name is null");
@@ -22,6 +22,11 @@ import java.util.Optional;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * A {@code CREATE TABLE} statement. The {@code STORED AS} and {@code LOCATION} clauses of Hive are kept apart from
+ * the table properties, for the rewrite rules of {@link com.kyotom.ditto.parser.bridging.Bridging} to turn into
+ * Trino table properties.
+ */
 public class CreateTable
         extends Statement
 {
@@ -30,18 +35,33 @@ public class CreateTable
     private final boolean notExists;
     private final List<Property> properties;
     private final Optional<String> comment;
+    private final Optional<FileFormat> fileFormat;
+    private final Optional<Property> location;
 
     public CreateTable(QualifiedName name, List<TableElement> elements, boolean notExists, List<Property> properties, Optional<String> comment)
     {
-        this(Optional.empty(), name, elements, notExists, properties, comment);
+        this(NodeLocation.NONE, name, elements, notExists, properties, comment);
     }
 
     public CreateTable(NodeLocation location, QualifiedName name, List<TableElement> elements, boolean notExists, List<Property> properties, Optional<String> comment)
     {
-        this(Optional.of(location), name, elements, notExists, properties, comment);
+        this(location.pack(), name, elements, notExists, properties, comment);
+    }
+
+    public CreateTable(long location, QualifiedName name, List<TableElement> elements, boolean notExists, List<Property> properties, Optional<String> comment)
+    {
+        this(location, name, elements, notExists, properties, comment, Optional.empty(), Optional.empty());
     }
 
-    private CreateTable(Optional<NodeLocation> location, QualifiedName name, List<TableElement> elements, boolean notExists, List<Property> properties, Optional<String> comment)
+    public CreateTable(
+            long location,
+            QualifiedName name,
+            List<TableElement> elements,
+            boolean notExists,
+            List<Property> properties,
+            Optional<String> comment,
+            Optional<FileFormat> fileFormat,
+            Optional<Property> tableLocation)
     {
         super(location);
         this.name = requireNonNull(name, "name is null");
@@ -49,6 +69,8 @@ public class CreateTable
         this.notExists = notExists;
         this.properties = requireNonNull(properties, "properties is null");
         this.comment = requireNonNull(comment, "comment is null");
+        this.fileFormat = requireNonNull(fileFormat, "fileFormat is null");
+        this.location = requireNonNull(tableLocation, "tableLocation is null");
     }
 
     public QualifiedName getName()
@@ -76,6 +98,39 @@ public class CreateTable
         return comment;
     }
 
+    /**
+     * Returns the {@code STORED AS} clause, or empty when the statement has none.
+     */
+    public Optional<FileFormat> getFileFormat()
+    {
+        return fileFormat;
+    }
+
+    /**
+     * Returns the {@code LOCATION} clause as a {@code location} property, or empty when the statement has none.
+     */
+    public Optional<Property> getTableLocation()
+    {
+        return location;
+    }
+
+    /**
+     * Returns the statement with another name.
+     */
+    public CreateTable withName(QualifiedName name)
+    {
+        return new CreateTable(getPackedLocation(), name, elements, notExists, properties, comment, fileFormat, location);
+    }
+
+    /**
+     * Returns the statement with other properties, and without a {@code LOCATION} clause if
+     * {@code keepTableLocation} is false.
+     */
+    public CreateTable withProperties(List<Property> properties, boolean keepTableLocation)
+    {
+        return new CreateTable(getPackedLocation(), name, elements, notExists, properties, comment, fileFormat, keepTableLocation ? location : Optional.empty());
+    }
+
     @Override
     public <R, C> R accept(AstVisitor<R, C> visitor, C context)
     {
@@ -94,7 +149,7 @@ public class CreateTable
     @Override
     public int hashCode()
     {
-        return Objects.hash(name, elements, notExists, properties, comment);
+        return Objects.hash(name, elements, notExists, properties, comment, fileFormat, location);
     }
 
     @Override
@@ -111,7 +166,9 @@ public class CreateTable
                 Objects.equals(elements, o.elements) &&
                 Objects.equals(notExists, o.notExists) &&
                 Objects.equals(properties, o.properties) &&
-                Objects.equals(comment, o.comment);
+                Objects.equals(comment, o.comment) &&
+                Objects.equals(fileFormat, o.fileFormat) &&
+                Objects.equals(location, o.location);
     }
 
     @Override
@@ -123,6 +180,9 @@ public class CreateTable
                 .add("notExists", notExists)
                 .add("properties", properties)
                 .add("comment", comment)
+                .add("fileFormat", fileFormat.orElse(null))
+                .add("location", location.orElse(null))
+                .omitNullValues()
                 .toString();
     }
 }
@@ -22,4 +22,9 @@ public abstract class DataType
     {
         super(location);
     }
+
+    public DataType(long location)
+    {
+        super(location);
+    }
 }
@@ -24,6 +24,11 @@ public abstract class DataTypeParameter
         super(location);
     }
 
+    protected DataTypeParameter(long location)
+    {
+        super(location);
+    }
+
     @Override
     protected <R, C> R accept(AstVisitor<R, C> visitor, C context)
     {
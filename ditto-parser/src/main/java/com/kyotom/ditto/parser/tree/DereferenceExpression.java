@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+public class DereferenceExpression
+        extends Expression
+{
+    private final Expression base;
+    private final Identifier field;
+
+    public DereferenceExpression(Expression base, Identifier field)
+    {
+        this(NodeLocation.NONE, base, field);
+    }
+
+    public DereferenceExpression(NodeLocation location, Expression base, Identifier field)
+    {
+        this(location.pack(), base, field);
+    }
+
+    public DereferenceExpression(long location, Expression base, Identifier field)
+    {
+        super(location);
+        requireNonNull(base, "base is null");
+        requireNonNull(field, "fieldName is null");
+        this.base = base;
+        this.field = field;
+    }
+
+    public Expression getBase()
+    {
+        return base;
+    }
+
+    public Identifier getField()
+    {
+        return field;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitDereferenceExpression(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return ImmutableList.of(base);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DereferenceExpression that = (DereferenceExpression) o;
+        return Objects.equals(base, that.base) &&
+                Objects.equals(field, that.field);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(base, field);
+    }
+
+    @Override
+    public boolean shallowEquals(Node other)
+    {
+        return sameClass(this, other);
+    }
+}
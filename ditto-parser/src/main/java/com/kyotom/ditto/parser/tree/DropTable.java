@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+public final class DropTable
+        extends Statement
+{
+    private final QualifiedName tableName;
+    private final boolean exists;
+
+    public DropTable(QualifiedName tableName, boolean exists)
+    {
+        this(NodeLocation.NONE, tableName, exists);
+    }
+
+    public DropTable(NodeLocation location, QualifiedName tableName, boolean exists)
+    {
+        this(location.pack(), tableName, exists);
+    }
+
+    public DropTable(long location, QualifiedName tableName, boolean exists)
+    {
+        super(location);
+        this.tableName = requireNonNull(tableName, "tableName is null");
+        this.exists = exists;
+    }
+
+    public QualifiedName getTableName()
+    {
+        return tableName;
+    }
+
+    /**
+     * Returns the statement with another table name.
+     */
+    public DropTable withTableName(QualifiedName tableName)
+    {
+        return new DropTable(getPackedLocation(), tableName, exists);
+    }
+
+    public boolean isExists()
+    {
+        return exists;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitDropTable(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(tableName, exists);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        DropTable o = (DropTable) obj;
+        return Objects.equals(tableName, o.tableName) &&
+                (exists == o.exists);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("tableName", tableName)
+                .add("exists", exists)
+                .toString();
+    }
+}
@@ -26,6 +26,11 @@ public abstract class Expression
         super(location);
     }
 
+    protected Expression(long location)
+    {
+        super(location);
+    }
+
     /**
      * Accessible for {@link AstVisitor}, use {@link AstVisitor#process(Node, Object)} instead.
      */
@@ -17,7 +17,6 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
@@ -29,15 +28,15 @@ public class FileFormat
 
     public FileFormat(Identifier storedAs)
     {
-        this(Optional.empty(), storedAs);
+        this(NodeLocation.NONE, storedAs);
     }
 
     public FileFormat(NodeLocation location, Identifier storedAs)
     {
-        this(Optional.of(location), storedAs);
+        this(location.pack(), storedAs);
     }
 
-    private FileFormat(Optional<NodeLocation> location, Identifier storedAs)
+    public FileFormat(long location, Identifier storedAs)
     {
         super(location);
         this.storedAs = requireNonNull(storedAs, "name is null");
@@ -29,12 +29,15 @@ public class GenericDataType
 
     public GenericDataType(NodeLocation location, Identifier name, List<DataTypeParameter> arguments)
     {
-        super(Optional.of(location));
-        this.name = requireNonNull(name, "name is null");
-        this.arguments = requireNonNull(arguments, "arguments is null");
+        this(location.pack(), name, arguments);
     }
 
     public GenericDataType(Optional<NodeLocation> location, Identifier name, List<DataTypeParameter> arguments)
+    {
+        this(NodeLocation.pack(location), name, arguments);
+    }
+
+    public GenericDataType(long location, Identifier name, List<DataTypeParameter> arguments)
     {
         super(location);
         this.name = requireNonNull(name, "name is null");
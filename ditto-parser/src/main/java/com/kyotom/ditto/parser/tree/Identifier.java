@@ -17,8 +17,6 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Locale.ENGLISH;
@@ -27,34 +25,54 @@ import static java.util.Objects.requireNonNull;
 public class Identifier
         extends Expression
 {
-    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_]([a-zA-Z0-9_])*");
-
     private final String value;
     private final boolean delimited;
 
     public Identifier(NodeLocation location, String value, boolean delimited)
     {
-        this(Optional.of(location), value, delimited);
+        this(location.pack(), value, delimited);
     }
 
     public Identifier(String value, boolean delimited)
     {
-        this(Optional.empty(), value, delimited);
+        this(NodeLocation.NONE, value, delimited);
     }
 
     public Identifier(String value)
     {
-        this(Optional.empty(), value, !NAME_PATTERN.matcher(value).matches());
+        this(NodeLocation.NONE, value, !isName(value));
     }
 
-    private Identifier(Optional<NodeLocation> location, String value, boolean delimited)
+    public Identifier(long location, String value, boolean delimited)
     {
         super(location);
         this.value = requireNonNull(value, "value is null");
         this.delimited = delimited;
 
         checkArgument(!value.isEmpty(), "value is empty");
-        checkArgument(delimited || NAME_PATTERN.matcher(value).matches(), "value contains illegal characters: %s", value);
+        checkArgument(delimited || isName(value), "value contains illegal characters: %s", value);
+    }
+
+    /**
+     * Matches {@code [a-zA-Z_][a-zA-Z0-9_]*} without allocating a matcher for every identifier.
+     */
+    private static boolean isName(String value)
+    {
+        if (value.isEmpty() || isDigit(value.charAt(0))) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !isDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
     }
 
     public String getValue()
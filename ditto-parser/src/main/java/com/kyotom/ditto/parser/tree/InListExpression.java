@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public class InListExpression
+        extends Expression
+{
+    private final List<Expression> values;
+
+    public InListExpression(List<Expression> values)
+    {
+        this(NodeLocation.NONE, values);
+    }
+
+    public InListExpression(NodeLocation location, List<Expression> values)
+    {
+        this(location.pack(), values);
+    }
+
+    public InListExpression(long location, List<Expression> values)
+    {
+        super(location);
+        requireNonNull(values, "values is null");
+        checkArgument(!values.isEmpty(), "values cannot be empty");
+        this.values = ImmutableList.copyOf(values);
+    }
+
+    public List<Expression> getValues()
+    {
+        return values;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitInListExpression(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return ImmutableList.copyOf(values);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        InListExpression that = (InListExpression) o;
+        return values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return values.hashCode();
+    }
+
+    @Override
+    public boolean shallowEquals(Node other)
+    {
+        return sameClass(this, other);
+    }
+}
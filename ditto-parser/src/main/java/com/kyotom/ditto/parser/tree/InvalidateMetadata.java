@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@code INVALIDATE METADATA [table]}, which drops the cached metadata of a table, or of all tables.
+ */
+public final class InvalidateMetadata
+        extends Statement
+{
+    private final Optional<Table> table;
+
+    public InvalidateMetadata(Optional<Table> table)
+    {
+        this(NodeLocation.NONE, table);
+    }
+
+    public InvalidateMetadata(NodeLocation location, Optional<Table> table)
+    {
+        this(location.pack(), table);
+    }
+
+    public InvalidateMetadata(long location, Optional<Table> table)
+    {
+        super(location);
+        this.table = requireNonNull(table, "table is null");
+    }
+
+    public Optional<Table> getTable()
+    {
+        return table;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitInvalidateMetadata(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return table.<List<Node>>map(ImmutableList::of).orElse(ImmutableList.of());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(table);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        InvalidateMetadata o = (InvalidateMetadata) obj;
+        return Objects.equals(table, o.table);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("table", table)
+                .toString();
+    }
+}
@@ -36,15 +36,15 @@ public final class LikeClause
 
     public LikeClause(QualifiedName tableName, Optional<PropertiesOption> propertiesOption)
     {
-        this(Optional.empty(), tableName, propertiesOption);
+        this(NodeLocation.NONE, tableName, propertiesOption);
     }
 
     public LikeClause(NodeLocation location, QualifiedName tableName, Optional<PropertiesOption> propertiesOption)
     {
-        this(Optional.of(location), tableName, propertiesOption);
+        this(location.pack(), tableName, propertiesOption);
     }
 
-    private LikeClause(Optional<NodeLocation> location, QualifiedName tableName, Optional<PropertiesOption> propertiesOption)
+    public LikeClause(long location, QualifiedName tableName, Optional<PropertiesOption> propertiesOption)
     {
         super(location);
         this.tableName = requireNonNull(tableName, "tableName is null");
@@ -26,6 +26,11 @@ public abstract class Literal
         super(location);
     }
 
+    protected Literal(long location)
+    {
+        super(location);
+    }
+
     @Override
     public <R, C> R accept(AstVisitor<R, C> visitor, C context)
     {
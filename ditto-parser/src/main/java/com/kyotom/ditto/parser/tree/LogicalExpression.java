@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A chain of terms joined by the same logical operator, e.g. {@code a OR b OR c}. The chain is kept flat
+ * rather than as nested binary expressions, so that long machine-generated chains can be processed with
+ * loops instead of recursion.
+ */
+public class LogicalExpression
+        extends Expression
+{
+    public enum Operator
+    {
+        AND, OR
+    }
+
+    private final Operator operator;
+    private final List<Expression> terms;
+
+    public LogicalExpression(Operator operator, List<Expression> terms)
+    {
+        this(NodeLocation.NONE, operator, terms);
+    }
+
+    public LogicalExpression(NodeLocation location, Operator operator, List<Expression> terms)
+    {
+        this(location.pack(), operator, terms);
+    }
+
+    public LogicalExpression(long location, Operator operator, List<Expression> terms)
+    {
+        super(location);
+        requireNonNull(operator, "operator is null");
+        requireNonNull(terms, "terms is null");
+        checkArgument(terms.size() >= 2, "Expected at least 2 terms");
+
+        this.operator = operator;
+        this.terms = ImmutableList.copyOf(terms);
+    }
+
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    public List<Expression> getTerms()
+    {
+        return terms;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitLogicalExpression(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return ImmutableList.copyOf(terms);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        LogicalExpression that = (LogicalExpression) obj;
+        return operator == that.operator &&
+                Objects.equals(terms, that.terms);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(operator, terms);
+    }
+
+    @Override
+    public boolean shallowEquals(Node other)
+    {
+        if (!sameClass(this, other)) {
+            return false;
+        }
+
+        return operator == ((LogicalExpression) other).operator;
+    }
+}
@@ -20,11 +20,17 @@ import static java.util.Objects.requireNonNull;
 
 public abstract class Node
 {
-    private final Optional<NodeLocation> location;
+    // packed, see NodeLocation.pack()
+    private final long location;
 
     protected Node(Optional<NodeLocation> location)
     {
-        this.location = requireNonNull(location, "location is null");
+        this(NodeLocation.pack(requireNonNull(location, "location is null")));
+    }
+
+    protected Node(long location)
+    {
+        this.location = location;
     }
 
     /**
@@ -35,7 +41,19 @@ public abstract class Node
         return visitor.visitNode(this, context);
     }
 
+    /**
+     * Returns the location of the node. The location object is created on every call, use
+     * {@link #getPackedLocation()} where it is not needed.
+     */
     public Optional<NodeLocation> getLocation()
+    {
+        return NodeLocation.unpack(location);
+    }
+
+    /**
+     * Returns the location of the node as packed by {@link NodeLocation#pack()}, or {@link NodeLocation#NONE}.
+     */
+    public long getPackedLocation()
     {
         return location;
     }
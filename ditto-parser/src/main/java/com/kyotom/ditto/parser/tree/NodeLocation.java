@@ -14,11 +14,17 @@
 package com.kyotom.ditto.parser.tree;
 
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 public final class NodeLocation
 {
+    /**
+     * The packed form of an unknown location.
+     */
+    public static final long NONE = 0;
+
     private final int line;
     private final int column;
 
@@ -31,6 +37,45 @@ public final class NodeLocation
         this.column = column;
     }
 
+    /**
+     * Packs a location into a long, with the line in the high and the column in the low 32 bits. Nodes keep
+     * their location in this form, so that they do not hold location objects.
+     */
+    public static long pack(int line, int column)
+    {
+        checkArgument(line >= 1, "line must be at least one, got: %s", line);
+        checkArgument(column >= 1, "column must be at least one, got: %s", column);
+        return ((long) line << 32) | column;
+    }
+
+    public static long pack(Optional<NodeLocation> location)
+    {
+        return location.isPresent() ? location.get().pack() : NONE;
+    }
+
+    public static Optional<NodeLocation> unpack(long location)
+    {
+        if (location == NONE) {
+            return Optional.empty();
+        }
+        return Optional.of(new NodeLocation(getLineNumber(location), getColumnNumber(location)));
+    }
+
+    public static int getLineNumber(long location)
+    {
+        return (int) (location >>> 32);
+    }
+
+    public static int getColumnNumber(long location)
+    {
+        return (int) location;
+    }
+
+    public long pack()
+    {
+        return ((long) line << 32) | column;
+    }
+
     public int getLineNumber()
     {
         return line;
@@ -28,10 +28,15 @@ public class NumericParameter
 
     public NumericParameter(NodeLocation location, String value)
     {
-        this(Optional.of(location), value);
+        this(location.pack(), value);
     }
 
     public NumericParameter(Optional<NodeLocation> location, String value)
+    {
+        this(NodeLocation.pack(location), value);
+    }
+
+    public NumericParameter(long location, String value)
     {
         super(location);
         this.value = requireNonNull(value, "value is null");
@@ -17,7 +17,6 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
@@ -30,15 +29,15 @@ public class Property
 
     public Property(Identifier name, Expression value)
     {
-        this(Optional.empty(), name, value);
+        this(NodeLocation.NONE, name, value);
     }
 
     public Property(NodeLocation location, Identifier name, Expression value)
     {
-        this(Optional.of(location), name, value);
+        this(location.pack(), name, value);
     }
 
-    private Property(Optional<NodeLocation> location, Identifier name, Expression value)
+    public Property(long location, Identifier name, Expression value)
     {
         super(location);
         this.name = requireNonNull(name, "name is null");
@@ -23,7 +23,6 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.isEmpty;
 import static java.util.Locale.ENGLISH;
 import static java.util.Objects.requireNonNull;
@@ -56,7 +55,11 @@ public class QualifiedName
     private QualifiedName(List<Identifier> originalParts)
     {
         this.originalParts = originalParts;
-        this.parts = originalParts.stream().map(identifier -> identifier.getValue().toLowerCase(ENGLISH)).collect(toImmutableList());
+        ImmutableList.Builder<String> parts = ImmutableList.builderWithExpectedSize(originalParts.size());
+        for (Identifier identifier : originalParts) {
+            parts.add(identifier.getValue().toLowerCase(ENGLISH));
+        }
+        this.parts = parts.build();
     }
 
     public List<String> getParts()
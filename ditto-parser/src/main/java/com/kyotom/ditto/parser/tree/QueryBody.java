@@ -23,6 +23,11 @@ public abstract class QueryBody
         super(location);
     }
 
+    protected QueryBody(long location)
+    {
+        super(location);
+    }
+
     @Override
     public <R, C> R accept(AstVisitor<R, C> visitor, C context)
     {
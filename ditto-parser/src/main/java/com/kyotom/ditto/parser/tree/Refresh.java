@@ -13,15 +13,25 @@
  */
 package com.kyotom.ditto.parser.tree;
 
+import com.google.common.collect.ImmutableList;
+
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
+import static com.google.common.base.MoreObjects.toStringHelper;
+
 public final class Refresh
         extends Statement
 {
-    private Table table;
+    private final Table table;
 
     public Refresh(Optional<NodeLocation> location, Table table)
+    {
+        this(NodeLocation.pack(location), table);
+    }
+
+    public Refresh(long location, Table table)
     {
         super(location);
         this.table = table;
@@ -33,23 +43,37 @@ public final class Refresh
         return visitor.visitRefresh(this, context);
     }
 
+    public Table getTable()
+    {
+        return table;
+    }
+
     @Override
     public List<? extends Node> getChildren() {
-        return null;
+        return ImmutableList.of(table);
     }
 
     @Override
     public int hashCode() {
-        return 0;
+        return Objects.hashCode(table);
     }
 
     @Override
     public boolean equals(Object obj) {
-        return false;
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        Refresh o = (Refresh) obj;
+        return Objects.equals(table, o.table);
     }
 
     @Override
     public String toString() {
-        return null;
+        return toStringHelper(this)
+                .add("table", table)
+                .toString();
     }
 }
@@ -23,6 +23,11 @@ public abstract class Relation
         super(location);
     }
 
+    protected Relation(long location)
+    {
+        super(location);
+    }
+
     @Override
     public <R, C> R accept(AstVisitor<R, C> visitor, C context)
     {
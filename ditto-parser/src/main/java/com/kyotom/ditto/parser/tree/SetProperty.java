@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@code SET key=value} of the Hive CLI. The key and the value are the text of their tokens, without whitespace.
+ */
+public final class SetProperty
+        extends Statement
+{
+    private final String key;
+    private final String value;
+
+    public SetProperty(String key, String value)
+    {
+        this(NodeLocation.NONE, key, value);
+    }
+
+    public SetProperty(NodeLocation location, String key, String value)
+    {
+        this(location.pack(), key, value);
+    }
+
+    public SetProperty(long location, String key, String value)
+    {
+        super(location);
+        this.key = requireNonNull(key, "key is null");
+        this.value = requireNonNull(value, "value is null");
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitSetProperty(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(key, value);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        SetProperty o = (SetProperty) obj;
+        return Objects.equals(key, o.key) &&
+                Objects.equals(value, o.value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("key", key)
+                .add("value", value)
+                .toString();
+    }
+}
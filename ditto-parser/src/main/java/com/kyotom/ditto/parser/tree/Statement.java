@@ -23,6 +23,11 @@ public abstract class Statement
         super(location);
     }
 
+    protected Statement(long location)
+    {
+        super(location);
+    }
+
     @Override
     public <R, C> R accept(AstVisitor<R, C> visitor, C context)
     {
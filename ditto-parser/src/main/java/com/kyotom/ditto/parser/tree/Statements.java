@@ -13,17 +13,38 @@
  */
 package com.kyotom.ditto.parser.tree;
 
+import com.google.common.collect.ImmutableList;
+
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
 
 public class Statements
         extends Node
 {
-    List<Statement> statementList;
+    private final List<Statement> statements;
+
+    public Statements(List<Statement> statements)
+    {
+        this(NodeLocation.NONE, statements);
+    }
+
+    public Statements(NodeLocation location, List<Statement> statements)
+    {
+        this(location.pack(), statements);
+    }
 
-    protected Statements(Optional<NodeLocation> location)
+    public Statements(long location, List<Statement> statements)
     {
         super(location);
+        this.statements = ImmutableList.copyOf(requireNonNull(statements, "statements is null"));
+    }
+
+    public List<Statement> getStatements()
+    {
+        return statements;
     }
 
     @Override
@@ -33,22 +54,35 @@ public class Statements
     }
 
     @Override
-    public List<? extends Node> getChildren() {
-        return statementList;
+    public List<? extends Node> getChildren()
+    {
+        return statements;
     }
 
     @Override
-    public int hashCode() {
-        return 0;
+    public int hashCode()
+    {
+        return Objects.hash(statements);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        return false;
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        Statements o = (Statements) obj;
+        return Objects.equals(statements, o.statements);
     }
 
     @Override
-    public String toString() {
-        return null;
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("statements", statements)
+                .toString();
     }
 }
@@ -16,7 +16,6 @@ package com.kyotom.ditto.parser.tree;
 import io.airlift.slice.Slice;
 
 import java.util.Objects;
-import java.util.Optional;
 
 import static io.airlift.slice.Slices.utf8Slice;
 import static java.util.Objects.requireNonNull;
@@ -29,15 +28,15 @@ public class StringLiteral
 
     public StringLiteral(String value)
     {
-        this(Optional.empty(), value);
+        this(NodeLocation.NONE, value);
     }
 
     public StringLiteral(NodeLocation location, String value)
     {
-        this(Optional.of(location), value);
+        this(location.pack(), value);
     }
 
-    private StringLiteral(Optional<NodeLocation> location, String value)
+    public StringLiteral(long location, String value)
     {
         super(location);
         requireNonNull(value, "value is null");
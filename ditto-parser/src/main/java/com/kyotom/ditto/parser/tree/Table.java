@@ -17,7 +17,6 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 
@@ -28,15 +27,15 @@ public class Table
 
     public Table(QualifiedName name)
     {
-        this(Optional.empty(), name);
+        this(NodeLocation.NONE, name);
     }
 
     public Table(NodeLocation location, QualifiedName name)
     {
-        this(Optional.of(location), name);
+        this(location.pack(), name);
     }
 
-    private Table(Optional<NodeLocation> location, QualifiedName name)
+    public Table(long location, QualifiedName name)
     {
         super(location);
         this.name = name;
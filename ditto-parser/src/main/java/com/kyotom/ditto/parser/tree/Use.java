@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser.tree;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+public final class Use
+        extends Statement
+{
+    private final Optional<Identifier> catalog;
+    private final Identifier schema;
+
+    public Use(Optional<Identifier> catalog, Identifier schema)
+    {
+        this(NodeLocation.NONE, catalog, schema);
+    }
+
+    public Use(NodeLocation location, Optional<Identifier> catalog, Identifier schema)
+    {
+        this(location.pack(), catalog, schema);
+    }
+
+    public Use(long location, Optional<Identifier> catalog, Identifier schema)
+    {
+        super(location);
+        this.catalog = requireNonNull(catalog, "catalog is null");
+        this.schema = requireNonNull(schema, "schema is null");
+    }
+
+    public Optional<Identifier> getCatalog()
+    {
+        return catalog;
+    }
+
+    /**
+     * Returns the statement with another catalog.
+     */
+    public Use withCatalog(Identifier catalog)
+    {
+        return new Use(getPackedLocation(), Optional.of(catalog), schema);
+    }
+
+    public Identifier getSchema()
+    {
+        return schema;
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context)
+    {
+        return visitor.visitUse(this, context);
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(catalog, schema);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        Use o = (Use) obj;
+        return Objects.equals(catalog, o.catalog) &&
+                Objects.equals(schema, o.schema);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("catalog", catalog)
+                .add("schema", schema)
+                .toString();
+    }
+}
@@ -0,0 +1,59 @@
+-- Representative Hive/Impala statements replayed by ParserWarmup to populate the
+-- lexer and parser DFA caches before the first real statement is parsed.
+-- Every statement must be valid for HiveParser; statements are separated by ';'.
+
+create table db.t1 (id bigint, name varchar(64), amount decimal(18,2)) stored as parquet;
+create table if not exists db.t2 (id bigint primary key, k varchar, v string) stored as kudu;
+create external table db.t3 (id int comment 'identifier', ts timestamp, flag boolean)
+    partitioned by (dt string, hr int)
+    row format delimited fields terminated by '\t' lines terminated by '\n'
+    stored as textfile
+    location 'hdfs://nameservice/warehouse/db/t3'
+    tblproperties ('skip.header.line.count'='1', 'serialization.null.format'='');
+create table db.t4 (c1 tinyint, c2 smallint, c3 int, c4 bigint, c5 float, c6 double, c7 date, c8 char(10))
+    clustered by (c1) sorted by (c2) into 16 buckets
+    stored as orc
+    tblproperties ('orc.compress'='SNAPPY');
+create table db.t5 (a array<string>, m map<string,int>, s struct<x:int,y:string>) stored as avro;
+create table db.t6 like db.t1;
+create table db.t7 like db.t1 stored as sequencefile location '/tmp/t7';
+create table db.t8 (id bigint, name string) row format serde 'org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe' stored as rcfile;
+create table db.t9 as select id, name from db.t1 where id > 10;
+refresh db.t1;
+refresh t1;
+use db;
+drop table db.t1;
+drop table if exists db.t2 purge;
+drop view if exists db.v1;
+create view db.v1 as select id, count(*) as cnt from db.t1 group by id;
+alter table db.t1 rename to db.t1_old;
+alter table db.t1 add columns (extra string comment 'new column');
+alter table db.t3 add if not exists partition (dt='2021-01-01', hr=0);
+alter table db.t3 drop if exists partition (dt='2021-01-01');
+alter table db.t1 set tblproperties ('comment'='updated');
+alter table db.t1 set location 'hdfs://nameservice/warehouse/db/t1';
+truncate table db.t1;
+describe db.t1;
+describe formatted db.t1;
+show tables;
+show partitions db.t3;
+show create table db.t1;
+create database if not exists db2 comment 'scratch' location '/warehouse/db2.db';
+drop database if exists db2 cascade;
+select * from db.t1;
+select id, name from db.t1 where id = 1 and name <> 'a' or amount >= 10.5;
+select t1.id, t2.v from db.t1 t1 join db.t2 t2 on t1.id = t2.id left join db.t3 t3 on t3.id = t1.id;
+select id, sum(amount) as total, avg(amount), max(name) from db.t1 group by id having sum(amount) > 100 order by total desc limit 10;
+select distinct name from db.t1 where name like 'a%' and id in (1, 2, 3) and amount between 1 and 5;
+select case when id > 0 then 'pos' when id < 0 then 'neg' else 'zero' end, cast(amount as string) from db.t1;
+select id, row_number() over (partition by name order by amount desc) as rn from db.t1;
+select * from (select id, name from db.t1 union all select id, k from db.t2) u where u.id is not null;
+with cte as (select id from db.t1 where dt = '2021-01-01') select count(*) from cte;
+select id from db.t1 where exists (select 1 from db.t2 where db.t2.id = db.t1.id);
+select id from db.t1 where id not in (select id from db.t2);
+select coalesce(name, 'n/a'), concat(name, '-', cast(id as string)), substr(name, 1, 3) from db.t1;
+insert into db.t1 values (1, 'a', 1.5), (2, 'b', 2.5);
+insert into table db.t1 select id, name, amount from db.t2;
+insert overwrite table db.t3 partition (dt='2021-01-01', hr=0) select id, ts, flag from db.t4;
+load data inpath '/tmp/data' into table db.t1;
+explain select * from db.t1;
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.kyotom.ditto.client.ParserConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/**
+ * Reports the statements parsed per second by 1 to N threads, with the shared DFA caches of the generated
+ * recognizers and with thread-local DFA caches. Each thread parses the statements of the warm-up corpus that
+ * can be translated in a loop.
+ * <p>
+ * Usage: {@code BenchmarkParserThreadScaling [max threads] [seconds per run]}
+ */
+public final class BenchmarkParserThreadScaling
+{
+    private BenchmarkParserThreadScaling() {}
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<String> corpus = ParserWarmup.loadDefaultCorpus().stream()
+                .filter(BenchmarkParserThreadScaling::isSupported)
+                .collect(toImmutableList());
+        SqlParser shared = newParser(corpus, false);
+        SqlParser threadLocal = newParser(corpus, true);
+
+        // let the JIT compile the parsers before measuring
+        run(shared, corpus, 1, seconds);
+        run(threadLocal, corpus, 1, seconds);
+
+        System.out.printf("%-8s %18s %18s%n", "threads", "shared (stmt/s)", "thread-local (stmt/s)");
+        for (int threads = 1; threads <= maxThreads; threads = threads == maxThreads ? threads + 1 : Math.min(threads * 2, maxThreads)) {
+            double sharedRate = run(shared, corpus, threads, seconds);
+            double threadLocalRate = run(threadLocal, corpus, threads, seconds);
+            System.out.printf("%-8d %18.0f %18.0f%n", threads, sharedRate, threadLocalRate);
+        }
+    }
+
+    private static boolean isSupported(String sql)
+    {
+        try {
+            new SqlParser().createStatement(sql, new ParsingOptions(new ParserConfig()));
+            return true;
+        }
+        catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static SqlParser newParser(List<String> corpus, boolean threadLocalDfaCache)
+    {
+        ParserConfig config = new ParserConfig().setThreadLocalDfaCacheEnabled(threadLocalDfaCache);
+        SqlParser parser = new SqlParser(new ParsingOptions(config));
+        parser.warmUp(corpus);
+        return parser;
+    }
+
+    private static double run(SqlParser parser, List<String> corpus, int threads, int seconds)
+            throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean done = new AtomicBoolean();
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int offset = i * corpus.size() / threads;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long parsed = 0;
+                    for (int j = offset; !done.get(); j++) {
+                        parser.createStatement(corpus.get(j % corpus.size()));
+                        parsed++;
+                    }
+                    return parsed;
+                }));
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            TimeUnit.SECONDS.sleep(seconds);
+            done.set(true);
+            long parsed = 0;
+            for (Future<Long> result : results) {
+                parsed += result.get();
+            }
+            return parsed * 1e9 / (System.nanoTime() - startNanos);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kyotom.ditto.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.parser.bridging.Bridging;
+import com.kyotom.ditto.parser.tree.Node;
+import com.kyotom.ditto.parser.tree.Statement;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the bytes allocated per statement by the AST builder and by the conversion to the Trino AST, for the
+ * statements of the warm-up corpus that can be translated and for a generated 100-row INSERT. The parse trees
+ * are built once up front, so the figures do not include the lexer and the ANTLR parser.
+ * <p>
+ * Usage: {@code BenchmarkTranslationAllocation [iterations]}
+ */
+public final class BenchmarkTranslationAllocation
+{
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private BenchmarkTranslationAllocation() {}
+
+    public static void main(String[] args)
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        ParsingOptions parsingOptions = new ParsingOptions(new ParserConfig());
+        Bridging bridging = new Bridging();
+
+        List<ParseTree> corpus = new ArrayList<>();
+        for (String sql : ParserWarmup.loadDefaultCorpus()) {
+            try {
+                ParseTree tree = parse(sql);
+                Node statement = new AstBuilder(parsingOptions).visit(tree);
+                if (statement instanceof Statement && bridging.process(statement) != null) {
+                    corpus.add(tree);
+                }
+            }
+            catch (RuntimeException ignored) {
+                // not supported by the translation
+            }
+        }
+        StringBuilder insert = new StringBuilder("insert into db.t (a, b, c) values ");
+        for (int i = 0; i < 100; i++) {
+            insert.append(i == 0 ? "" : ", ").append("(").append(i).append(", 'v").append(i).append("', true)");
+        }
+
+        System.out.printf("%-20s %20s %20s%n", "statements", "build (bytes/stmt)", "bridge (bytes/stmt)");
+        report("warm-up corpus", parsingOptions, bridging, corpus, iterations);
+        report("insert, 100 rows", parsingOptions, bridging, ImmutableList.of(parse(insert.toString())), iterations / 10);
+    }
+
+    private static ParseTree parse(String sql)
+    {
+        HiveParser parser = new HiveParser(new CommonTokenStream(new HiveLexer(CaseFoldingCharStream.fromString(sql))));
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        return parser.statement();
+    }
+
+    private static void report(String name, ParsingOptions parsingOptions, Bridging bridging, List<ParseTree> trees, int iterations)
+    {
+        List<Node> statements = trees.stream()
+                .map(tree -> new AstBuilder(parsingOptions).visit(tree))
+                .collect(ImmutableList.toImmutableList());
+
+        // the first run lets the JIT compile the code, so that escape analysis removes what it can
+        build(parsingOptions, trees, iterations);
+        long buildBytes = build(parsingOptions, trees, iterations);
+        bridge(bridging, statements, iterations);
+        long bridgeBytes = bridge(bridging, statements, iterations);
+
+        long count = (long) iterations * trees.size();
+        System.out.printf("%-20s %20d %20d%n", name, buildBytes / count, bridgeBytes / count);
+    }
+
+    private static long build(ParsingOptions parsingOptions, List<ParseTree> trees, int iterations)
+    {
+        long start = allocatedBytes();
+        int nodes = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (ParseTree tree : trees) {
+                nodes += new AstBuilder(parsingOptions).visit(tree).getChildren().size();
+            }
+        }
+        long allocated = allocatedBytes() - start;
+        return nodes < 0 ? 0 : allocated;
+    }
+
+    private static long bridge(Bridging bridging, List<Node> statements, int iterations)
+    {
+        long start = allocatedBytes();
+        int nodes = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Node statement : statements) {
+                nodes += bridging.process(statement).getChildren().size();
+            }
+        }
+        long allocated = allocatedBytes() - start;
+        return nodes < 0 ? 0 : allocated;
+    }
+
+    // getCurrentThreadAllocatedBytes is only available from Java 14
+    private static long allocatedBytes()
+    {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -1,16 +1,53 @@
 package com.kyotom.ditto.parser;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Injector;
+import com.kyotom.ditto.client.ParserConfig;
+import com.kyotom.ditto.client.StatementSplitter;
 import com.kyotom.ditto.parser.bridging.Bridging;
+import com.kyotom.ditto.parser.bridging.RewriteResult;
+import com.kyotom.ditto.parser.bridging.RewriteRule;
+import com.kyotom.ditto.parser.bridging.RewriteRules;
+import com.kyotom.ditto.parser.bridging.RuleStats;
+import com.kyotom.ditto.parser.tree.CreateTable;
+import com.kyotom.ditto.parser.tree.InListExpression;
+import com.kyotom.ditto.parser.tree.InPredicate;
+import com.kyotom.ditto.parser.tree.Identifier;
+import com.kyotom.ditto.parser.tree.Insert;
+import com.kyotom.ditto.parser.tree.LogicalExpression;
+import com.kyotom.ditto.parser.tree.NodeLocation;
+import com.kyotom.ditto.parser.tree.QualifiedName;
+import com.kyotom.ditto.parser.tree.SetProperty;
 import com.kyotom.ditto.parser.tree.Statement;
 import com.kyotom.ditto.parser.tree.Statements;
+import com.kyotom.ditto.parser.tree.Use;
 import io.airlift.bootstrap.Bootstrap;
 import io.trino.sql.SqlFormatter;
 import com.google.inject.Module;
+import org.antlr.v4.runtime.UnbufferedCharStream;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 public class SqlParserTest {
 
     private SqlParser sqlParser;
@@ -34,10 +71,19 @@ public class SqlParserTest {
 
     @Test
     public void testStatements(){
-        Statements statements = sqlParser.createStatements("refresh a.b; select * from a.b;", parsingOptions);
-        io.trino.sql.tree.Node node = bridging.process(statements);
-        String formatSql = SqlFormatter.formatSql(node);
-        System.out.println(formatSql);
+        Statements statements = sqlParser.createStatements("refresh a.b; drop table a.b;", parsingOptions);
+        assertEquals(2, statements.getStatements().size());
+        assertEquals("DROP TABLE hive.a.b", SqlFormatter.formatSql(bridging.process(statements.getStatements().get(1))));
+
+        // queries are not supported yet
+        try {
+            sqlParser.createStatements("refresh a.b; select * from a.b;", parsingOptions);
+            fail("expected ParsingException");
+        }
+        catch (ParsingException e) {
+            assertTrue(e.getMessage().contains("Unsupported statement"));
+            assertEquals(14, e.getColumnNumber());
+        }
     }
 
     @Test
@@ -54,4 +100,509 @@ public class SqlParserTest {
         System.out.println(statement);
     }
 
+    @Test
+    public void testStatementKinds(){
+        SqlParser parser = new SqlParser(parsingOptions);
+        for (String sql : new String[] {"create table a.t (x bigint)", "create external table a.u (x bigint)", "foo bar", "(1)"}) {
+            try {
+                parser.createStatement(sql, parsingOptions);
+            }
+            catch (ParsingException ignored) {
+            }
+        }
+        // statements that start with other tokens than keywords share a kind
+        Map<String, ParserStats.StatementKindStats> kinds = parser.getStats().getStatementKinds();
+        assertEquals(ImmutableSet.of("CREATE TABLE", "OTHER"), kinds.keySet());
+        assertEquals(2, kinds.get("CREATE TABLE").getSllAttempts());
+        assertEquals(2, kinds.get("OTHER").getSllAttempts());
+        assertEquals(4, parser.getStats().getSllAttempts());
+    }
+
+    @Test
+    public void testSimpleStatements(){
+        String[] sqls = {
+                "refresh db.t",
+                "INVALIDATE METADATA",
+                "invalidate metadata db.t",
+                "use db",
+                "set hive.exec.dynamic.partition.mode = nonstrict",
+                "set mapred.job.name = nightly  load /* daily */",
+                "drop table if exists db.t purge",
+                // keywords as identifiers are left to the grammar
+                "drop table data",
+        };
+        for (String sql : sqls) {
+            // statements are parsed with the grammar only
+            Statement expected = sqlParser.createStatements(sql + ";", parsingOptions).getStatements().get(0);
+            assertEquals(sql, expected, sqlParser.createStatement(sql, parsingOptions));
+        }
+
+        // the value of SET keeps its whitespace, also when the input is streamed
+        SetProperty setProperty = (SetProperty) sqlParser.createStatement("set mapred.job.name =  nightly\tload ", parsingOptions);
+        assertEquals("mapred.job.name", setProperty.getKey());
+        assertEquals("nightly\tload", setProperty.getValue());
+        setProperty = (SetProperty) sqlParser.streamStatements(new StringReader("set mapred.job.name = nightly  load;"), parsingOptions)
+                .findFirst().get().getStatement().get();
+        assertEquals("nightly  load", setProperty.getValue());
+    }
+
+    @Test
+    public void testStreamStatements(){
+        String script = "refresh a.b;\n;\ncreate table c (a bigint,;\nrefresh d.e";
+        List<ParsedStatement> statements = sqlParser.streamStatements(new StringReader(script), parsingOptions)
+                .collect(Collectors.toList());
+        assertEquals(3, statements.size());
+        assertFalse(statements.get(0).isFailed());
+        assertEquals("create table c (a bigint,", statements.get(1).getSql());
+        assertEquals(3, statements.get(1).getError().get().getLineNumber());
+        assertFalse(statements.get(2).isFailed());
+    }
+
+    @Test
+    public void testLongLogicalChainAndInList(){
+        StringBuilder sql = new StringBuilder("c IN (0");
+        for (int i = 1; i < 10_000; i++) {
+            sql.append(", ").append(i);
+        }
+        sql.append(")");
+        for (int i = 0; i < 10_000; i++) {
+            sql.append(" OR c = ").append(i);
+        }
+        LogicalExpression expression = (LogicalExpression) sqlParser.createExpression(sql.toString(), parsingOptions);
+        assertEquals(LogicalExpression.Operator.OR, expression.getOperator());
+        assertEquals(10_001, expression.getTerms().size());
+        InPredicate inPredicate = (InPredicate) expression.getTerms().get(0);
+        assertEquals(10_000, ((InListExpression) inPredicate.getValueList()).getValues().size());
+
+        io.trino.sql.tree.Node node = bridging.process(expression);
+        String formatSql = SqlFormatter.formatSql(node);
+        assertTrue(formatSql.contains("(c IN (0, 1, 2, "));
+        assertTrue(formatSql.contains("(c = 9999)"));
+    }
+
+    @Test
+    public void testInsertValuesBatches(){
+        String script = "insert into db.t (a, b) values (1, 'x'), (2, 'y'),\n(3, 'z'); insert into db.u values (4, (5))";
+        List<StatementSplitter.Statement> statements = ImmutableList.copyOf(
+                StatementSplitter.split(CaseFoldingCharStream.fromString(script), ImmutableSet.of(";"), 2));
+        assertEquals(3, statements.size());
+        assertEquals("insert into db.t (a, b) values (1, 'x'), (2, 'y')", statements.get(0).statement());
+        assertEquals("insert into db.t (a, b) values\n(3, 'z')", statements.get(1).statement());
+        assertEquals("insert into db.u values (4, (5))", statements.get(2).statement());
+        assertEquals(";", statements.get(0).terminator());
+        assertFalse(statements.get(2).isTerminated());
+
+        Statement statement = sqlParser.createStatement(statements.get(1).tokens(), parsingOptions);
+        assertEquals("INSERT INTO hive.db.t (a, b)\n VALUES \n  ROW (3, 'z')\n", SqlFormatter.formatSql(bridging.process(statement)));
+
+        // the batches are terminated with the delimiter of their statement, or not at all
+        script = "insert into db.t values (1), (2), (3)\\G insert into db.u values (4), (5), (6)";
+        statements = ImmutableList.copyOf(StatementSplitter.split(CaseFoldingCharStream.fromString(script), ImmutableSet.of(";", "\\G"), 2));
+        assertEquals(4, statements.size());
+        assertEquals("\\G", statements.get(0).terminator());
+        assertEquals("\\G", statements.get(1).terminator());
+        assertEquals("insert into db.u values (4), (5)", statements.get(2).statement());
+        assertFalse(statements.get(2).isTerminated());
+        assertFalse(statements.get(3).isTerminated());
+        // an unbuffered stream is rewound after reading ahead
+        statements = ImmutableList.copyOf(StatementSplitter.split(new CaseInsensitiveStream(new UnbufferedCharStream(new StringReader(script))), ImmutableSet.of(";", "\\G"), 2));
+        assertEquals("insert into db.t values (3)", statements.get(1).statement());
+        assertEquals("\\G", statements.get(1).terminator());
+        assertEquals("insert into db.u values (6)", statements.get(3).statement());
+    }
+
+    @Test
+    public void testThreadLocalDfaCache() throws Exception{
+        SqlParser threadLocalParser = new SqlParser(new ParsingOptions(new ParserConfig().setThreadLocalDfaCacheEnabled(true)));
+        String sql = "create table db.t (a bigint, b varchar(16)) stored as parquet";
+        threadLocalParser.warmUp(ImmutableList.of(sql));
+        Statement expected = sqlParser.createStatement(sql, parsingOptions);
+        assertEquals(expected, threadLocalParser.createStatement(sql, parsingOptions));
+        // another thread starts with a copy of the warmed-up caches
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(expected, executor.submit(() -> threadLocalParser.createStatement(sql, parsingOptions)).get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDfaCacheLimit(){
+        SqlParser limitedParser = new SqlParser(new ParsingOptions(new ParserConfig().setDfaCacheMaxStates(1)));
+        limitedParser.warmUp(ImmutableList.of("create table db.t (a bigint)"));
+        long warmStates = limitedParser.getStats().getDfaStates();
+        assertTrue(warmStates > 1);
+        // the size of the cache is checked every 1024 statements
+        for (int i = 0; i < 1024; i++) {
+            limitedParser.createStatement("create table db.t" + i + " (a bigint, b varchar(" + (i + 1) + "))");
+        }
+        assertEquals(1, limitedParser.getStats().getDfaCacheResets());
+        // the cache is reset to the states learned by the warm-up
+        assertEquals(warmStates, limitedParser.getStats().getDfaStates());
+    }
+
+    @Test
+    public void testBufferedTokens(){
+        String sql = "create table db.t (\n  a bigint, -- key\n  b varchar(16) -- name\n) stored as orc";
+        List<StatementSplitter.Statement> statements = ImmutableList.copyOf(
+                StatementSplitter.split(CaseFoldingCharStream.fromString(sql + ";\ncreate table db.u (a,)"), ImmutableSet.of(";"), 0));
+        assertEquals(sql, statements.get(0).statement());
+        assertEquals(sqlParser.createStatement(sql, parsingOptions), sqlParser.createStatement(statements.get(0).tokens(), parsingOptions));
+        try {
+            sqlParser.createStatement(statements.get(1).tokens(), parsingOptions);
+            fail("expected ParsingException");
+        }
+        catch (ParsingException e) {
+            assertEquals(5, e.getLineNumber());
+            assertEquals(21, e.getColumnNumber());
+        }
+    }
+
+    @Test
+    public void testNodeLocations(){
+        String sql = "create table db.t (\n  a bigint\n) stored as orc";
+        Statement statement = sqlParser.createStatement(sql, parsingOptions);
+        CreateTable createTable = (CreateTable) statement;
+        assertEquals(Optional.of(new NodeLocation(2, 3)), createTable.getElements().get(0).getLocation());
+        assertEquals(NodeLocation.pack(2, 3), createTable.getElements().get(0).getPackedLocation());
+
+        ParsingOptions withoutLocations = new ParsingOptions(new ParserConfig().setNodeLocationsEnabled(false));
+        Statement withoutLocation = new SqlParser(withoutLocations).createStatement(sql, withoutLocations);
+        assertEquals(statement, withoutLocation);
+        assertEquals(Optional.empty(), ((CreateTable) withoutLocation).getElements().get(0).getLocation());
+        assertEquals(SqlFormatter.formatSql(bridging.process(statement)), SqlFormatter.formatSql(bridging.process(withoutLocation)));
+    }
+
+    @Test
+    public void testDirectTrinoAst(){
+        String[] sqls = {
+                "create table if not exists b.a(b bigint primary key,k varchar,name varchar(16) not null,money decimal(4,8)) stored as orc location 'hdfs://abcsa' TBLPROPERTIES ('a'='1','b'='2')",
+                "create table a.t (id bigint primary key) stored as kudu",
+                "create table a.t (id bigint)",
+                "create table a.t (id bigint) tblproperties ('ab'='1', 'c'='123')",
+                "create table a.t like b.u",
+                "insert into db.t (a, b) values (1, 'x'), (db.t.c, true), ((3), FALSE)",
+                // built by AstBuilder and converted by Bridging
+                "insert into db.t values (1 = 2, a or b)",
+                "create table a.t (id bigint) stored as textfile partitioned by (d string)",
+                "drop table db.t",
+        };
+        for (String sql : sqls) {
+            String expected = SqlFormatter.formatSql(bridging.process(sqlParser.createStatement(sql, parsingOptions)));
+            assertEquals(sql, expected, SqlFormatter.formatSql(sqlParser.createTrinoStatement(sql, StatementBudget.unlimited(), bridging)));
+        }
+        // the keys of the table properties do not depend on the length of the values
+        assertTrue(SqlFormatter.formatSql(sqlParser.createTrinoStatement("create table a.t (id bigint) tblproperties ('ab'='1', 'c'='123')", StatementBudget.unlimited(), bridging))
+                .contains("   ab = '1',\n   c = '123',\n"));
+        try {
+            sqlParser.createTrinoStatement("create table a.t (id bigint) stored as kudu location 'x'", StatementBudget.unlimited(), bridging);
+            fail("expected ParsingException");
+        }
+        catch (ParsingException e) {
+            assertTrue(e.getMessage().contains("Unexpected location for kudu"));
+        }
+    }
+
+    @Test
+    public void testStreamingFormatter() throws Exception{
+        String[] sqls = {
+                "create table if not exists b.a(b bigint primary key,k varchar,name varchar(16) not null,money decimal(4,8)) stored as orc location 'hdfs://abcsa' TBLPROPERTIES ('a'='1','b'='2')",
+                "create table a.t (id bigint primary key) stored as kudu",
+                "create table a.t like b.u",
+                "insert into db.t (a, b) values (1, 'it''s'), (db.t.c, true), ((3), 'é')",
+                "insert into db.t values (1 = 2, a or b)",
+                "drop table if exists db.t",
+        };
+        for (String sql : sqls) {
+            io.trino.sql.tree.Node node = bridging.process(sqlParser.createStatement(sql, parsingOptions));
+            StringBuilder out = new StringBuilder();
+            StreamingSqlFormatter.formatSql(node, out);
+            assertEquals(sql, SqlFormatter.formatSql(node), out.toString());
+        }
+
+        StringBuilder out = new StringBuilder();
+        StreamingSqlFormatter.formatSql(bridging.process(sqlParser.createStatement("insert into db.t (a, b) values (1, 'x'), (2, 'y')", parsingOptions)), out, true);
+        assertEquals("INSERT INTO hive.db.t (a, b) VALUES ROW (1, 'x'), ROW (2, 'y')", out.toString());
+        out.setLength(0);
+        StreamingSqlFormatter.formatSql(bridging.process(sqlParser.createStatement("create table a.t (id bigint, v varchar) stored as parquet", parsingOptions)), out, true);
+        assertEquals("CREATE TABLE hive.a.t (id BIGINT, v VARCHAR) WITH (format = 'Parquet')", out.toString());
+    }
+
+    @Test
+    public void testTranslateAll(){
+        SqlTranslator translator = new SqlTranslator(new ParserConfig());
+        ImmutableList.Builder<String> sqls = ImmutableList.builder();
+        for (int i = 0; i < 500; i++) {
+            switch (i % 4) {
+                case 0:
+                    sqls.add("create table db.t" + i + " (a bigint, b varchar(" + (i + 1) + ")) stored as orc");
+                    break;
+                case 1:
+                    sqls.add("insert into db.t" + i + " values (" + i + ", 'v" + i + "')");
+                    break;
+                case 2:
+                    sqls.add("create table db.t" + i + " (a bigint,");
+                    break;
+                default:
+                    sqls.add("refresh db.t" + i);
+            }
+        }
+        List<String> statements = sqls.build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<TranslationResult> results = translator.translateAll(statements, pool);
+            assertEquals(statements.size(), results.size());
+            for (int i = 0; i < statements.size(); i++) {
+                TranslationResult result = results.get(i);
+                assertEquals(statements.get(i), result.getSql());
+                if (i % 4 < 2) {
+                    assertEquals(translator.translate(statements.get(i)), result.getTranslation().get());
+                }
+                else {
+                    assertTrue(result.isFailed());
+                }
+            }
+            assertTrue(results.get(2).getError().get() instanceof ParsingException);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTranslationCache(){
+        TranslationCache cache = new TranslationCache(10_000);
+        SqlTranslator translator = new SqlTranslator(new ParserConfig(), new SqlParser(parsingOptions), bridging, Optional.of(cache));
+        String translation = translator.translate("create table db.t (a bigint) stored as orc");
+        assertEquals(translation, translator.translate("create table db.t -- columns\n  (a bigint)\nstored as orc"));
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals("create table db.t (a bigint) stored as orc", TranslationCache.normalize("create table db.t -- c\n(a bigint)\nstored as orc").get());
+
+        // translators with other catalogs share the cache without sharing translations
+        ParserConfig otherCatalogs = new ParserConfig().setHiveDefaultCatalog("other");
+        SqlTranslator otherTranslator = new SqlTranslator(otherCatalogs, new SqlParser(new ParsingOptions(otherCatalogs)), new Bridging(otherCatalogs), Optional.of(cache));
+        assertTrue(otherTranslator.translate("create table db.t (a bigint) stored as orc").startsWith("CREATE TABLE other.db.t"));
+        assertEquals(2, cache.size());
+
+        // failed translations are not cached
+        for (int i = 0; i < 2; i++) {
+            try {
+                translator.translate("create table db.t (a bigint,");
+                fail("expected ParsingException");
+            }
+            catch (ParsingException e) {
+                assertEquals(2, cache.size());
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            translator.translate("create table db.t" + i + " (a bigint) stored as orc");
+        }
+        assertTrue(cache.getStats().evictionCount() > 0);
+    }
+
+    @Test
+    public void testTranslationStore() throws IOException{
+        Path file = Files.createTempFile("translations", ".bin");
+        try {
+            String sql = "create table db.t (a bigint) stored as orc";
+            String translation;
+            try (SqlTranslator translator = new SqlTranslator(new ParserConfig(), new SqlParser(parsingOptions), bridging, Optional.empty(), TranslationStore.open(file, "1"), Optional.empty())) {
+                translation = translator.translate(sql);
+                assertEquals(1, translator.getStore().get().size());
+                // the translations appended by the run are read back from the file
+                assertEquals(translation, translator.getStore().get().get(TranslationCache.fingerprint(new ParserConfig()), TranslationCache.normalize(sql).get()).get());
+            }
+
+            // a record torn by a crash is dropped when the store is opened again
+            long size = Files.size(file);
+            Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 0, 0, 0, 100}, StandardOpenOption.APPEND);
+            try (TranslationStore store = TranslationStore.open(file, "1").get()) {
+                assertEquals(1, store.size());
+                assertEquals(translation, store.get(TranslationCache.fingerprint(new ParserConfig()), TranslationCache.normalize(sql).get()).get());
+                assertEquals(size, Files.size(file));
+            }
+
+            // the store is locked while open
+            try (TranslationStore store = TranslationStore.open(file, "1").get()) {
+                assertFalse(TranslationStore.open(file, "1").isPresent());
+            }
+
+            // another version starts over
+            try (TranslationStore store = TranslationStore.open(file, "2").get()) {
+                assertEquals(0, store.size());
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTranslationTemplates() throws IOException{
+        ParserConfig parserConfig = new ParserConfig();
+        SqlTranslator translator = new SqlTranslator(parserConfig, new SqlParser(parsingOptions), bridging, Optional.empty());
+        TranslationTemplates templates = new TranslationTemplates(1_000);
+        SqlTranslator templatedTranslator = new SqlTranslator(parserConfig, new SqlParser(parsingOptions), bridging, Optional.empty(), Optional.empty(), Optional.of(templates));
+
+        // statements that only differ in their literals, including literals that cannot be spliced
+        String[] strings = {"x", "it''s", "", "a b", "\\'", "é", "~ditto0~", "hdfs://h/p"};
+        String[] numbers = {"0", "7", "16", "007", "123456789012345678", "99999999999999999999", "1.5"};
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000; i++) {
+            String string = strings[random.nextInt(strings.length)];
+            String otherString = strings[random.nextInt(strings.length)];
+            String number = numbers[random.nextInt(numbers.length)];
+            String otherNumber = numbers[random.nextInt(numbers.length)];
+            String sql;
+            switch (i % 6) {
+                case 0:
+                    sql = "insert into db.t values (" + number + ", '" + string + "')";
+                    break;
+                case 1:
+                    sql = "insert into db.t (a, b) values (" + number + ", '" + string + "'), (" + otherNumber + ", \"" + otherString + "\")";
+                    break;
+                case 2:
+                    sql = "create table db.t (a varchar(" + number + "), b decimal(" + number + "," + otherNumber + ")) stored as orc location '" + string + "'";
+                    break;
+                case 3:
+                    sql = "create table db.t (a bigint) tblproperties ('" + string + "'='" + otherString + "')";
+                    break;
+                case 4:
+                    sql = "insert into db.t values (" + number + " = " + otherNumber + ", true or '" + string + "' = 'x')";
+                    break;
+                default:
+                    sql = "insert into db.t values (" + number + ", '" + string + "'";
+            }
+            assertEquals(sql, translateOrError(translator, sql), translateOrError(templatedTranslator, sql));
+        }
+        assertTrue(templates.getStats().hitCount() > 500);
+
+        // the keys of the table properties are kept in the template, and the values spliced in
+        for (String value : new String[] {"1", "123", "a longer value"}) {
+            String sql = "create table db.t (a bigint) tblproperties ('key'='" + value + "')";
+            assertTrue(sql, templatedTranslator.translate(sql).contains("   key = '" + value + "',\n"));
+        }
+
+        // a statement split into tokens is spliced into the template of its shape too
+        long hits = templates.getStats().hitCount();
+        StringBuilder out = new StringBuilder();
+        templatedTranslator.translate(TranslationCache.lex("insert into db.t values (42, 'y')").get(), out);
+        assertEquals(translator.translate("insert into db.t values (42, 'y')"), out.toString());
+        assertEquals(hits + 1, templates.getStats().hitCount());
+    }
+
+    private static String translateOrError(SqlTranslator translator, String sql){
+        try {
+            return translator.translate(sql);
+        }
+        catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    @Test
+    public void testRewriteRules(){
+        RewriteRule<Insert> renameRule = new RewriteRule<>() {
+            @Override
+            public Class<Insert> getNodeClass() {
+                return Insert.class;
+            }
+
+            @Override
+            public RewriteResult apply(Insert node) {
+                return RewriteResult.rewritten(node.withTarget(QualifiedName.of("staging", node.getTarget().getSuffix())));
+            }
+        };
+        // USE statements keep the current catalog
+        RewriteRule<Use> keepCatalogRule = new RewriteRule<>() {
+            @Override
+            public Class<Use> getNodeClass() {
+                return Use.class;
+            }
+
+            @Override
+            public RewriteResult apply(Use node) {
+                return RewriteResult.done(node);
+            }
+        };
+        RewriteRules rules = RewriteRules.builder()
+                .add(renameRule)
+                .add(keepCatalogRule)
+                .addDefaultRules(new ParserConfig())
+                .build();
+        Bridging rewriting = new Bridging(rules);
+        assertFalse(rules.isBuiltIn());
+        assertTrue(bridging.getRules().isBuiltIn());
+
+        assertTrue(SqlFormatter.formatSql(sqlParser.createTrinoStatement("insert into db.t values (1)", StatementBudget.unlimited(), rewriting)).startsWith("INSERT INTO hive.staging.t"));
+        io.trino.sql.tree.Use use = (io.trino.sql.tree.Use) sqlParser.createTrinoStatement("use db", StatementBudget.unlimited(), rewriting);
+        assertEquals(Optional.empty(), use.getCatalog());
+        use = (io.trino.sql.tree.Use) sqlParser.createTrinoStatement("use db", StatementBudget.unlimited(), bridging);
+        assertEquals(Optional.of(new io.trino.sql.tree.Identifier("hive")), use.getCatalog());
+        // the direct builder prefixes the catalogs of the bridging, as the rules do
+        ParsingOptions otherCatalogs = new ParsingOptions(new ParserConfig().setHiveDefaultCatalog("other"));
+        assertTrue(SqlFormatter.formatSql(new SqlParser(otherCatalogs).createTrinoStatement("create table a.t (x bigint)", StatementBudget.unlimited(), bridging)).startsWith("CREATE TABLE hive.a.t"));
+
+        // the translations of other rules are not cached with the translations of the built-in rules
+        TranslationCache cache = new TranslationCache(10_000);
+        SqlTranslator translator = new SqlTranslator(new ParserConfig(), new SqlParser(parsingOptions), bridging, Optional.of(cache));
+        SqlTranslator rewritingTranslator = new SqlTranslator(new ParserConfig(), new SqlParser(parsingOptions), rewriting, Optional.of(cache));
+        assertTrue(translator.translate("insert into db.t values (1)").startsWith("INSERT INTO hive.db.t"));
+        assertTrue(rewritingTranslator.translate("insert into db.t values (1)").startsWith("INSERT INTO hive.staging.t"));
+        assertEquals(1, cache.size());
+
+        // the rules of other classes of nodes are not applied
+        assertEquals(ImmutableList.of(renameRule.getName(), "InsertCatalogRule"), rules.getRuleNames(Insert.class));
+        assertEquals(ImmutableList.of(keepCatalogRule.getName(), "UseCatalogRule"), rules.getRuleNames(Use.class));
+        assertEquals(ImmutableList.of(), rules.getRuleNames(Identifier.class));
+
+        List<RuleStats> stats = rules.getStats();
+        assertEquals(7, stats.size());
+        assertEquals(2, stats.get(0).getFired());
+        // the USE statement stopped at its rule
+        assertEquals(1, stats.get(1).getFired());
+        assertEquals(0, stats.get(2).getApplied());
+        assertEquals(Insert.class, stats.get(3).getNodeClass());
+        assertEquals(2, stats.get(3).getApplied());
+        assertEquals(0, stats.get(5).getApplied());
+        assertEquals(0, stats.get(6).getApplied());
+    }
+
+    @Test
+    public void testStatementBudget(){
+        SqlParser tokenLimitedParser = new SqlParser(new ParsingOptions(new ParserConfig().setMaxStatementTokens(5)));
+        try {
+            tokenLimitedParser.createStatement("create table a.b (x bigint, y bigint)");
+            fail("expected StatementAbortedException");
+        }
+        catch (StatementAbortedException e) {
+            assertEquals(StatementAbortedException.Reason.TOO_MANY_TOKENS, e.getReason());
+        }
+        SqlParser depthLimitedParser = new SqlParser(new ParsingOptions(new ParserConfig().setMaxStatementDepth(100)));
+        try {
+            depthLimitedParser.createStatement("select ((((((((((((((((((((((((((((1))))))))))))))))))))))))))))");
+            fail("expected StatementAbortedException");
+        }
+        catch (StatementAbortedException e) {
+            assertEquals(StatementAbortedException.Reason.TOO_DEEPLY_NESTED, e.getReason());
+        }
+
+        // an interrupted stream stops instead of failing each remaining statement
+        Thread.currentThread().interrupt();
+        try {
+            sqlParser.streamStatements(new StringReader("refresh a.b; refresh c.d"), parsingOptions).count();
+            fail("expected StatementAbortedException");
+        }
+        catch (StatementAbortedException e) {
+            assertEquals(StatementAbortedException.Reason.CANCELLED, e.getReason());
+        }
+        finally {
+            Thread.interrupted();
+        }
+    }
+
 }